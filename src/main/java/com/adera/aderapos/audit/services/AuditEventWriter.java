@@ -0,0 +1,388 @@
+package com.adera.aderapos.audit.services;
+
+import com.adera.aderapos.audit.entities.AuditEvent;
+import com.adera.aderapos.audit.entities.enums.AuditAction;
+import com.adera.aderapos.audit.entities.enums.AuditEntityType;
+import com.adera.aderapos.audit.entities.enums.AuditSeverity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background writer for the asynchronous audit mode.
+ * <p>
+ * Events are put on a bounded queue and written by a single thread with JDBC batch inserts,
+ * either when a batch is full or when the flush interval has passed since its first event.
+ * When the queue is full the {@link OverflowPolicy} decides what happens to the caller.
+ * When a batch insert fails its events are retried one by one. Events the database rejects
+ * (constraint violations) go to an NDJSON quarantine file so they cannot hold up the rest; events
+ * that failed for any other reason are appended to an NDJSON spill file, which is replayed
+ * on the next start with the same rules. Ids are assigned before an event is written or spilled,
+ * so a replay never inserts the same event twice. On shutdown the queue is drained completely.
+ */
+@Component
+public class AuditEventWriter implements SmartLifecycle {
+
+    /** What {@link #submit(AuditEvent)} does when the queue is full. */
+    public enum OverflowPolicy {
+        /** Wait for free space. */
+        BLOCK,
+        /** Drop LOW severity events, wait for anything more severe. */
+        DROP_LOW,
+        /** Append the event to the spill file. */
+        SPILL
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AuditEventWriter.class);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO audit_events (id, action, entity_type, entity_id, actor_id, actor_role,
+                                      severity, occurred_at, description)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    /** One line of the spill file. */
+    record SpilledEvent(UUID id, String action, String entityType, UUID entityId, UUID actorId,
+                        String actorRole, String severity, String occurredAt, String description) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final Path spillPath;
+    private final Path quarantinePath;
+    private final BlockingQueue<AuditEvent> queue;
+    private final Counter dropped;
+    private final Counter spilled;
+    private final Counter quarantined;
+
+    private Thread worker;
+    private volatile boolean running;
+
+    public AuditEventWriter(JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${aderapos.audit.mode:sync}") String mode,
+                            @Value("${aderapos.audit.buffer-capacity:8192}") int capacity,
+                            @Value("${aderapos.audit.batch-size:200}") int batchSize,
+                            @Value("${aderapos.audit.flush-interval-ms:500}") long flushIntervalMs,
+                            @Value("${aderapos.audit.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+                            @Value("${aderapos.audit.spill-path:./audit-spill.ndjson}") String spillPath,
+                            @Value("${aderapos.audit.quarantine-path:./audit-rejected.ndjson}") String quarantinePath) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = "async".equalsIgnoreCase(mode);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+        this.spillPath = Path.of(spillPath);
+        this.quarantinePath = Path.of(quarantinePath);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dropped = Counter.builder("aderapos.audit.dropped").register(meterRegistry);
+        this.spilled = Counter.builder("aderapos.audit.spilled").register(meterRegistry);
+        this.quarantined = Counter.builder("aderapos.audit.quarantined").register(meterRegistry);
+        Gauge.builder("aderapos.audit.queue.size", queue, BlockingQueue::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the asynchronous audit mode is configured.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Hands an event to the writer. Once the writer has stopped, the event is written directly.
+     */
+    public void submit(AuditEvent event) {
+        if (!running) {
+            write(List.of(event));
+            return;
+        }
+        if (queue.offer(event)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case SPILL -> spill(List.of(event));
+            case DROP_LOW -> {
+                if (event.getSeverity() == AuditSeverity.LOW) {
+                    dropped.increment();
+                } else {
+                    put(event);
+                }
+            }
+            default -> put(event);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        replaySpill();
+        running = true;
+        worker = new Thread(this::drainLoop, "audit-writer");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Asynchronous audit enabled, batch size {}, flush interval {} ms, overflow policy {}",
+                batchSize, flushIntervalMs, overflowPolicy);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything that slipped in after the worker's last drain
+        List<AuditEvent> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            write(rest);
+        }
+        log.info("Audit writer stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Below the web server's phase, so the final drain runs only once requests have stopped raising events
+        return WebServerApplicationContext.START_STOP_LIFECYCLE_PHASE - 1;
+    }
+
+    // --- internals ---
+
+    private void drainLoop() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (running && batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    AuditEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void put(AuditEvent event) {
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            spill(List.of(event));
+        }
+    }
+
+    private void write(List<AuditEvent> events) {
+        events.forEach(AuditEventWriter::assignId);
+        try {
+            insert(events);
+            return;
+        } catch (RuntimeException e) {
+            if (events.size() == 1) {
+                fail(events, e);
+                return;
+            }
+            log.warn("Writing {} audit event(s) as a batch failed, retrying them one by one", events.size(), e);
+        }
+        for (int i = 0; i < events.size(); i++) {
+            AuditEvent event = events.get(i);
+            try {
+                insert(List.of(event));
+            } catch (RuntimeException e) {
+                if (!isRejected(e)) {
+                    // Not this event's fault: the rest would fail the same way
+                    fail(events.subList(i, events.size()), e);
+                    return;
+                }
+                fail(List.of(event), e);
+            }
+        }
+    }
+
+    /** Quarantines events the database rejected, spills the rest for the next start. */
+    private void fail(List<AuditEvent> events, RuntimeException cause) {
+        if (isRejected(cause)) {
+            log.error("Database rejected {} audit event(s), quarantining them in {}", events.size(), quarantinePath, cause);
+            if (append(quarantinePath, events)) {
+                quarantined.increment(events.size());
+            }
+        } else {
+            log.error("Writing {} audit event(s) failed, spilling to {}", events.size(), spillPath, cause);
+            spill(events);
+        }
+    }
+
+    /** Whether the event itself is at fault: a constraint violation or an incomplete event. */
+    private static boolean isRejected(RuntimeException e) {
+        return e instanceof DataIntegrityViolationException || !(e instanceof DataAccessException);
+    }
+
+    private void insert(List<AuditEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, batchSize, (ps, e) -> {
+            ps.setObject(1, e.getId());
+            ps.setString(2, e.getAction().name());
+            ps.setString(3, e.getEntityType().name());
+            ps.setObject(4, e.getEntityId());
+            ps.setObject(5, e.getActorId());
+            ps.setString(6, e.getActorRole());
+            ps.setString(7, e.getSeverity().name());
+            ps.setTimestamp(8, Timestamp.from(e.getOccurredAt()));
+            ps.setString(9, e.getDescription());
+        });
+    }
+
+    private void spill(List<AuditEvent> events) {
+        if (append(spillPath, events)) {
+            spilled.increment(events.size());
+        }
+    }
+
+    private synchronized boolean append(Path path, List<AuditEvent> events) {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC)) {
+            for (AuditEvent e : events) {
+                assignId(e);
+                out.write(objectMapper.writeValueAsString(new SpilledEvent(e.getId(), name(e.getAction()),
+                        name(e.getEntityType()), e.getEntityId(), e.getActorId(), e.getActorRole(),
+                        name(e.getSeverity()), Objects.toString(e.getOccurredAt(), null), e.getDescription())));
+                out.newLine();
+            }
+            return true;
+        } catch (IOException e) {
+            dropped.increment(events.size());
+            log.error("Cannot append {} audit event(s) to {}, events lost", events.size(), path, e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the spill file of the previous run. The file is first renamed, so events that fail
+     * again are spilled to a fresh file for the next start instead of growing the one being read;
+     * a renamed file left by a crash is replayed before anything else.
+     */
+    private synchronized void replaySpill() {
+        Path replaying = spillPath.resolveSibling(spillPath.getFileName() + ".replay");
+        try {
+            if (!Files.exists(replaying)) {
+                if (!Files.exists(spillPath)) {
+                    return;
+                }
+                Files.move(spillPath, replaying, StandardCopyOption.ATOMIC_MOVE);
+            }
+            List<AuditEvent> events = new ArrayList<>();
+            List<String> unreadable = new ArrayList<>();
+            for (String line : Files.readAllLines(replaying, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    events.add(parse(line));
+                } catch (IOException | RuntimeException e) {
+                    unreadable.add(line);
+                }
+            }
+            if (!unreadable.isEmpty()) {
+                log.error("Quarantining {} unreadable line(s) of audit spill file {}", unreadable.size(), spillPath);
+                Files.write(quarantinePath, unreadable, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+                quarantined.increment(unreadable.size());
+            }
+            for (int from = 0; from < events.size(); from += batchSize) {
+                write(events.subList(from, Math.min(events.size(), from + batchSize)));
+            }
+            Files.delete(replaying);
+            log.info("Replayed {} spilled audit event(s) from {}", events.size(), spillPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay audit spill file " + spillPath, e);
+        }
+    }
+
+    private AuditEvent parse(String line) throws IOException {
+        SpilledEvent s = objectMapper.readValue(line, SpilledEvent.class);
+        return AuditEvent.builder()
+                .id(s.id())
+                .action(AuditAction.valueOf(s.action()))
+                .entityType(AuditEntityType.valueOf(s.entityType()))
+                .entityId(s.entityId())
+                .actorId(s.actorId())
+                .actorRole(s.actorRole())
+                .severity(AuditSeverity.valueOf(s.severity()))
+                .occurredAt(Instant.parse(s.occurredAt()))
+                .description(s.description())
+                .build();
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    private static void assignId(AuditEvent event) {
+        if (event.getId() == null) {
+            event.setId(UUID.randomUUID());
+        }
+    }
+}
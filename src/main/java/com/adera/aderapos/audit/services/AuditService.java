@@ -3,20 +3,39 @@ package com.adera.aderapos.audit.services;
 import com.adera.aderapos.audit.entities.AuditEvent;
 import com.adera.aderapos.audit.entities.enums.*;
 import com.adera.aderapos.audit.repositories.AuditEventRepository;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
 import java.util.UUID;
 
 /**
  * Service for logging audit events.
+ * <p>
+ * In the default {@code sync} mode events are saved in the caller's transaction.
+ * In {@code async} mode they are handed to the {@link AuditEventWriter} once the caller's
+ * transaction has committed; events at or above {@code aderapos.audit.sync-min-severity}
+ * are still saved synchronously.
  */
 @Service
-@RequiredArgsConstructor
 public class AuditService {
 
+    /** Actor role of events raised by the system itself or by callers without a role. */
+    public static final String SYSTEM_ROLE = "SYSTEM";
+
     private final AuditEventRepository repository;
+    private final AuditEventWriter writer;
+    private final AuditSeverity syncMinSeverity;
+
+    public AuditService(AuditEventRepository repository,
+                        AuditEventWriter writer,
+                        @Value("${aderapos.audit.sync-min-severity:}") String syncMinSeverity) {
+        this.repository = repository;
+        this.writer = writer;
+        this.syncMinSeverity = syncMinSeverity.isBlank() ? null : AuditSeverity.valueOf(syncMinSeverity.trim());
+    }
 
     public void log(
             AuditAction action,
@@ -38,6 +57,24 @@ public class AuditService {
                 .occurredAt(Instant.now())
                 .build();
 
-        repository.save(event);
+        if (!writer.isEnabled() || isSynchronous(severity)) {
+            repository.save(event);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Only audit what actually happened: a rolled back transaction drops its events
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    writer.submit(event);
+                }
+            });
+        } else {
+            writer.submit(event);
+        }
+    }
+
+    private boolean isSynchronous(AuditSeverity severity) {
+        return syncMinSeverity != null && severity.compareTo(syncMinSeverity) >= 0;
     }
 }
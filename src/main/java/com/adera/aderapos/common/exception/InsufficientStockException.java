@@ -0,0 +1,26 @@
+package com.adera.aderapos.common.exception;
+
+import com.adera.aderapos.product.dtos.StockLineResult;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Thrown when one or more lines of a stock change cannot be covered by available inventory.
+ */
+public class InsufficientStockException extends ApiException {
+
+    private final List<StockLineResult> shortLines;
+
+    public InsufficientStockException(List<StockLineResult> shortLines) {
+        super("Insufficient stock for product(s): " + shortLines.stream()
+                .map(l -> l.getProductId() + " (requested " + l.getRequested()
+                        + ", available " + (l.getAvailable() != null ? l.getAvailable() : "none") + ")")
+                .collect(Collectors.joining(", ")));
+        this.shortLines = List.copyOf(shortLines);
+    }
+
+    public List<StockLineResult> getShortLines() {
+        return shortLines;
+    }
+}
@@ -0,0 +1,96 @@
+package com.adera.aderapos.common.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts JDBC statements and database round trips made by the current thread.
+ * <p>
+ * A statement is one SQL command sent (a batched row counts once); a round trip is one
+ * {@code execute*} call, so a whole JDBC batch is a single round trip. Both Hibernate and
+ * {@code JdbcTemplate} traffic is seen, because the count happens on the wrapped {@link DataSource}.
+ */
+public final class JdbcRoundTripCounter {
+
+    /** Counts since the last {@link #reset()}. */
+    public record Counts(long statements, long roundTrips) {}
+
+    private static final ThreadLocal<long[]> COUNTS = ThreadLocal.withInitial(() -> new long[2]);
+
+    private JdbcRoundTripCounter() {
+    }
+
+    public static void reset() {
+        long[] counts = COUNTS.get();
+        counts[0] = 0;
+        counts[1] = 0;
+    }
+
+    public static Counts current() {
+        long[] counts = COUNTS.get();
+        return new Counts(counts[0], counts[1]);
+    }
+
+    /**
+     * Wraps a data source so that every connection it hands out is counted.
+     */
+    public static DataSource wrap(DataSource target) {
+        return new DelegatingDataSource(target) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return proxy(Connection.class, super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return proxy(Connection.class, super.getConnection(username, password));
+            }
+        };
+    }
+
+    private static <T> T proxy(Class<T> type, T target) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            String name = method.getName();
+            if (target instanceof Statement) {
+                count(name);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof CallableStatement statement) {
+                return proxy(CallableStatement.class, statement);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return proxy(PreparedStatement.class, statement);
+            }
+            if (result instanceof Statement statement) {
+                return proxy(Statement.class, statement);
+            }
+            return result;
+        });
+        return type.cast(proxy);
+    }
+
+    private static void count(String method) {
+        long[] counts = COUNTS.get();
+        if (method.equals("addBatch")) {
+            counts[0]++;
+        } else if (method.equals("executeBatch") || method.equals("executeLargeBatch")) {
+            counts[1]++;
+        } else if (method.startsWith("execute")) {
+            counts[0]++;
+            counts[1]++;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.adera.aderapos.common.jdbc;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records how many statements and round trips each request made, tagged by method and route,
+ * e.g. {@code POST /api/sales} for createSale. Only registered when round-trip metrics are enabled.
+ */
+public class JdbcRoundTripInterceptor implements HandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcRoundTripInterceptor.class);
+
+    private final MeterRegistry meterRegistry;
+
+    public JdbcRoundTripInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        JdbcRoundTripCounter.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        JdbcRoundTripCounter.Counts counts = JdbcRoundTripCounter.current();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("aderapos.jdbc.statements")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(counts.statements());
+        DistributionSummary.builder("aderapos.jdbc.round.trips")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(counts.roundTrips());
+        logger.debug("{} {}: {} statements in {} round trips", request.getMethod(), uri,
+                counts.statements(), counts.roundTrips());
+    }
+}
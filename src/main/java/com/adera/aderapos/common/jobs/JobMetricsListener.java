@@ -0,0 +1,83 @@
+package com.adera.aderapos.common.jobs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.quartz.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per-job metrics for every Quartz job: {@code aderapos.jobs.duration} (tagged with the result),
+ * {@code aderapos.jobs.lag} between the scheduled and the actual fire time, and {@code aderapos.jobs.misfires}.
+ */
+@Component
+public class JobMetricsListener implements JobListener, TriggerListener {
+
+    private static final Logger log = LoggerFactory.getLogger(JobMetricsListener.class);
+
+    private final MeterRegistry meterRegistry;
+
+    public JobMetricsListener(MeterRegistry meterRegistry, Scheduler scheduler) throws SchedulerException {
+        this.meterRegistry = meterRegistry;
+        scheduler.getListenerManager().addJobListener(this);
+        scheduler.getListenerManager().addTriggerListener(this);
+    }
+
+    @Override
+    public String getName() {
+        return "job-metrics";
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        if (context.getScheduledFireTime() != null) {
+            long lag = context.getFireTime().getTime() - context.getScheduledFireTime().getTime();
+            Timer.builder("aderapos.jobs.lag")
+                    .tag("job", jobName(context))
+                    .register(meterRegistry)
+                    .record(Math.max(lag, 0), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        Timer.builder("aderapos.jobs.duration")
+                .tag("job", jobName(context))
+                .tag("result", jobException == null ? "success" : "failure")
+                .register(meterRegistry)
+                .record(context.getJobRunTime(), TimeUnit.MILLISECONDS);
+        if (jobException != null) {
+            log.error("Job {} failed", jobName(context), jobException);
+        }
+    }
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        return false;
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+        meterRegistry.counter("aderapos.jobs.misfires", "job", trigger.getJobKey().getName()).increment();
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext context,
+                                Trigger.CompletedExecutionInstruction triggerInstructionCode) {
+    }
+
+    private static String jobName(JobExecutionContext context) {
+        return context.getJobDetail().getKey().getName();
+    }
+}
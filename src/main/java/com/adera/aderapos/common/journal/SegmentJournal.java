@@ -0,0 +1,299 @@
+package com.adera.aderapos.common.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable append-only queue of opaque records, stored in memory-mapped segment files.
+ * <p>
+ * Records are framed as {@code length(4) | crc32c(4) | payload}. A segment is a preallocated file of
+ * {@code segmentSize} bytes named after its base offset; offsets are global byte positions, so a record's
+ * offset is its segment's base plus its position in the segment. A zero length marks the end of a segment.
+ * <p>
+ * {@link #append(byte[])} copies into the mapped page cache and returns without touching the disk, so a
+ * process crash loses nothing; {@link #force()} makes appended records survive an OS crash and is meant to be
+ * called periodically to batch the fsyncs. On open, the newest segment is scanned and cut at the first torn or
+ * corrupt record. Consumers commit the offset they have processed up to; {@link #compact()} deletes segments
+ * every consumer has moved past.
+ */
+public class SegmentJournal implements Closeable {
+
+    static final int HEADER_SIZE = 8;
+    private static final String SUFFIX = ".seg";
+    private static final String OFFSET_SUFFIX = ".offset";
+
+    /** One stored record; {@code next} is the offset to commit once the record is processed. */
+    public record Entry(long offset, long next, byte[] payload) {}
+
+    private final Path dir;
+    private final int segmentSize;
+    private final NavigableMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> committed = new ConcurrentHashMap<>();
+
+    private MappedByteBuffer active;
+    private long activeBase;
+    private int position;
+    private boolean dirty;
+    /** Offset just past the last complete record; reads never go beyond it. */
+    private volatile long end;
+
+    public SegmentJournal(Path dir, int segmentSize) {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must exceed " + HEADER_SIZE + " bytes");
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal directory " + dir, e);
+        }
+        for (Path file : list(SUFFIX)) {
+            segments.put(baseOf(file, SUFFIX), map(file));
+        }
+        for (Path file : list(OFFSET_SUFFIX)) {
+            committed.put(nameOf(file, OFFSET_SUFFIX), readOffset(file));
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, map(segmentPath(0)));
+        }
+        Map.Entry<Long, MappedByteBuffer> last = segments.lastEntry();
+        activeBase = last.getKey();
+        active = last.getValue();
+        position = recover(active);
+        end = activeBase + position;
+    }
+
+    /**
+     * Appends one record and returns its offset. Thread-safe; producers only contend for the copy.
+     */
+    public long append(byte[] payload) {
+        int frame = HEADER_SIZE + payload.length;
+        if (payload.length == 0 || frame > segmentSize) {
+            throw new IllegalArgumentException("Record must be 1 to " + (segmentSize - HEADER_SIZE) + " bytes");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        synchronized (this) {
+            if (active == null) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            if (position + frame > segmentSize) {
+                roll();
+            }
+            // Length goes in last, so a record is never visible before its bytes
+            active.put(position + HEADER_SIZE, payload);
+            active.putInt(position + 4, (int) crc.getValue());
+            active.putInt(position, payload.length);
+            long offset = activeBase + position;
+            position += frame;
+            dirty = true;
+            end = activeBase + position;
+            return offset;
+        }
+    }
+
+    /**
+     * Reads up to {@code max} records starting at {@code from}, which must be an offset returned by
+     * {@link Entry#next()}, {@link #committed(String)} or {@link #append(byte[])}.
+     */
+    public List<Entry> read(long from, int max) {
+        List<Entry> entries = new ArrayList<>();
+        long limit = end;
+        Long first = segments.isEmpty() ? null : segments.firstKey();
+        long offset = first != null ? Math.max(from, first) : limit;
+        while (entries.size() < max && offset < limit) {
+            Map.Entry<Long, MappedByteBuffer> segment = segments.floorEntry(offset);
+            if (segment == null) {
+                break;
+            }
+            int pos = (int) (offset - segment.getKey());
+            MappedByteBuffer buf = segment.getValue();
+            int length = pos + HEADER_SIZE <= segmentSize ? buf.getInt(pos) : 0;
+            if (length <= 0) {
+                offset = segment.getKey() + segmentSize;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            buf.get(pos + HEADER_SIZE, payload);
+            entries.add(new Entry(offset, offset + HEADER_SIZE + length, payload));
+            offset += HEADER_SIZE + length;
+        }
+        return entries;
+    }
+
+    /**
+     * The offset a consumer has processed up to, or the start of the journal for a new consumer.
+     */
+    public long committed(String consumer) {
+        Long offset = committed.get(consumer);
+        return offset != null ? offset : segments.firstKey();
+    }
+
+    /**
+     * Records that a consumer has processed everything before {@code offset}. The offset file is replaced
+     * atomically, so a crash leaves either the old or the new offset.
+     */
+    public void commit(String consumer, long offset) {
+        Path file = dir.resolve(consumer + OFFSET_SUFFIX);
+        Path tmp = dir.resolve(consumer + OFFSET_SUFFIX + ".tmp");
+        try {
+            Files.writeString(tmp, Long.toString(offset), StandardCharsets.US_ASCII,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot commit journal offset " + file, e);
+        }
+        committed.put(consumer, offset);
+    }
+
+    /**
+     * Deletes segments that every consumer has read past. The active segment is always kept.
+     *
+     * @return the number of segments deleted
+     */
+    public int compact() {
+        if (committed.isEmpty()) {
+            return 0;
+        }
+        long low = Collections.min(committed.values());
+        long activeStart;
+        synchronized (this) {
+            activeStart = activeBase;
+        }
+        int deleted = 0;
+        for (Long base : new ArrayList<>(segments.headMap(activeStart, false).keySet())) {
+            if (base + segmentSize > low) {
+                break;
+            }
+            segments.remove(base);
+            try {
+                Files.deleteIfExists(segmentPath(base));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot delete journal segment " + segmentPath(base), e);
+            }
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Flushes appended records to disk. The fsync runs outside the append lock.
+     */
+    public void force() {
+        MappedByteBuffer toForce;
+        synchronized (this) {
+            if (!dirty || active == null) {
+                return;
+            }
+            toForce = active;
+            dirty = false;
+        }
+        toForce.force();
+    }
+
+    /** Offset just past the last appended record. */
+    public long end() {
+        return end;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (active != null) {
+            active.force();
+            active = null;
+        }
+        segments.clear();
+    }
+
+    private void roll() {
+        active.force();
+        activeBase += segmentSize;
+        active = map(segmentPath(activeBase));
+        segments.put(activeBase, active);
+        position = 0;
+    }
+
+    /**
+     * Finds the end of the valid records in a segment and clears whatever follows a torn or corrupt record.
+     */
+    private int recover(MappedByteBuffer buf) {
+        int pos = 0;
+        while (pos + HEADER_SIZE <= segmentSize) {
+            int length = buf.getInt(pos);
+            if (length == 0) {
+                return pos;
+            }
+            if (length < 0 || pos + HEADER_SIZE + length > segmentSize
+                    || buf.getInt(pos + 4) != crc(buf, pos + HEADER_SIZE, length)) {
+                int torn = length > 0 ? Math.min(HEADER_SIZE + length, segmentSize - pos) : HEADER_SIZE;
+                buf.put(pos, new byte[torn]);
+                buf.force();
+                return pos;
+            }
+            pos += HEADER_SIZE + length;
+        }
+        return pos;
+    }
+
+    private static int crc(MappedByteBuffer buf, int from, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(from, length));
+        return (int) crc.getValue();
+    }
+
+    private MappedByteBuffer map(Path file) {
+        // Mapping past the end grows the file with zeros, which also restores segments cut short by a crash
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map journal segment " + file, e);
+        }
+    }
+
+    private List<Path> list(String suffix) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + suffix)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journal " + dir, e);
+        }
+        return files;
+    }
+
+    private static long readOffset(Path file) {
+        try {
+            return Long.parseLong(Files.readString(file, StandardCharsets.US_ASCII).trim());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal offset " + file, e);
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return dir.resolve(String.format("%020d%s", base, SUFFIX));
+    }
+
+    private static long baseOf(Path file, String suffix) {
+        return Long.parseLong(nameOf(file, suffix));
+    }
+
+    private static String nameOf(Path file, String suffix) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.length() - suffix.length());
+    }
+}
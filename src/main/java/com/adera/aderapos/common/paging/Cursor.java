@@ -0,0 +1,50 @@
+package com.adera.aderapos.common.paging;
+
+import com.adera.aderapos.common.exception.ApiException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position in a list ordered by {@code (timestamp desc, id desc)}.
+ * The next page holds the rows strictly after this position.
+ *
+ * @param at the timestamp of the last row returned
+ * @param id the id of the last row returned, breaking ties between equal timestamps
+ */
+public record Cursor(Instant at, UUID id) {
+
+    /** Position before the newest possible row, i.e. the first page. */
+    public static final Cursor FIRST = new Cursor(Instant.parse("9999-12-31T23:59:59Z"), new UUID(-1L, -1L));
+
+    /**
+     * Encodes the cursor as an opaque URL-safe token.
+     */
+    public String encode() {
+        String raw = at.getEpochSecond() + "." + at.getNano() + "." + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param token the cursor token, may be null or blank for the first page
+     * @return the decoded cursor, or {@link #FIRST}
+     * @throws ApiException if the token is malformed
+     */
+    public static Cursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            String[] parts = raw.split("\\.", 3);
+            return new Cursor(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                    UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new ApiException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.adera.aderapos.common.paging;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated list.
+ * Over HTTP the items are the JSON body and the next cursor travels in the
+ * {@value #NEXT_CURSOR_HEADER} header, so existing clients expecting a plain array keep working.
+ *
+ * @param items      the rows of this page
+ * @param nextCursor cursor for the following page, or null if this is the last one
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    /**
+     * Clamps a requested page size to {@code [1, MAX_LIMIT]}.
+     */
+    public static int limit(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(requested, MAX_LIMIT));
+    }
+
+    /**
+     * Builds a page from rows fetched with {@code limit + 1}: the extra row only signals that more exist.
+     *
+     * @param fetched  rows in keyset order, at most {@code limit + 1}
+     * @param limit    the page size
+     * @param cursorOf extracts the keyset position of a row
+     */
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, Cursor> cursorOf) {
+        if (fetched.size() <= limit) {
+            return new CursorPage<>(fetched, null);
+        }
+        List<T> page = fetched.subList(0, limit);
+        return new CursorPage<>(page, cursorOf.apply(page.get(limit - 1)).encode());
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(items.stream().map(mapper).toList(), nextCursor);
+    }
+
+    /**
+     * Wraps the page as a 200 response with the items as body and the next cursor as header.
+     */
+    public ResponseEntity<List<T>> toResponse() {
+        return toResponse(null);
+    }
+
+    /**
+     * Like {@link #toResponse()}, also setting an ETag when one is given.
+     */
+    public ResponseEntity<List<T>> toResponse(String etag) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (nextCursor != null) {
+            ok.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        if (etag != null) {
+            ok.eTag(etag);
+        }
+        return ok.body(items);
+    }
+}
@@ -0,0 +1,39 @@
+package com.adera.aderapos.common.paging;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Helpers for walking large query results without growing the persistence context.
+ */
+public final class EntityStreams {
+
+    /** Rows handled between two persistence context clears. */
+    public static final int CLEAR_EVERY = 200;
+
+    /** JDBC fetch size for streamed queries, so Postgres serves them from a server-side cursor. */
+    public static final String FETCH_SIZE = "500";
+
+    private EntityStreams() {
+    }
+
+    /**
+     * Hands every row of a query stream to {@code action}, clearing the persistence context
+     * every {@link #CLEAR_EVERY} rows so memory stays flat whatever the result size.
+     * Must run inside a transaction; the stream is closed when done.
+     */
+    public static <E> void forEach(Stream<E> rows, EntityManager entityManager, Consumer<E> action) {
+        try (rows) {
+            int count = 0;
+            for (Iterator<E> it = rows.iterator(); it.hasNext(); ) {
+                action.accept(it.next());
+                if (++count % CLEAR_EVERY == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.adera.aderapos.common.paging;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes rows as newline-delimited JSON straight to the response, one line per row,
+ * using the same JSON mapper as the regular endpoints.
+ */
+@Component
+public class NdjsonWriter {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ObjectMapper objectMapper;
+
+    public NdjsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Builds a streaming response; {@code producer} is called with a sink that writes each row it gets.
+     *
+     * @param producer reads the rows (typically a transactional service method) and feeds them to the sink
+     */
+    public <T> ResponseEntity<StreamingResponseBody> stream(Consumer<Consumer<T>> producer) {
+        StreamingResponseBody body = out -> producer.accept(row -> writeLine(out, row));
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    private void writeLine(OutputStream out, Object row) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(row));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException("Client stopped reading the stream", e);
+        }
+    }
+}
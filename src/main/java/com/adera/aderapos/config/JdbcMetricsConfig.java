@@ -0,0 +1,47 @@
+package com.adera.aderapos.config;
+
+import com.adera.aderapos.common.jdbc.JdbcRoundTripCounter;
+import com.adera.aderapos.common.jdbc.JdbcRoundTripInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Optional per-request statement and round-trip metrics, used to check write batching
+ * (e.g. that a 20-line sale does not cost 20+ INSERT round trips).
+ * Off by default, since every JDBC object is then wrapped in a proxy.
+ */
+@Configuration
+public class JdbcMetricsConfig {
+
+    @Bean
+    static BeanPostProcessor jdbcRoundTripCounting(
+            @Value("${aderapos.jdbc.round-trip-metrics.enabled:false}") boolean enabled) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return enabled && bean instanceof DataSource dataSource ? JdbcRoundTripCounter.wrap(dataSource) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public WebMvcConfigurer jdbcRoundTripMetrics(
+            MeterRegistry meterRegistry,
+            @Value("${aderapos.jdbc.round-trip-metrics.enabled:false}") boolean enabled) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                if (enabled) {
+                    registry.addInterceptor(new JdbcRoundTripInterceptor(meterRegistry)).addPathPatterns("/api/**");
+                }
+            }
+        };
+    }
+}
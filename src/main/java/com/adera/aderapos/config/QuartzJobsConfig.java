@@ -0,0 +1,78 @@
+package com.adera.aderapos.config;
+
+import com.adera.aderapos.invoice.jobs.MorRetryJob;
+import com.adera.aderapos.reporting.jobs.SalesRollupRebuildJob;
+import com.adera.aderapos.sales.jobs.ReservationSweepJob;
+import org.quartz.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.TimeZone;
+
+/**
+ * Recurring cluster-wide jobs. Quartz keeps them in its JDBC job store, so each run happens on exactly one node.
+ * <p>
+ * Interval triggers that missed runs (all nodes down or busy) fire once on the next interval instead of
+ * catching up on each missed run; the nightly rollup rebuild runs once as soon as it can.
+ */
+@Configuration
+public class QuartzJobsConfig {
+
+    @Bean
+    public JobDetail morRetryJob() {
+        return JobBuilder.newJob(MorRetryJob.class)
+                .withIdentity("mor-retry")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger morRetryTrigger(@Value("${aderapos.mor.retry-interval-ms:15000}") long intervalMs) {
+        return every(morRetryJob(), intervalMs);
+    }
+
+    @Bean
+    public JobDetail reservationSweepJob() {
+        return JobBuilder.newJob(ReservationSweepJob.class)
+                .withIdentity("reservation-sweep")
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger reservationSweepTrigger(@Value("${aderapos.reservation.sweep-interval-ms:30000}") long intervalMs) {
+        return every(reservationSweepJob(), intervalMs);
+    }
+
+    @Bean
+    public JobDetail salesRollupRebuildJob() {
+        return JobBuilder.newJob(SalesRollupRebuildJob.class)
+                .withIdentity(SalesRollupRebuildJob.KEY)
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger salesRollupRebuildTrigger(@Value("${aderapos.reporting.rebuild-cron:0 30 2 * * ?}") String cron,
+                                             @Value("${aderapos.reporting.time-zone:Africa/Addis_Ababa}") String zone) {
+        return TriggerBuilder.newTrigger()
+                .forJob(salesRollupRebuildJob())
+                .withIdentity("sales-rollup-rebuild")
+                .withSchedule(CronScheduleBuilder.cronSchedule(cron)
+                        .inTimeZone(TimeZone.getTimeZone(zone))
+                        .withMisfireHandlingInstructionFireAndProceed())
+                .build();
+    }
+
+    private static Trigger every(JobDetail job, long intervalMs) {
+        return TriggerBuilder.newTrigger()
+                .forJob(job)
+                .withIdentity(job.getKey().getName())
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+                        .withIntervalInMilliseconds(intervalMs)
+                        .repeatForever()
+                        .withMisfireHandlingInstructionNextWithRemainingCount())
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.adera.aderapos.config;
 
+import com.adera.aderapos.common.paging.CursorPage;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -30,6 +31,7 @@ public class WebCorsConfig {
                         .allowedOrigins("http://localhost:3000", "https://aderapos.netlify.app/")
                         .allowedMethods("*")
                         .allowedHeaders("*")
+                        .exposedHeaders(CursorPage.NEXT_CURSOR_HEADER)
                         .allowCredentials(true);
             }
         };
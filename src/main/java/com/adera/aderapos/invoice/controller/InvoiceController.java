@@ -1,12 +1,18 @@
 package com.adera.aderapos.invoice.controller;
 
+import com.adera.aderapos.common.paging.CursorPage;
+import com.adera.aderapos.common.paging.NdjsonWriter;
+import com.adera.aderapos.invoice.dtos.ChainReportDTO;
+import com.adera.aderapos.invoice.dtos.IntegrityReportDTO;
 import com.adera.aderapos.invoice.dtos.InvoiceDTO;
 import com.adera.aderapos.invoice.entities.Invoice;
 import com.adera.aderapos.invoice.mapper.InvoiceMapper;
+import com.adera.aderapos.invoice.services.InvoiceIntegrityService;
 import com.adera.aderapos.invoice.services.InvoiceService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -17,7 +23,9 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class InvoiceController {
     private final InvoiceService invoiceService;
+    private final InvoiceIntegrityService integrityService;
     private final InvoiceMapper invoiceMapper;
+    private final NdjsonWriter ndjsonWriter;
 
     @PostMapping
     public ResponseEntity<InvoiceDTO> createInvoice(@RequestParam UUID saleId, @RequestParam UUID shopId) {
@@ -44,14 +52,39 @@ public class InvoiceController {
     }
 
     @GetMapping
-    public ResponseEntity<List<InvoiceDTO>> getAllInvoices() {
-        List<Invoice> invoices = invoiceService.getAllInvoices();
-        return ResponseEntity.ok(invoices.stream().map(invoiceMapper::toDto).toList());
+    public ResponseEntity<List<InvoiceDTO>> getAllInvoices(@RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Integer limit) {
+        return invoiceService.getAllInvoices(cursor, CursorPage.limit(limit))
+                .map(invoiceMapper::toDto)
+                .toResponse();
+    }
+
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllInvoices() {
+        return ndjsonWriter.<InvoiceDTO>stream(sink -> invoiceService.streamInvoices(null, sink));
     }
 
     @GetMapping("/by-shop/{shopId}")
-    public ResponseEntity<List<InvoiceDTO>> getInvoicesByShop(@PathVariable UUID shopId) {
-        List<Invoice> invoices = invoiceService.getInvoicesByShop(shopId);
-        return ResponseEntity.ok(invoices.stream().map(invoiceMapper::toDto).toList());
+    public ResponseEntity<List<InvoiceDTO>> getInvoicesByShop(@PathVariable UUID shopId,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(required = false) Integer limit) {
+        return invoiceService.getInvoicesByShop(shopId, cursor, CursorPage.limit(limit))
+                .map(invoiceMapper::toDto)
+                .toResponse();
+    }
+
+    @GetMapping(value = "/by-shop/{shopId}/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamInvoicesByShop(@PathVariable UUID shopId) {
+        return ndjsonWriter.<InvoiceDTO>stream(sink -> invoiceService.streamInvoices(shopId, sink));
+    }
+
+    @PostMapping("/verify")
+    public ResponseEntity<IntegrityReportDTO> verifyInvoices(@RequestParam(required = false) UUID shopId) {
+        return ResponseEntity.ok(integrityService.verify(shopId));
+    }
+
+    @PostMapping("/by-shop/{shopId}/verify-chain")
+    public ResponseEntity<ChainReportDTO> verifyInvoiceChain(@PathVariable UUID shopId) {
+        return ResponseEntity.ok(integrityService.verifyChain(shopId));
     }
 }
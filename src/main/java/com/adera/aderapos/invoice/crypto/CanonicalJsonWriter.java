@@ -2,31 +2,139 @@ package com.adera.aderapos.invoice.crypto;
 
 import com.adera.aderapos.invoice.entities.Invoice;
 import com.adera.aderapos.invoice.entities.InvoiceLine;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.springframework.stereotype.Component;
 
-import java.util.LinkedHashMap;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * Encodes an invoice into the canonical JSON that is hashed and signed.
+ * <p>
+ * Fields are written in a fixed order: the header, then every line in the given order. Amounts are numbers
+ * with exactly two decimals (HALF_UP) and {@code issuedAt} is UTC with millisecond precision, so the same
+ * invoice always yields the same bytes, also after its timestamp went through the database.
+ * Chained invoices carry the hash of the shop's previous invoice in {@code previousHash}; invoices issued
+ * before the chain omit the field.
+ * The UTF-8 output goes straight into a per-thread buffer that is reused across invoices.
+ */
 @Component
 public class CanonicalJsonWriter {
 
-    private final ObjectMapper mapper = new ObjectMapper();
+    private static final int AMOUNT_SCALE = 2;
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+    private static final DateTimeFormatter ISSUED_AT =
+            DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
 
+    private final JsonFactory factory = new JsonFactory();
+    private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+    /**
+     * Encodes the invoice into this thread's buffer. The returned view shares that buffer: it is valid until
+     * the same thread encodes again and must not be modified.
+     */
+    public ByteBuffer encode(Invoice invoice, List<InvoiceLine> lines) {
+        Buffer buffer = buffers.get();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            // Do not pin the memory of one huge invoice to the thread
+            buffer = new Buffer();
+            buffers.set(buffer);
+        }
+        buffer.reset();
+        try (JsonGenerator gen = factory.createGenerator(buffer, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeStringField("invoiceNumber", invoice.getInvoiceNumber());
+            if (invoice.getPreviousHash() != null) {
+                gen.writeStringField("previousHash", invoice.getPreviousHash());
+            }
+            gen.writeStringField("issuedAt", format(invoice.getIssuedAt()));
+            writeAmount(gen, "netAmount", invoice.getNetAmount());
+            writeAmount(gen, "vatAmount", invoice.getVatAmount());
+            writeAmount(gen, "surtaxAmount", invoice.getSurtaxAmount());
+            writeAmount(gen, "grossAmount", invoice.getGrossAmount());
+            gen.writeArrayFieldStart("lines");
+            if (lines != null) {
+                for (InvoiceLine line : lines) {
+                    gen.writeStartObject();
+                    gen.writeStringField("productName", line.getProductName());
+                    gen.writeFieldName("quantity");
+                    if (line.getQuantity() != null) {
+                        gen.writeNumber(line.getQuantity());
+                    } else {
+                        gen.writeNull();
+                    }
+                    writeAmount(gen, "unitPrice", line.getUnitPrice());
+                    writeAmount(gen, "lineTotal", line.getLineTotal());
+                    gen.writeEndObject();
+                }
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Canonical JSON failed", e);
+        }
+        return buffer.view();
+    }
+
+    /**
+     * The canonical form as a String, for storage.
+     */
     public String write(Invoice invoice, List<InvoiceLine> lines) {
-        try {
-            Map<String, Object> root = new LinkedHashMap<>();
-            root.put("invoiceNumber", invoice.getInvoiceNumber());
-            root.put("issuedAt", invoice.getIssuedAt().toString());
-            root.put("netAmount", invoice.getNetAmount());
-            root.put("vatAmount", invoice.getVatAmount());
-            root.put("surtaxAmount", invoice.getSurtaxAmount());
-            root.put("grossAmount", invoice.getGrossAmount());
-
-            return mapper.writeValueAsString(root);
-        } catch (Exception e) {
-            throw new RuntimeException("Canonical JSON failed", e);
+        return asString(encode(invoice, lines));
+    }
+
+    /**
+     * Decodes an encoded canonical form without copying it first.
+     */
+    public static String asString(ByteBuffer canonical) {
+        return new String(canonical.array(), canonical.arrayOffset() + canonical.position(),
+                canonical.remaining(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether a stored canonical form links to {@code previousHash}. String values are escaped, so the unescaped
+     * field can only come from the header.
+     */
+    public static boolean linksTo(String canonicalJson, String previousHash) {
+        return canonicalJson.contains("\"previousHash\":\"" + previousHash + "\"");
+    }
+
+    private static void writeAmount(JsonGenerator gen, String name, BigDecimal value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).toPlainString());
+        }
+    }
+
+    private static String format(Instant instant) {
+        return instant != null ? ISSUED_AT.format(instant) : null;
+    }
+
+    /** Growable byte buffer whose content can be viewed without copying. */
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(2048);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        ByteBuffer view() {
+            return ByteBuffer.wrap(buf, 0, count);
         }
     }
 }
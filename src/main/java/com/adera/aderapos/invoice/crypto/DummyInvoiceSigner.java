@@ -0,0 +1,37 @@
+package com.adera.aderapos.invoice.crypto;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.Base64;
+
+/**
+ * Stand-in signer for development and tests; needs no keys. Not active in prod.
+ */
+@Service
+@Profile("!prod")
+public class DummyInvoiceSigner implements InvoiceSigner {
+
+    private static final String KEY_ID = "dummy";
+
+    @Override
+    public String sign(String hash) {
+        return Base64.getEncoder()
+                .encodeToString(("DUMMY-SIGNATURE::" + hash).getBytes());
+    }
+
+    @Override
+    public String keyId() {
+        return KEY_ID;
+    }
+
+    @Override
+    public boolean verify(String hash, String signature) {
+        return sign(hash).equals(signature);
+    }
+
+    @Override
+    public boolean verify(String hash, String signature, String keyId) {
+        return (keyId == null || KEY_ID.equals(keyId)) && verify(hash, signature);
+    }
+}
@@ -2,20 +2,121 @@ package com.adera.aderapos.invoice.crypto;
 
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 
+/**
+ * SHA-256 of canonical invoice JSON, Base64 encoded.
+ * <p>
+ * Each thread keeps its own digest, UTF-8 encoder and scratch buffers, so hashing allocates nothing but the
+ * returned String, and {@link #matches} allocates nothing at all. Canonical bytes from
+ * {@link CanonicalJsonWriter#encode} are digested in place.
+ */
 @Service
 public class InvoiceHashService {
 
+    static final int DIGEST_LENGTH = 32;
+    /** Base64 length of a SHA-256 digest. */
+    static final int ENCODED_LENGTH = 44;
+    private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
     public String hash(String canonicalJson) {
+        State state = STATE.get();
+        digest(state, state.utf8(canonicalJson));
+        return new String(state.encoded, 0, ENCODED_LENGTH, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Hashes canonical bytes as produced by {@link CanonicalJsonWriter#encode}; consumes the buffer.
+     */
+    public String hash(ByteBuffer canonicalJson) {
+        State state = STATE.get();
+        digest(state, canonicalJson);
+        return new String(state.encoded, 0, ENCODED_LENGTH, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Whether stored canonical JSON still hashes to its stored hash.
+     */
+    public boolean matches(CharSequence canonicalJson, String expectedHash) {
+        State state = STATE.get();
+        digest(state, state.utf8(canonicalJson));
+        return state.encodedEquals(expectedHash);
+    }
+
+    /**
+     * Whether canonical bytes hash to {@code expectedHash}; consumes the buffer.
+     */
+    public boolean matches(ByteBuffer canonicalJson, String expectedHash) {
+        State state = STATE.get();
+        digest(state, canonicalJson);
+        return state.encodedEquals(expectedHash);
+    }
+
+    private static void digest(State state, ByteBuffer bytes) {
+        state.digest.update(bytes);
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(canonicalJson.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (Exception e) {
-            throw new RuntimeException("Hashing failed", e);
+            state.digest.digest(state.hash, 0, DIGEST_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalStateException("Hashing failed", e);
+        }
+        Base64.getEncoder().encode(state.hash, state.encoded);
+    }
+
+    /** One thread's digest and scratch space. A MessageDigest resets itself after each digest call. */
+    private static final class State {
+        final MessageDigest digest;
+        final byte[] hash = new byte[DIGEST_LENGTH];
+        final byte[] encoded = new byte[ENCODED_LENGTH];
+        // Replaces unpaired surrogates with '?', like String.getBytes does
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(8 * 1024);
+
+        State() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        ByteBuffer utf8(CharSequence chars) {
+            int max = chars.length() * 3;
+            ByteBuffer target = bytes;
+            if (target.capacity() < max) {
+                target = ByteBuffer.allocate(max);
+                if (max <= MAX_RETAINED_BUFFER) {
+                    bytes = target;
+                }
+            }
+            target.clear();
+            encoder.reset();
+            encoder.encode(CharBuffer.wrap(chars), target, true);
+            encoder.flush(target);
+            return target.flip();
+        }
+
+        boolean encodedEquals(String expected) {
+            if (expected == null || expected.length() != ENCODED_LENGTH) {
+                return false;
+            }
+            for (int i = 0; i < ENCODED_LENGTH; i++) {
+                if (expected.charAt(i) != (char) encoded[i]) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
 }
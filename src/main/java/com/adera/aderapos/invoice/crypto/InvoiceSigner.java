@@ -1,18 +1,35 @@
 package com.adera.aderapos.invoice.crypto;
 
-import org.springframework.context.annotation.Profile;
-import org.springframework.stereotype.Service;
+import java.util.List;
 
-import java.util.Base64;
+/**
+ * Signs invoice hashes. Signatures are Base64 encoded.
+ */
+public interface InvoiceSigner {
 
-@Service
-@Profile("!prod") // ← NOT active in prod
-public class InvoiceSigner {
+    String sign(String hash);
 
-    public String sign(String hash) {
-        // TODO (PROD):
-        // Replace with RSA private key signing (SHA256withRSA)
-        return Base64.getEncoder()
-                .encodeToString(("DUMMY-SIGNATURE::" + hash).getBytes());
+    /**
+     * Identifies the key {@link #sign} uses; stored with each invoice so its signature can be checked
+     * after the key is rotated.
+     */
+    String keyId();
+
+    /**
+     * Whether {@code signature} was made over {@code hash} by this signer's key.
+     */
+    boolean verify(String hash, String signature);
+
+    /**
+     * Whether {@code signature} was made over {@code hash} by the key {@code keyId}, current or retired.
+     * A null key id, as on invoices signed before key ids were stored, accepts any known key.
+     */
+    boolean verify(String hash, String signature, String keyId);
+
+    /**
+     * Signs many hashes at once; the result is in the order of {@code hashes}.
+     */
+    default List<String> signAll(List<String> hashes) {
+        return hashes.stream().map(this::sign).toList();
     }
 }
@@ -0,0 +1,184 @@
+package com.adera.aderapos.invoice.crypto;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional Merkle-batched invoice signing for high-volume shops.
+ * <p>
+ * Invoice hashes are collected for up to {@code aderapos.invoice.merkle.window-ms} or
+ * {@code aderapos.invoice.merkle.max-leaves} hashes, whichever comes first. A {@link MerkleTree} is built over
+ * them and only its root is signed, so one signature covers the whole batch. Each invoice stores the root,
+ * the shared signature and its own inclusion proof, and stays verifiable on its own.
+ * {@link #sign} blocks until the batch is signed, which delays each invoice by at most one window.
+ */
+@Component
+public class MerkleBatchSigner implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(MerkleBatchSigner.class);
+
+    /** What a batched invoice stores: the batch root, its inclusion proof and the root's signature. */
+    public record BatchSignature(String root, String proof, String signature) {}
+
+    private record Pending(String hash, CompletableFuture<BatchSignature> result) {}
+
+    private final InvoiceSigner signer;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxLeaves;
+    private final DistributionSummary batchSizes;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    private volatile Thread flusher;
+    private volatile boolean running;
+
+    public MerkleBatchSigner(InvoiceSigner signer,
+                             MeterRegistry meterRegistry,
+                             @Value("${aderapos.invoice.merkle.enabled:false}") boolean enabled,
+                             @Value("${aderapos.invoice.merkle.window-ms:50}") long windowMs,
+                             @Value("${aderapos.invoice.merkle.max-leaves:256}") int maxLeaves) {
+        this.signer = signer;
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, windowMs));
+        this.maxLeaves = Math.max(1, maxLeaves);
+        this.batchSizes = DistributionSummary.builder("aderapos.invoice.merkle.batch.size")
+                .description("Invoices covered by one Merkle root signature")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds the hash to the current batch and waits until the batch root is signed.
+     */
+    public BatchSignature sign(String invoiceHash) {
+        Pending pending = new Pending(invoiceHash, new CompletableFuture<>());
+        if (running) {
+            queue.add(pending);
+            if (!running && queue.remove(pending)) {
+                // Stopped while queueing and the flusher already left
+                signBatch(List.of(pending));
+            }
+        } else {
+            signBatch(List.of(pending));
+        }
+        try {
+            return pending.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the invoice batch signature", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Invoice batch signing failed", e.getCause());
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxLeaves);
+        try {
+            while (running || !queue.isEmpty()) {
+                collect(batch);
+                if (!batch.isEmpty()) {
+                    signBatch(batch);
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Nobody may be left waiting
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            signBatch(batch);
+        }
+    }
+
+    /** Waits for a first hash, then collects more until the window closes or the batch is full. */
+    private void collect(List<Pending> batch) throws InterruptedException {
+        Pending first = queue.poll(windowNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxLeaves) {
+            long remaining = deadline - System.nanoTime();
+            Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void signBatch(List<Pending> batch) {
+        try {
+            List<String> hashes = new ArrayList<>(batch.size());
+            for (Pending pending : batch) {
+                hashes.add(pending.hash());
+            }
+            MerkleTree.Batch tree = MerkleTree.build(hashes);
+            String signature = signer.sign(tree.root());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(new BatchSignature(tree.root(), tree.proofs().get(i), signature));
+            }
+            batchSizes.record(batch.size());
+        } catch (RuntimeException e) {
+            log.error("Signing a batch of {} invoices failed", batch.size(), e);
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = Thread.ofPlatform().name("invoice-merkle").daemon(true).start(this::run);
+        log.info("Merkle-batched invoice signing enabled: window {} ms, up to {} invoices per root",
+                TimeUnit.NANOSECONDS.toMillis(windowNanos), maxLeaves);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread current = flusher;
+        if (current != null) {
+            try {
+                current.join(TimeUnit.NANOSECONDS.toMillis(windowNanos) * 2 + 5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Below the web server's phase, so the flusher outlives every invoice request waiting on a batch
+        return WebServerApplicationContext.START_STOP_LIFECYCLE_PHASE - 1;
+    }
+}
@@ -0,0 +1,113 @@
+package com.adera.aderapos.invoice.crypto;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * SHA-256 Merkle tree over Base64 invoice hashes, so one signature over the root covers a whole batch.
+ * <p>
+ * Leaves and inner nodes are hashed with distinct prefixes ({@code 0x00} and {@code 0x01}, as in RFC 6962)
+ * so an inner node can never pass for a leaf. A node without a sibling is carried up unchanged.
+ * A proof lists the sibling of every level from the leaf up, separated by {@code '.'}; each sibling is
+ * {@code L} or {@code R} (its side) followed by its Base64 hash. A batch of one has an empty proof.
+ */
+public final class MerkleTree {
+
+    private static final byte LEAF = 0;
+    private static final byte NODE = 1;
+    private static final char SEPARATOR = '.';
+
+    /** Root of a batch and the proof of each leaf, in leaf order. */
+    public record Batch(String root, List<String> proofs) {}
+
+    private MerkleTree() {
+    }
+
+    public static Batch build(List<String> leafHashes) {
+        int n = leafHashes.size();
+        if (n == 0) {
+            throw new IllegalArgumentException("Empty Merkle batch");
+        }
+        MessageDigest sha = sha256();
+        byte[][] level = new byte[n][];
+        StringBuilder[] proofs = new StringBuilder[n];
+        int[] positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            level[i] = leaf(sha, leafHashes.get(i));
+            proofs[i] = new StringBuilder();
+            positions[i] = i;
+        }
+        Base64.Encoder base64 = Base64.getEncoder();
+        while (level.length > 1) {
+            for (int i = 0; i < n; i++) {
+                int position = positions[i];
+                int sibling = position ^ 1;
+                if (sibling < level.length) {
+                    if (!proofs[i].isEmpty()) {
+                        proofs[i].append(SEPARATOR);
+                    }
+                    proofs[i].append(sibling > position ? 'R' : 'L').append(base64.encodeToString(level[sibling]));
+                }
+                positions[i] = position >> 1;
+            }
+            byte[][] next = new byte[(level.length + 1) / 2][];
+            for (int j = 0; j < next.length; j++) {
+                int left = 2 * j;
+                next[j] = left + 1 < level.length ? node(sha, level[left], level[left + 1]) : level[left];
+            }
+            level = next;
+        }
+        List<String> result = new ArrayList<>(n);
+        for (StringBuilder proof : proofs) {
+            result.add(proof.toString());
+        }
+        return new Batch(base64.encodeToString(level[0]), result);
+    }
+
+    /**
+     * The root that {@code proof} leads to from {@code leafHash}.
+     *
+     * @throws IllegalArgumentException if the hash or the proof is malformed
+     */
+    public static String rootOf(String leafHash, String proof) {
+        MessageDigest sha = sha256();
+        byte[] current = leaf(sha, leafHash);
+        if (!proof.isEmpty()) {
+            Base64.Decoder base64 = Base64.getDecoder();
+            for (String step : proof.split("\\" + SEPARATOR)) {
+                if (step.length() < 2) {
+                    throw new IllegalArgumentException("Malformed Merkle proof");
+                }
+                byte[] sibling = base64.decode(step.substring(1));
+                current = switch (step.charAt(0)) {
+                    case 'L' -> node(sha, sibling, current);
+                    case 'R' -> node(sha, current, sibling);
+                    default -> throw new IllegalArgumentException("Malformed Merkle proof");
+                };
+            }
+        }
+        return Base64.getEncoder().encodeToString(current);
+    }
+
+    private static byte[] leaf(MessageDigest sha, String hash) {
+        sha.update(LEAF);
+        return sha.digest(Base64.getDecoder().decode(hash));
+    }
+
+    private static byte[] node(MessageDigest sha, byte[] left, byte[] right) {
+        sha.update(NODE);
+        sha.update(left);
+        return sha.digest(right);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.adera.aderapos.invoice.crypto;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.PrivateKeyInfo;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.openssl.PEMKeyPair;
+import org.bouncycastle.openssl.PEMParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Signs invoice hashes with the PEM key pair configured under {@code aderapos.crypto.*}.
+ * <p>
+ * {@code aderapos.crypto.algorithm} names the key type (RSA, EC or Ed25519) and
+ * {@code aderapos.crypto.signature-algorithm} the scheme (SHA256withRSA, SHA256withECDSA or Ed25519).
+ * Ed25519 and ECDSA sign far faster than 2048-bit RSA. Keys may be PKCS#8, PKCS#1/SEC1 or, for the public key,
+ * a certificate. They are loaded once; each thread then keeps its own initialised {@link Signature}, which
+ * resets itself after every signature. {@link #signAll} spreads a batch over {@code aderapos.crypto.sign-threads}.
+ * <p>
+ * Keys are identified by a fingerprint of their public key. Public keys listed in
+ * {@code aderapos.crypto.previous-public-key-paths} only verify, so invoices signed before a rotation stay
+ * verifiable; their scheme follows their key type.
+ */
+@Service
+@Profile("prod")
+public class PemInvoiceSigner implements InvoiceSigner, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PemInvoiceSigner.class);
+
+    /** Smaller batches are signed on the calling thread. */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    /** A public key that verifies with {@code signatureAlgorithm}. */
+    private record VerifyingKey(PublicKey publicKey, String signatureAlgorithm) {}
+
+    private final String signatureAlgorithm;
+    private final PrivateKey privateKey;
+    private final PublicKey publicKey;
+    private final String keyId;
+    /** Current key first, then the retired ones, by key id. */
+    private final Map<String, VerifyingKey> verifyingKeys = new LinkedHashMap<>();
+    private final int threads;
+    private final ExecutorService pool;
+    private final ThreadLocal<Signature> signers;
+    private final ThreadLocal<Signature> verifiers;
+
+    public PemInvoiceSigner(@Value("${aderapos.crypto.private-key-path}") String privateKeyPath,
+                            @Value("${aderapos.crypto.public-key-path}") String publicKeyPath,
+                            @Value("${aderapos.crypto.algorithm:RSA}") String keyAlgorithm,
+                            @Value("${aderapos.crypto.signature-algorithm:SHA256withRSA}") String signatureAlgorithm,
+                            @Value("${aderapos.crypto.sign-threads:0}") int signThreads,
+                            @Value("${aderapos.crypto.previous-public-key-paths:}") List<String> previousPublicKeyPaths) {
+        this.signatureAlgorithm = signatureAlgorithm;
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(keyAlgorithm);
+            this.privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(readPrivateKey(Path.of(privateKeyPath))));
+            this.publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(readPublicKey(Path.of(publicKeyPath))));
+            this.keyId = keyIdOf(publicKey);
+            verifyingKeys.put(keyId, new VerifyingKey(publicKey, signatureAlgorithm));
+            for (String path : previousPublicKeyPaths) {
+                if (!path.isBlank()) {
+                    PublicKey previous = readRetiredKey(Path.of(path.strip()), keyAlgorithm);
+                    verifyingKeys.putIfAbsent(keyIdOf(previous), new VerifyingKey(previous, schemeOf(previous,
+                            keyAlgorithm, signatureAlgorithm)));
+                }
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot load invoice signing keys: " + e.getMessage(), e);
+        }
+        this.signers = ThreadLocal.withInitial(() -> newSignature(true));
+        this.verifiers = ThreadLocal.withInitial(() -> newSignature(false));
+        this.threads = signThreads > 0 ? signThreads : Runtime.getRuntime().availableProcessors();
+        this.pool = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("invoice-sign-", 1).daemon(true).factory());
+
+        // Fail at startup, not on the first sale, when the keys do not belong together
+        if (!verify("self-test", sign("self-test"))) {
+            throw new IllegalStateException("Invoice signing keys are not a pair: " + privateKeyPath + ", " + publicKeyPath);
+        }
+        log.info("Invoice signing with {} ({} key {} from {}), {} batch threads, {} retired key(s)",
+                signatureAlgorithm, keyAlgorithm, keyId, privateKeyPath, threads, verifyingKeys.size() - 1);
+    }
+
+    @Override
+    public String keyId() {
+        return keyId;
+    }
+
+    @Override
+    public String sign(String hash) {
+        Signature signature = signers.get();
+        try {
+            signature.update(hash.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            signers.remove();
+            throw new IllegalStateException("Invoice signing failed", e);
+        }
+    }
+
+    @Override
+    public boolean verify(String hash, String signature) {
+        if (hash == null || signature == null) {
+            return false;
+        }
+        Signature verifier = verifiers.get();
+        try {
+            verifier.update(hash.getBytes(StandardCharsets.US_ASCII));
+            return verifier.verify(Base64.getDecoder().decode(signature));
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            verifiers.remove();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean verify(String hash, String signature, String keyId) {
+        if (keyId == null) {
+            return verifyingKeys.keySet().stream().anyMatch(id -> verify(hash, signature, id));
+        }
+        if (keyId.equals(this.keyId)) {
+            return verify(hash, signature);
+        }
+        VerifyingKey retired = verifyingKeys.get(keyId);
+        if (retired == null || hash == null || signature == null) {
+            return false;
+        }
+        // Retired keys only check old invoices, so they get a fresh verifier each time
+        try {
+            Signature verifier = Signature.getInstance(retired.signatureAlgorithm());
+            verifier.initVerify(retired.publicKey());
+            verifier.update(hash.getBytes(StandardCharsets.US_ASCII));
+            return verifier.verify(Base64.getDecoder().decode(signature));
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Signs the batch in one slice per signing thread.
+     */
+    @Override
+    public List<String> signAll(List<String> hashes) {
+        int n = hashes.size();
+        if (n < PARALLEL_THRESHOLD || threads == 1) {
+            return InvoiceSigner.super.signAll(hashes);
+        }
+        String[] signatures = new String[n];
+        int slice = (n + threads - 1) / threads;
+        List<Future<?>> slices = new ArrayList<>(threads);
+        for (int from = 0; from < n; from += slice) {
+            int start = from;
+            int end = Math.min(n, from + slice);
+            slices.add(pool.submit(() -> {
+                for (int i = start; i < end; i++) {
+                    signatures[i] = sign(hashes.get(i));
+                }
+            }));
+        }
+        try {
+            for (Future<?> f : slices) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            slices.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch signing interrupted", e);
+        } catch (ExecutionException e) {
+            slices.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Batch signing failed", e.getCause());
+        }
+        return Arrays.asList(signatures);
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private Signature newSignature(boolean signing) {
+        try {
+            Signature signature = Signature.getInstance(signatureAlgorithm);
+            if (signing) {
+                signature.initSign(privateKey);
+            } else {
+                signature.initVerify(publicKey);
+            }
+            return signature;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise " + signatureAlgorithm, e);
+        }
+    }
+
+    /** Hex of the first 8 bytes of the SHA-256 of the public key's X.509 encoding. */
+    private static String keyIdOf(PublicKey key) throws GeneralSecurityException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getEncoded());
+        return HexFormat.of().formatHex(digest, 0, 8);
+    }
+
+    /** A retired public key, of whatever type its PEM says. */
+    private static PublicKey readRetiredKey(Path path, String keyAlgorithm) throws IOException, GeneralSecurityException {
+        byte[] encoded = readPublicKey(path);
+        return KeyFactory.getInstance(keyAlgorithmOf(encoded, keyAlgorithm)).generatePublic(new X509EncodedKeySpec(encoded));
+    }
+
+    private static String keyAlgorithmOf(byte[] encoded, String fallback) {
+        ASN1ObjectIdentifier type = SubjectPublicKeyInfo.getInstance(encoded).getAlgorithm().getAlgorithm();
+        if (type.equals(PKCSObjectIdentifiers.rsaEncryption)) {
+            return "RSA";
+        }
+        if (type.equals(X9ObjectIdentifiers.id_ecPublicKey)) {
+            return "EC";
+        }
+        if (type.equals(EdECObjectIdentifiers.id_Ed25519)) {
+            return "Ed25519";
+        }
+        return fallback;
+    }
+
+    /** The configured scheme for keys of the current type, else the default scheme of the key's type. */
+    private static String schemeOf(PublicKey key, String keyAlgorithm, String signatureAlgorithm) {
+        String type = key.getAlgorithm();
+        if (type.equalsIgnoreCase(keyAlgorithm)) {
+            return signatureAlgorithm;
+        }
+        return switch (type) {
+            case "RSA" -> "SHA256withRSA";
+            case "EC" -> "SHA256withECDSA";
+            default -> "Ed25519";
+        };
+    }
+
+    /** PKCS#8 encoding of the private key in a PEM file. */
+    private static byte[] readPrivateKey(Path path) throws IOException {
+        Object pem = readPem(path);
+        if (pem instanceof PrivateKeyInfo info) {
+            return info.getEncoded();
+        }
+        if (pem instanceof PEMKeyPair pair) {
+            return pair.getPrivateKeyInfo().getEncoded();
+        }
+        throw new IOException("No unencrypted private key in " + path);
+    }
+
+    /** X.509 SubjectPublicKeyInfo encoding of the public key or certificate in a PEM file. */
+    private static byte[] readPublicKey(Path path) throws IOException {
+        Object pem = readPem(path);
+        if (pem instanceof SubjectPublicKeyInfo info) {
+            return info.getEncoded();
+        }
+        if (pem instanceof X509CertificateHolder certificate) {
+            return certificate.getSubjectPublicKeyInfo().getEncoded();
+        }
+        if (pem instanceof PEMKeyPair pair) {
+            return pair.getPublicKeyInfo().getEncoded();
+        }
+        throw new IOException("No public key in " + path);
+    }
+
+    private static Object readPem(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII);
+             PEMParser parser = new PEMParser(reader)) {
+            Object pem = parser.readObject();
+            if (pem == null) {
+                throw new IOException("No PEM object in " + path);
+            }
+            return pem;
+        }
+    }
+}
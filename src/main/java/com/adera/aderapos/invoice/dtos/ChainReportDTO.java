@@ -0,0 +1,22 @@
+package com.adera.aderapos.invoice.dtos;
+
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Outcome of walking a shop's invoice hash chain. When the chain is broken, {@code brokenAt} is the first
+ * invoice that does not fit and {@code reason} says why.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChainReportDTO {
+    private UUID shopId;
+    private boolean intact;
+    private long checked;
+    private String brokenAt;
+    private String reason;
+    private long elapsedMs;
+}
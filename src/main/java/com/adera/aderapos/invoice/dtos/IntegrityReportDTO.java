@@ -0,0 +1,24 @@
+package com.adera.aderapos.invoice.dtos;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of rehashing stored invoices. Only the first mismatches are listed in {@code mismatchedInvoices};
+ * {@code mismatched} always holds the full count.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IntegrityReportDTO {
+    private long checked;
+    private long mismatched;
+    /** Invoices without a stored canonical form or hash. */
+    private long unverifiable;
+    private long elapsedMs;
+    @Builder.Default
+    private List<String> mismatchedInvoices = new ArrayList<>();
+}
@@ -0,0 +1,17 @@
+package com.adera.aderapos.invoice.dtos;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An invoice's link in its shop's hash chain, loaded without the rest of the entity.
+ */
+public record InvoiceChainView(
+        UUID id,
+        String invoiceNumber,
+        Instant issuedAt,
+        String previousHash,
+        String invoiceHash,
+        String canonicalJson
+) {
+}
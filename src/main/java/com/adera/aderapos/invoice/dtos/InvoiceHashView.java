@@ -0,0 +1,14 @@
+package com.adera.aderapos.invoice.dtos;
+
+import java.util.UUID;
+
+/**
+ * The stored canonical form and hash of an invoice, loaded without the rest of the entity.
+ */
+public record InvoiceHashView(
+        UUID id,
+        String invoiceNumber,
+        String canonicalJson,
+        String invoiceHash
+) {
+}
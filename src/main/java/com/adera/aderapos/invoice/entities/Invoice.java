@@ -5,6 +5,7 @@ import com.adera.aderapos.invoice.entities.enums.InvoiceStatus;
 import com.adera.aderapos.invoice.entities.enums.InvoiceType;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -16,7 +17,10 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "invoice", indexes = {
-        @Index(columnList = "invoiceNumber", unique = true)
+        @Index(columnList = "invoiceNumber", unique = true),
+        @Index(name = "idx_invoice_shop_issued", columnList = "shop_id,issuedAt"),
+        @Index(name = "idx_invoice_sale", columnList = "saleId"),
+        @Index(name = "idx_invoice_issued", columnList = "issuedAt")
 })
 @Getter
 @NoArgsConstructor
@@ -26,7 +30,7 @@ import java.util.UUID;
 public class Invoice {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     private UUID id;
 
     @Column(nullable = false, updatable = false)
@@ -68,9 +72,25 @@ public class Invoice {
     @Column(columnDefinition = "TEXT", updatable = false)
     private String signature;
 
+    /** {@code InvoiceSigner.keyId()} of the key that made {@code signature}; null on invoices signed before it was stored. */
+    @Column(updatable = false)
+    private String signingKeyId;
+
     @Column(columnDefinition = "TEXT", updatable = false)
     private String invoiceHash;
 
+    /** {@code invoiceHash} of the shop's previous invoice; null for the first invoice of a chain. */
+    @Column(columnDefinition = "TEXT", updatable = false)
+    private String previousHash;
+
+    /** Root of the Merkle batch whose signature covers this invoice; null when the invoice was signed on its own. */
+    @Column(columnDefinition = "TEXT", updatable = false)
+    private String merkleRoot;
+
+    /** Inclusion proof of {@code invoiceHash} under {@code merkleRoot}, see {@code MerkleTree}. */
+    @Column(columnDefinition = "TEXT", updatable = false)
+    private String merkleProof;
+
     @Column(columnDefinition = "TEXT")
     private String qrPayload;
 
@@ -0,0 +1,43 @@
+package com.adera.aderapos.invoice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Per-shop, per-day invoice number counter.
+ * {@code nextValue} is the first number not yet handed out to any node; nodes reserve
+ * numbers from it in blocks (see {@code JdbcInvoiceSequenceAllocator}).
+ */
+@Entity
+@Table(name = "invoice_sequence")
+@IdClass(InvoiceSequence.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InvoiceSequence {
+
+    @Id
+    @Column(nullable = false)
+    private UUID shopId;
+
+    @Id
+    @Column(nullable = false)
+    private LocalDate businessDay;
+
+    @Column(nullable = false)
+    private Long nextValue;
+
+    /** Composite primary key of {@link InvoiceSequence}. */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID shopId;
+        private LocalDate businessDay;
+    }
+}
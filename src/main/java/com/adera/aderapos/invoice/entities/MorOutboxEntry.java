@@ -0,0 +1,66 @@
+package com.adera.aderapos.invoice.entities;
+
+import com.adera.aderapos.invoice.entities.enums.MorOutboxStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A signed invoice waiting to be submitted to the Ministry of Revenue.
+ * Written in the same transaction as the invoice, so a committed invoice is never lost from the queue.
+ */
+@Entity
+@Table(name = "mor_outbox", indexes = {
+        @Index(name = "idx_mor_outbox_due", columnList = "status,nextAttemptAt")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_mor_outbox_invoice", columnNames = {"invoiceId"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MorOutboxEntry {
+
+    @Id
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID invoiceId;
+
+    /** JSON document submitted to the MoR. */
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private MorOutboxStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    /** Next attempt while PENDING; lease expiry while SENDING. */
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(updatable = false)
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = Instant.now();
+    }
+}
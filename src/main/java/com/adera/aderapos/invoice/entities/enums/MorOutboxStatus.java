@@ -0,0 +1,15 @@
+package com.adera.aderapos.invoice.entities.enums;
+
+/**
+ * Delivery state of an invoice in the Ministry-of-Revenue outbox.
+ */
+public enum MorOutboxStatus {
+    /** Waiting for its next attempt. */
+    PENDING,
+    /** Claimed by a worker; reclaimed if the lease runs out before a result is recorded. */
+    SENDING,
+    /** The MoR returned a final answer for the invoice. */
+    DELIVERED,
+    /** Gave up after the maximum number of attempts. */
+    DEAD
+}
@@ -0,0 +1,25 @@
+package com.adera.aderapos.invoice.jobs;
+
+import com.adera.aderapos.invoice.services.MorSubmissionWorker;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * Sends MoR outbox entries that are due: retries whose backoff has run out and claims
+ * whose lease expired on a node that died. Runs on one node of the cluster at a time.
+ */
+@DisallowConcurrentExecution
+public class MorRetryJob extends QuartzJobBean {
+
+    private final MorSubmissionWorker worker;
+
+    public MorRetryJob(MorSubmissionWorker worker) {
+        this.worker = worker;
+    }
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) {
+        worker.drain();
+    }
+}
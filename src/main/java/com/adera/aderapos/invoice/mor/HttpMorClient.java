@@ -0,0 +1,122 @@
+package com.adera.aderapos.invoice.mor;
+
+import com.adera.aderapos.invoice.entities.MorOutboxEntry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * {@link MorClient} over HTTP: {@code POST {api-url}/invoices/batch} with a JSON array of payloads,
+ * answered by an array of {@code {invoiceId, status, message}} where status is RECEIVED, ACCEPTED or REJECTED.
+ * An error response carrying that array is taken as the answer, so only invoices the MoR names are rejected.
+ * A batch refused as a whole with 400, 413 or 422 is split in half and each half sent again, narrowing the refusal
+ * down to the invoices that cause it. Any other error, including 401, 403 and 404, says nothing about the
+ * invoices and is thrown as {@link MorUnavailableException}: the entries are retried and eventually given up
+ * without changing their invoices' status.
+ */
+@Component
+public class HttpMorClient implements MorClient {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final RestTemplate restTemplate;
+    private final String batchUrl;
+
+    public HttpMorClient(@Value("${aderapos.mor.api-url}") String apiUrl,
+                         @Value("${aderapos.mor.connect-timeout-ms:5000}") long connectTimeoutMs,
+                         @Value("${aderapos.mor.read-timeout-ms:15000}") long readTimeoutMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofMillis(connectTimeoutMs));
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.batchUrl = apiUrl.replaceAll("/+$", "") + "/invoices/batch";
+    }
+
+    private static final Set<Integer> SPLITTABLE = Set.of(400, 413, 422);
+
+    @Override
+    public List<MorResult> submit(List<MorOutboxEntry> batch) {
+        // Payloads are stored as JSON already; splice them into an array without re-parsing
+        String body = batch.stream().map(MorOutboxEntry::getPayload).collect(Collectors.joining(",", "[", "]"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        String response;
+        try {
+            response = restTemplate.postForObject(batchUrl, new HttpEntity<>(body, headers), String.class);
+        } catch (HttpStatusCodeException e) {
+            int status = e.getStatusCode().value();
+            if (e.getStatusCode().is5xxServerError() || status == 429) {
+                throw new MorUnavailableException("MoR answered " + status, e);
+            }
+            List<MorResult> answered = parseQuietly(e.getResponseBodyAsString());
+            if (!answered.isEmpty()) {
+                return answered;
+            }
+            if (SPLITTABLE.contains(status) && batch.size() > 1) {
+                int half = batch.size() / 2;
+                List<MorResult> results = new ArrayList<>(submit(batch.subList(0, half)));
+                results.addAll(submit(batch.subList(half, batch.size())));
+                return results;
+            }
+            throw new MorUnavailableException("MoR refused " + batch.size() + " invoice(s) with " + status, e);
+        } catch (ResourceAccessException e) {
+            throw new MorUnavailableException("MoR unreachable: " + e.getMessage(), e);
+        }
+        return parse(response);
+    }
+
+    /**
+     * Per-invoice results in an error response, or none when it carries something else.
+     */
+    private List<MorResult> parseQuietly(String response) {
+        try {
+            return parse(response);
+        } catch (MorUnavailableException e) {
+            return List.of();
+        }
+    }
+
+    private List<MorResult> parse(String response) {
+        List<MorResult> results = new ArrayList<>();
+        if (response == null || response.isBlank()) {
+            return results;
+        }
+        JsonNode root;
+        try {
+            root = mapper.readTree(response);
+        } catch (JsonProcessingException e) {
+            throw new MorUnavailableException("Unreadable MoR response", e);
+        }
+        if (!root.isArray()) {
+            throw new MorUnavailableException("Unexpected MoR response");
+        }
+        for (JsonNode node : root) {
+            JsonNode message = node.get("message");
+            try {
+                results.add(new MorResult(
+                        UUID.fromString(node.path("invoiceId").asText()),
+                        MorResult.Outcome.valueOf(node.path("status").asText()),
+                        message != null && !message.isNull() ? message.asText() : null));
+            } catch (IllegalArgumentException e) {
+                // Unknown entries are skipped; their invoices are retried
+            }
+        }
+        return results;
+    }
+}
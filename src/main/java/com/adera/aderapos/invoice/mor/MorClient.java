@@ -0,0 +1,20 @@
+package com.adera.aderapos.invoice.mor;
+
+import com.adera.aderapos.invoice.entities.MorOutboxEntry;
+
+import java.util.List;
+
+/**
+ * Submits signed invoices to the Ministry of Revenue.
+ */
+public interface MorClient {
+
+    /**
+     * Submits a batch of outbox payloads in one request. The MoR deduplicates by invoice id,
+     * so resubmitting an invoice after a lost response is harmless.
+     *
+     * @return a result for each invoice the MoR answered for; invoices missing from the answer should be retried
+     * @throws MorUnavailableException on network errors, 5xx and 429 responses, and errors that name no invoice
+     */
+    List<MorResult> submit(List<MorOutboxEntry> batch);
+}
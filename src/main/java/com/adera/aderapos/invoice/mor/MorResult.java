@@ -0,0 +1,16 @@
+package com.adera.aderapos.invoice.mor;
+
+import java.util.UUID;
+
+/**
+ * The Ministry of Revenue's answer for one submitted invoice.
+ */
+public record MorResult(UUID invoiceId, Outcome outcome, String message) {
+
+    public enum Outcome {
+        /** Taken in for processing; no verdict yet. */
+        RECEIVED,
+        ACCEPTED,
+        REJECTED
+    }
+}
@@ -0,0 +1,13 @@
+package com.adera.aderapos.invoice.mor;
+
+/**
+ * The MoR could not be reached or asked us to back off; the whole batch should be retried later.
+ */
+public class MorUnavailableException extends RuntimeException {
+    public MorUnavailableException(String message) {
+        super(message);
+    }
+    public MorUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,5 +1,8 @@
 package com.adera.aderapos.invoice.qr;
 
+import com.adera.aderapos.invoice.crypto.InvoiceHashService;
+import com.adera.aderapos.invoice.crypto.InvoiceSigner;
+import com.adera.aderapos.invoice.crypto.MerkleTree;
 import com.adera.aderapos.invoice.entities.Invoice;
 import com.adera.aderapos.invoice.repositories.InvoiceRepository;
 import lombok.RequiredArgsConstructor;
@@ -10,12 +13,35 @@ import org.springframework.stereotype.Service;
 public class QrVerifierService {
 
     private final InvoiceRepository invoiceRepository;
+    private final InvoiceHashService hashService;
+    private final InvoiceSigner signer;
 
+    /**
+     * Whether the QR hash is the invoice's hash, the stored canonical form still hashes to it and
+     * the signature covers it, directly or through the invoice's Merkle batch root. The signature is checked
+     * against the key that made it, which may have been rotated out since.
+     */
     public boolean verify(String invoiceNumber, String hashFromQr) {
 
         Invoice invoice = invoiceRepository.findByInvoiceNumber(invoiceNumber)
                 .orElseThrow(() -> new RuntimeException("Invoice not found"));
 
-        return invoice.getInvoiceHash().equals(hashFromQr);
+        String hash = invoice.getInvoiceHash();
+        if (hash == null || !hash.equals(hashFromQr)) {
+            return false;
+        }
+        if (invoice.getCanonicalJson() != null && !hashService.matches(invoice.getCanonicalJson(), hash)) {
+            return false;
+        }
+        if (invoice.getMerkleProof() == null) {
+            return signer.verify(hash, invoice.getSignature(), invoice.getSigningKeyId());
+        }
+        String root;
+        try {
+            root = MerkleTree.rootOf(hash, invoice.getMerkleProof());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return root.equals(invoice.getMerkleRoot()) && signer.verify(root, invoice.getSignature(), invoice.getSigningKeyId());
     }
 }
@@ -1,10 +1,23 @@
 package com.adera.aderapos.invoice.repositories;
 
+import com.adera.aderapos.common.paging.EntityStreams;
+import com.adera.aderapos.invoice.dtos.InvoiceChainView;
+import com.adera.aderapos.invoice.dtos.InvoiceHashView;
 import com.adera.aderapos.invoice.entities.Invoice;
+import com.adera.aderapos.invoice.entities.enums.InvoiceStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Invoice entity.
@@ -14,4 +27,94 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
     Optional<Invoice> findBySaleId(UUID saleId);
 
     Optional<Invoice> findByInvoiceNumber(String invoiceNumber);
+
+    /**
+     * Moves an invoice to a new status without loading it.
+     */
+    @Modifying
+    @Query("update Invoice i set i.status = :status, i.updatedAt = :now where i.id = :id")
+    int updateStatus(UUID id, InvoiceStatus status, Instant now);
+
+    /**
+     * Keyset page of all invoices, newest first, strictly after {@code (issuedAt, id)}.
+     */
+    @Query("""
+            select i from Invoice i
+             where i.issuedAt < :issuedAt or (i.issuedAt = :issuedAt and i.id < :id)
+             order by i.issuedAt desc, i.id desc
+            """)
+    List<Invoice> findPage(Instant issuedAt, UUID id, Limit limit);
+
+    /**
+     * Keyset page of a shop's invoices, newest first, strictly after {@code (issuedAt, id)}.
+     */
+    @Query("""
+            select i from Invoice i
+             where i.shop.id = :shopId
+               and (i.issuedAt < :issuedAt or (i.issuedAt = :issuedAt and i.id < :id))
+             order by i.issuedAt desc, i.id desc
+            """)
+    List<Invoice> findPageByShop(UUID shopId, Instant issuedAt, UUID id, Limit limit);
+
+    /**
+     * Keyset page of the invoices for sales made by a user, newest first, strictly after {@code (issuedAt, id)}.
+     */
+    @Query("""
+            select i from Invoice i
+              join Sale s on s.id = i.saleId
+             where s.user.id = :userId
+               and (i.issuedAt < :issuedAt or (i.issuedAt = :issuedAt and i.id < :id))
+             order by i.issuedAt desc, i.id desc
+            """)
+    List<Invoice> findPageByUser(UUID userId, Instant issuedAt, UUID id, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EntityStreams.FETCH_SIZE))
+    @Query("select i from Invoice i order by i.issuedAt desc, i.id desc")
+    Stream<Invoice> streamAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EntityStreams.FETCH_SIZE))
+    @Query("select i from Invoice i where i.shop.id = :shopId order by i.issuedAt desc, i.id desc")
+    Stream<Invoice> streamByShop(UUID shopId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EntityStreams.FETCH_SIZE))
+    @Query("""
+            select new com.adera.aderapos.invoice.dtos.InvoiceHashView(
+                   i.id, i.invoiceNumber, i.canonicalJson, i.invoiceHash)
+              from Invoice i
+            """)
+    Stream<InvoiceHashView> streamHashes();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EntityStreams.FETCH_SIZE))
+    @Query("""
+            select new com.adera.aderapos.invoice.dtos.InvoiceHashView(
+                   i.id, i.invoiceNumber, i.canonicalJson, i.invoiceHash)
+              from Invoice i
+             where i.shop.id = :shopId
+            """)
+    Stream<InvoiceHashView> streamHashesByShop(UUID shopId);
+
+    /**
+     * A shop's chain in issue order, oldest first.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EntityStreams.FETCH_SIZE))
+    @Query("""
+            select new com.adera.aderapos.invoice.dtos.InvoiceChainView(
+                   i.id, i.invoiceNumber, i.issuedAt, i.previousHash, i.invoiceHash, i.canonicalJson)
+              from Invoice i
+             where i.shop.id = :shopId
+             order by i.issuedAt, i.id
+            """)
+    Stream<InvoiceChainView> streamChain(UUID shopId);
+
+    /**
+     * The newest invoices of a shop, newest first.
+     */
+    @Query("""
+            select new com.adera.aderapos.invoice.dtos.InvoiceChainView(
+                   i.id, i.invoiceNumber, i.issuedAt, i.previousHash, i.invoiceHash, i.canonicalJson)
+              from Invoice i
+             where i.shop.id = :shopId
+             order by i.issuedAt desc, i.id desc
+            """)
+    List<InvoiceChainView> findChainTail(UUID shopId, Limit limit);
 }
@@ -0,0 +1,21 @@
+package com.adera.aderapos.invoice.repositories;
+
+import com.adera.aderapos.invoice.entities.MorOutboxEntry;
+
+import java.util.List;
+
+/**
+ * Set-based operations on the Ministry-of-Revenue outbox.
+ */
+public interface MorOutboxBatchRepository {
+
+    /**
+     * Claims up to {@code limit} due entries in one statement: pending entries whose next attempt is due,
+     * and entries whose previous claim's lease ran out (the worker died mid-send).
+     * Claimed entries move to SENDING with their attempt counted and a lease of {@code leaseMs}.
+     * Rows locked by another worker are skipped, so several nodes can drain at once.
+     *
+     * @return the claimed entries (id, invoice id, payload and attempts populated)
+     */
+    List<MorOutboxEntry> claimDue(int limit, long leaseMs);
+}
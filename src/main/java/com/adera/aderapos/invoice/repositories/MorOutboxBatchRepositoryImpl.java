@@ -0,0 +1,50 @@
+package com.adera.aderapos.invoice.repositories;
+
+import com.adera.aderapos.invoice.entities.MorOutboxEntry;
+import com.adera.aderapos.invoice.entities.enums.MorOutboxStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC implementation of {@link MorOutboxBatchRepository}.
+ * Spring Data picks this up as a fragment of {@link MorOutboxRepository}.
+ */
+@RequiredArgsConstructor
+public class MorOutboxBatchRepositoryImpl implements MorOutboxBatchRepository {
+
+    private static final String CLAIM_SQL = """
+            WITH due AS (
+                SELECT id
+                  FROM mor_outbox
+                 WHERE status IN ('PENDING', 'SENDING')
+                   AND next_attempt_at <= now()
+                 ORDER BY next_attempt_at
+                 LIMIT ?
+                   FOR UPDATE SKIP LOCKED
+            )
+            UPDATE mor_outbox o
+               SET status = 'SENDING',
+                   attempts = o.attempts + 1,
+                   next_attempt_at = now() + ?::double precision * interval '1 millisecond',
+                   updated_at = now()
+              FROM due
+             WHERE o.id = due.id
+            RETURNING o.id, o.invoice_id, o.payload, o.attempts
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<MorOutboxEntry> claimDue(int limit, long leaseMs) {
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> MorOutboxEntry.builder()
+                .id(rs.getObject(1, UUID.class))
+                .invoiceId(rs.getObject(2, UUID.class))
+                .payload(rs.getString(3))
+                .attempts(rs.getInt(4))
+                .status(MorOutboxStatus.SENDING)
+                .build(), limit, leaseMs);
+    }
+}
@@ -0,0 +1,33 @@
+package com.adera.aderapos.invoice.repositories;
+
+import com.adera.aderapos.invoice.entities.MorOutboxEntry;
+import com.adera.aderapos.invoice.entities.enums.MorOutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Repository for the Ministry-of-Revenue outbox.
+ */
+public interface MorOutboxRepository extends JpaRepository<MorOutboxEntry, UUID>, MorOutboxBatchRepository {
+
+    /**
+     * Records the outcome of an attempt. Only applies while the entry is still SENDING,
+     * so a result arriving after the lease was taken over by another worker is ignored.
+     *
+     * @return 1 if recorded
+     */
+    @Modifying
+    @Query("""
+            update MorOutboxEntry e
+               set e.status = :status, e.nextAttemptAt = :nextAttemptAt, e.lastError = :error, e.updatedAt = :now
+             where e.id = :id and e.status = com.adera.aderapos.invoice.entities.enums.MorOutboxStatus.SENDING
+               and e.attempts = :attempts
+            """)
+    int recordAttempt(UUID id, int attempts, MorOutboxStatus status, Instant nextAttemptAt, String error, Instant now);
+
+    long countByStatus(MorOutboxStatus status);
+}
@@ -0,0 +1,78 @@
+package com.adera.aderapos.invoice.services;
+
+import com.adera.aderapos.invoice.dtos.InvoiceChainView;
+import com.adera.aderapos.invoice.entities.Invoice;
+import com.adera.aderapos.invoice.repositories.InvoiceRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Per-shop hash chain over invoices: each invoice's canonical form carries the hash of the shop's previous
+ * invoice, so deleting or reordering an invoice breaks every later link.
+ * <p>
+ * An invoice is only ever chained onto a committed one. Appending locks the shop's row until the transaction
+ * ends and then reads the shop's newest stored invoice, so the next invoice of the shop waits for this one to
+ * commit or roll back; a rolled back invoice leaves nothing behind to link to. Invoices of one shop are therefore
+ * issued one at a time, signing included, while shops never wait for each other. This holds across instances
+ * sharing the database, at the default read-committed isolation. Chained invoices get strictly increasing
+ * {@code issuedAt} values per shop, so issue order is chain order.
+ */
+@Component
+public class InvoiceChain {
+
+    private record Head(String hash, Instant issuedAt) {}
+
+    private final InvoiceRepository invoiceRepository;
+    private final EntityManager entityManager;
+    private final boolean enabled;
+
+    public InvoiceChain(InvoiceRepository invoiceRepository,
+                        EntityManager entityManager,
+                        @Value("${aderapos.invoice.chain.enabled:false}") boolean enabled) {
+        this.invoiceRepository = invoiceRepository;
+        this.entityManager = entityManager;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Links the invoice to its shop's chain; must run in the transaction that stores the invoice, with its shop
+     * loaded in that transaction. Sets {@code previousHash} and {@code issuedAt}, then runs {@code seal}, which
+     * must compute the invoice's canonical form and hash from them.
+     */
+    public void append(Invoice invoice, Runnable seal) {
+        entityManager.lock(invoice.getShop(), LockModeType.PESSIMISTIC_WRITE);
+        Head previous = head(invoice);
+        invoice.setPreviousHash(previous != null ? previous.hash() : null);
+        invoice.setIssuedAt(issuedAfter(previous));
+        seal.run();
+    }
+
+    private Head head(Invoice invoice) {
+        List<InvoiceChainView> tail = invoiceRepository.findChainTail(invoice.getShop().getId(), Limit.of(1));
+        if (tail.isEmpty()) {
+            return null;
+        }
+        InvoiceChainView last = tail.getFirst();
+        return new Head(last.invoiceHash(), last.issuedAt());
+    }
+
+    /** Now, at the database's microsecond precision, but always after the previous invoice. */
+    private static Instant issuedAfter(Head previous) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        if (previous != null && previous.issuedAt() != null && !now.isAfter(previous.issuedAt())) {
+            return previous.issuedAt().plus(1, ChronoUnit.MICROS);
+        }
+        return now;
+    }
+}
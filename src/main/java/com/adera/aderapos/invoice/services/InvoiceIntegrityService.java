@@ -0,0 +1,179 @@
+package com.adera.aderapos.invoice.services;
+
+import com.adera.aderapos.invoice.crypto.CanonicalJsonWriter;
+import com.adera.aderapos.invoice.crypto.InvoiceHashService;
+import com.adera.aderapos.invoice.dtos.ChainReportDTO;
+import com.adera.aderapos.invoice.dtos.IntegrityReportDTO;
+import com.adera.aderapos.invoice.dtos.InvoiceChainView;
+import com.adera.aderapos.invoice.dtos.InvoiceHashView;
+import com.adera.aderapos.invoice.repositories.InvoiceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Integrity audit: rehashes the stored canonical JSON of every invoice and compares it with the stored hash.
+ * <p>
+ * Rows are streamed from a server-side cursor and handed out in chunks of {@code aderapos.invoice.verify-chunk-size}
+ * to {@code aderapos.invoice.verify-threads} hashing threads. At most two chunks per thread are in flight,
+ * so memory stays flat however many invoices there are.
+ * <p>
+ * {@link #verifyChain} walks one shop's hash chain (see {@link InvoiceChain}) in issue order.
+ */
+@Service
+public class InvoiceIntegrityService {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceIntegrityService.class);
+
+    /** Mismatched invoice numbers listed in a report. */
+    private static final int MAX_LISTED = 1000;
+
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceHashService hashService;
+    private final int threads;
+    private final int chunkSize;
+
+    public InvoiceIntegrityService(InvoiceRepository invoiceRepository,
+                                   InvoiceHashService hashService,
+                                   @Value("${aderapos.invoice.verify-threads:4}") int threads,
+                                   @Value("${aderapos.invoice.verify-chunk-size:1000}") int chunkSize) {
+        this.invoiceRepository = invoiceRepository;
+        this.hashService = hashService;
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Verifies all invoices of a shop, or every invoice when {@code shopId} is null.
+     */
+    @Transactional(readOnly = true)
+    public IntegrityReportDTO verify(UUID shopId) {
+        long start = System.nanoTime();
+        IntegrityReportDTO report = new IntegrityReportDTO();
+        Semaphore inFlight = new Semaphore(threads * 2);
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("invoice-verify-", 1).daemon(true).factory());
+             Stream<InvoiceHashView> rows = shopId != null
+                     ? invoiceRepository.streamHashesByShop(shopId)
+                     : invoiceRepository.streamHashes()) {
+            List<InvoiceHashView> chunk = new ArrayList<>(chunkSize);
+            for (Iterator<InvoiceHashView> it = rows.iterator(); it.hasNext(); ) {
+                chunk.add(it.next());
+                if (chunk.size() == chunkSize) {
+                    submit(pool, inFlight, chunk, report);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(pool, inFlight, chunk, report);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Invoice verification interrupted");
+        }
+        // Closing the pool waited for every chunk
+        report.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+        if (report.getMismatched() > 0) {
+            log.warn("Invoice integrity check found {} of {} invoices whose hash no longer matches",
+                    report.getMismatched(), report.getChecked());
+        } else {
+            log.info("Invoice integrity check verified {} invoices in {} ms",
+                    report.getChecked(), report.getElapsedMs());
+        }
+        return report;
+    }
+
+    /**
+     * Walks a shop's invoices in issue order, one row at a time, and stops at the first one that does not fit
+     * the chain: its hash does not match its canonical form, or it does not link to the invoice before it.
+     * Invoices issued before the chain was enabled only have their hash checked.
+     */
+    @Transactional(readOnly = true)
+    public ChainReportDTO verifyChain(UUID shopId) {
+        long start = System.nanoTime();
+        ChainReportDTO report = ChainReportDTO.builder().shopId(shopId).intact(true).build();
+        String previousHash = null;
+        boolean chained = false;
+        try (Stream<InvoiceChainView> rows = invoiceRepository.streamChain(shopId)) {
+            for (Iterator<InvoiceChainView> it = rows.iterator(); it.hasNext(); ) {
+                InvoiceChainView row = it.next();
+                chained |= row.previousHash() != null;
+                String problem = chainProblem(row, previousHash, chained);
+                report.setChecked(report.getChecked() + 1);
+                if (problem != null) {
+                    report.setIntact(false);
+                    report.setBrokenAt(row.invoiceNumber());
+                    report.setReason(problem);
+                    log.warn("Invoice chain of shop {} broken at {}: {}", shopId, row.invoiceNumber(), problem);
+                    break;
+                }
+                previousHash = row.invoiceHash();
+            }
+        }
+        report.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    private String chainProblem(InvoiceChainView row, String previousHash, boolean chained) {
+        if (row.canonicalJson() == null || row.invoiceHash() == null) {
+            return chained ? "missing canonical form or hash" : null;
+        }
+        if (!hashService.matches(row.canonicalJson(), row.invoiceHash())) {
+            return "hash does not match the canonical form";
+        }
+        if (row.previousHash() == null) {
+            return chained ? "chain restarted" : null;
+        }
+        if (!row.previousHash().equals(previousHash)) {
+            return "previous hash does not match the invoice issued before it";
+        }
+        if (!CanonicalJsonWriter.linksTo(row.canonicalJson(), row.previousHash())) {
+            return "canonical form does not carry the previous hash";
+        }
+        return null;
+    }
+
+    private void submit(ExecutorService pool, Semaphore inFlight, List<InvoiceHashView> chunk,
+                        IntegrityReportDTO report) throws InterruptedException {
+        inFlight.acquire();
+        pool.execute(() -> {
+            try {
+                check(chunk, report);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void check(List<InvoiceHashView> chunk, IntegrityReportDTO report) {
+        long unverifiable = 0;
+        List<String> mismatches = new ArrayList<>();
+        for (InvoiceHashView row : chunk) {
+            if (row.canonicalJson() == null || row.invoiceHash() == null) {
+                unverifiable++;
+            } else if (!hashService.matches(row.canonicalJson(), row.invoiceHash())) {
+                mismatches.add(row.invoiceNumber());
+            }
+        }
+        synchronized (report) {
+            report.setChecked(report.getChecked() + chunk.size());
+            report.setUnverifiable(report.getUnverifiable() + unverifiable);
+            report.setMismatched(report.getMismatched() + mismatches.size());
+            List<String> listed = report.getMismatchedInvoices();
+            for (int i = 0; i < mismatches.size() && listed.size() < MAX_LISTED; i++) {
+                listed.add(mismatches.get(i));
+            }
+        }
+    }
+}
@@ -1,18 +1,40 @@
 package com.adera.aderapos.invoice.services;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Service for generating unique invoice numbers.
+ * <p>
+ * Numbers are per shop and per day. Each node reserves them from the database in blocks
+ * and hands them out from memory with a single atomic increment; a new block is only
+ * fetched when the current one runs out. Unused numbers of a block are lost on restart,
+ * so sequences may have gaps but never repeat, across restarts and across nodes.
+ * Days follow {@code aderapos.reporting.time-zone}, like the sales reports.
  */
 @Service
 public class InvoiceNumberService {
 
-    private final AtomicLong sequence = new AtomicLong(1);
+    private final InvoiceSequenceAllocator allocator;
+    private final int blockSize;
+    private final ZoneId zone;
+    private final Map<SequenceKey, AtomicReference<Block>> blocks = new ConcurrentHashMap<>();
+
+    public InvoiceNumberService(InvoiceSequenceAllocator allocator,
+                                @Value("${aderapos.invoice.number-block-size:100}") int blockSize,
+                                @Value("${aderapos.reporting.time-zone:Africa/Addis_Ababa}") String zone) {
+        this.allocator = allocator;
+        this.blockSize = blockSize;
+        this.zone = ZoneId.of(zone);
+    }
 
     /**
      * Generates the next unique invoice number for a given shop.
@@ -21,6 +43,59 @@ public class InvoiceNumberService {
      * @return the generated invoice number
      */
     public String nextInvoiceNumber(UUID shopId) {
-        return "INV-" + shopId + "-" + LocalDate.now() + "-" + sequence.getAndIncrement();
+        LocalDate day = LocalDate.now(zone);
+        return "INV-" + shopId + "-" + day + "-" + nextValue(shopId, day);
+    }
+
+    /**
+     * Returns the next sequence value for a shop and day.
+     *
+     * @param shopId the ID of the shop
+     * @param day    the business day
+     * @return a value never returned before for this shop and day
+     */
+    long nextValue(UUID shopId, LocalDate day) {
+        SequenceKey key = new SequenceKey(shopId, day);
+        AtomicReference<Block> ref = blocks.get(key);
+        if (ref == null) {
+            ref = blocks.computeIfAbsent(key, k -> new AtomicReference<>(Block.EMPTY));
+            // A new day started for this shop: yesterday's blocks are no longer needed.
+            // Done outside computeIfAbsent, which must not modify the map itself.
+            blocks.keySet().removeIf(old -> old.shopId().equals(shopId) && old.day().isBefore(day));
+        }
+        while (true) {
+            Block current = ref.get();
+            long value = current.next();
+            if (value >= 0) {
+                return value;
+            }
+            // Exhausted: fetch a fresh block. If another thread installed one first,
+            // ours is dropped (a gap), and we retry on theirs.
+            long first = allocator.reserveBlock(shopId, day, blockSize);
+            ref.compareAndSet(current, new Block(first, first + blockSize));
+        }
+    }
+
+    private record SequenceKey(UUID shopId, LocalDate day) {}
+
+    /** A reserved range {@code [next, limit)} served lock-free. */
+    private static final class Block {
+        static final Block EMPTY = new Block(0, 0);
+
+        private final AtomicLong next;
+        private final long limit;
+
+        Block(long first, long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
+        }
+
+        long next() {
+            if (next.get() >= limit) {
+                return -1;
+            }
+            long value = next.getAndIncrement();
+            return value < limit ? value : -1;
+        }
     }
 }
@@ -0,0 +1,20 @@
+package com.adera.aderapos.invoice.services;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Source of invoice number blocks shared by all application nodes.
+ */
+public interface InvoiceSequenceAllocator {
+    /**
+     * Atomically reserves {@code blockSize} consecutive numbers for a shop and day.
+     * No two calls, on any node, may ever return overlapping blocks.
+     *
+     * @param shopId    the ID of the shop
+     * @param day       the business day
+     * @param blockSize how many numbers to reserve
+     * @return the first number of the reserved block
+     */
+    long reserveBlock(UUID shopId, LocalDate day, int blockSize);
+}
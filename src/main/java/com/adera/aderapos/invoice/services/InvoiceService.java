@@ -5,6 +5,7 @@ import com.adera.aderapos.identity.repositories.ShopRepository;
 import com.adera.aderapos.invoice.crypto.CanonicalJsonWriter;
 import com.adera.aderapos.invoice.crypto.InvoiceHashService;
 import com.adera.aderapos.invoice.crypto.InvoiceSigner;
+import com.adera.aderapos.invoice.crypto.MerkleBatchSigner;
 import com.adera.aderapos.invoice.entities.*;
 import com.adera.aderapos.invoice.entities.enums.*;
 import com.adera.aderapos.invoice.qr.QrGenerator;
@@ -20,19 +21,30 @@ import com.adera.aderapos.audit.entities.enums.AuditEntityType;
 import com.adera.aderapos.audit.entities.enums.AuditSeverity;
 import com.adera.aderapos.invoice.dtos.InvoiceDTO;
 import com.adera.aderapos.invoice.mapper.InvoiceMapper;
+import com.adera.aderapos.common.paging.Cursor;
+import com.adera.aderapos.common.paging.CursorPage;
+import com.adera.aderapos.common.paging.EntityStreams;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class InvoiceService {
 
+    /** VAT charged on the net amount of every sale. */
+    public static final BigDecimal VAT_RATE = new BigDecimal("0.15");
+
     private final SaleRepository saleRepository;
     private final ShopRepository shopRepository;
     private final InvoiceRepository invoiceRepository;
@@ -40,11 +52,15 @@ public class InvoiceService {
     private final CanonicalJsonWriter canonicalWriter;
     private final InvoiceHashService hashService;
     private final InvoiceSigner signer;
+    private final MerkleBatchSigner batchSigner;
     private final ProductRepository productRepository;
     private final QrPayloadBuilder qrPayloadBuilder;
     private final QrGenerator qrGenerator;
     private final AuditService auditService;
     private final InvoiceMapper invoiceMapper;
+    private final EntityManager entityManager;
+    private final MorSubmissionService morSubmissionService;
+    private final InvoiceChain invoiceChain;
 
     @Transactional
     public Invoice createInvoice(UUID saleId, UUID shopId) {
@@ -55,7 +71,7 @@ public class InvoiceService {
         Shop shop = shopRepository.findById(shopId)
                 .orElseThrow(() -> new RuntimeException("Shop not found"));
 
-        BigDecimal vat = sale.getTotalAmount().multiply(new BigDecimal("0.15"));
+        BigDecimal vat = sale.getTotalAmount().multiply(VAT_RATE);
         BigDecimal surtax = sale.getTotalAmount().multiply(new BigDecimal("0.01"));
         BigDecimal gross = sale.getTotalAmount().add(vat).add(surtax);
 
@@ -83,13 +99,21 @@ public class InvoiceService {
                         .build())
                 .toList();
 
-        String canonical = canonicalWriter.write(invoice, lines);
-        String hash = hashService.hash(canonical);
-        String signature = signer.sign(hash);
-
-        invoice.setCanonicalJson(canonical);
-        invoice.setInvoiceHash(hash);
-        invoice.setSignature(signature);
+        if (invoiceChain.isEnabled()) {
+            invoiceChain.append(invoice, () -> seal(invoice, lines));
+        } else {
+            seal(invoice, lines);
+        }
+        String hash = invoice.getInvoiceHash();
+        if (batchSigner.isEnabled()) {
+            MerkleBatchSigner.BatchSignature batch = batchSigner.sign(hash);
+            invoice.setSignature(batch.signature());
+            invoice.setMerkleRoot(batch.root());
+            invoice.setMerkleProof(batch.proof());
+        } else {
+            invoice.setSignature(signer.sign(hash));
+        }
+        invoice.setSigningKeyId(signer.keyId());
         invoice.markStatus(InvoiceStatus.SIGNED);
         invoice.setLines(lines);
 
@@ -98,6 +122,7 @@ public class InvoiceService {
 
         invoice.setQrPayload(qrJson);
         invoiceRepository.save(invoice);
+        morSubmissionService.enqueue(invoice);
         auditService.log(
             AuditAction.CREATE,
             AuditEntityType.INVOICE,
@@ -110,6 +135,13 @@ public class InvoiceService {
         return invoice;
     }
 
+    /** Stores the canonical form of the invoice and its hash. */
+    private void seal(Invoice invoice, List<InvoiceLine> lines) {
+        ByteBuffer canonical = canonicalWriter.encode(invoice, lines);
+        invoice.setCanonicalJson(CanonicalJsonWriter.asString(canonical));
+        invoice.setInvoiceHash(hashService.hash(canonical));
+    }
+
     public Invoice getInvoiceById(UUID id) {
         return invoiceRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Invoice not found"));
@@ -125,22 +157,59 @@ public class InvoiceService {
                 .orElseThrow(() -> new RuntimeException("Invoice not found for number"));
     }
 
-    public List<Invoice> getAllInvoices() {
-        return invoiceRepository.findAll();
+    /**
+     * All invoices, newest first.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the page size
+     */
+    public CursorPage<Invoice> getAllInvoices(String cursor, int limit) {
+        Cursor after = Cursor.decode(cursor);
+        List<Invoice> invoices = invoiceRepository.findPage(after.at(), after.id(), Limit.of(limit + 1));
+        return CursorPage.of(invoices, limit, InvoiceService::cursorOf);
+    }
+
+    /**
+     * Streams invoices from a database cursor, keeping only a bounded number of entities in memory.
+     *
+     * @param shopId the ID of the shop, or null for all invoices
+     * @param sink   receives each invoice DTO
+     */
+    @Transactional(readOnly = true)
+    public void streamInvoices(UUID shopId, Consumer<InvoiceDTO> sink) {
+        Stream<Invoice> invoices = shopId != null
+                ? invoiceRepository.streamByShop(shopId)
+                : invoiceRepository.streamAll();
+        EntityStreams.forEach(invoices, entityManager, invoice -> sink.accept(invoiceMapper.toDto(invoice)));
+    }
+
+    /**
+     * Invoices for sales made by a user, newest first.
+     *
+     * @param userId the ID of the user
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the page size
+     */
+    public CursorPage<InvoiceDTO> getInvoicesByUserId(UUID userId, String cursor, int limit) {
+        Cursor after = Cursor.decode(cursor);
+        List<Invoice> invoices = invoiceRepository.findPageByUser(userId, after.at(), after.id(), Limit.of(limit + 1));
+        return CursorPage.of(invoices, limit, InvoiceService::cursorOf).map(invoiceMapper::toDto);
     }
 
-    public List<InvoiceDTO> getInvoicesByUserId(UUID userId) {
-        List<Sale> sales = saleRepository.findByUserId(userId);
-        List<UUID> saleIds = sales.stream().map(Sale::getId).toList();
-        List<Invoice> invoices = invoiceRepository.findAll().stream()
-            .filter(inv -> saleIds.contains(inv.getSaleId()))
-            .toList();
-        return invoices.stream().map(invoiceMapper::toDto).toList();
+    /**
+     * Invoices of a shop, newest first.
+     *
+     * @param shopId the ID of the shop
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the page size
+     */
+    public CursorPage<Invoice> getInvoicesByShop(UUID shopId, String cursor, int limit) {
+        Cursor after = Cursor.decode(cursor);
+        List<Invoice> invoices = invoiceRepository.findPageByShop(shopId, after.at(), after.id(), Limit.of(limit + 1));
+        return CursorPage.of(invoices, limit, InvoiceService::cursorOf);
     }
 
-    public List<Invoice> getInvoicesByShop(UUID shopId) {
-        return invoiceRepository.findAll().stream()
-            .filter(inv -> inv.getShop() != null && shopId.equals(inv.getShop().getId()))
-            .toList();
+    private static Cursor cursorOf(Invoice invoice) {
+        return new Cursor(invoice.getIssuedAt(), invoice.getId());
     }
 }
@@ -0,0 +1,46 @@
+package com.adera.aderapos.invoice.services;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Reserves invoice number blocks with a single upsert on {@code invoice_sequence}.
+ * Each reservation commits in its own transaction, so a rolled back invoice never
+ * returns its block to the pool (numbers are gap-tolerant, never reused).
+ */
+@Component
+public class JdbcInvoiceSequenceAllocator implements InvoiceSequenceAllocator {
+
+    private static final String RESERVE_SQL = """
+            INSERT INTO invoice_sequence (shop_id, business_day, next_value)
+            VALUES (?, ?, 1 + ?)
+            ON CONFLICT (shop_id, business_day)
+            DO UPDATE SET next_value = invoice_sequence.next_value + ?
+            RETURNING next_value
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+
+    public JdbcInvoiceSequenceAllocator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public long reserveBlock(UUID shopId, LocalDate day, int blockSize) {
+        Long next = requiresNew.execute(status ->
+                jdbcTemplate.queryForObject(RESERVE_SQL, Long.class, shopId, day, blockSize, blockSize));
+        if (next == null) {
+            throw new IllegalStateException("Invoice sequence upsert returned no row");
+        }
+        return next - blockSize;
+    }
+}
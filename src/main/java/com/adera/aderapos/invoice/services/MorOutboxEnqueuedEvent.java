@@ -0,0 +1,8 @@
+package com.adera.aderapos.invoice.services;
+
+import java.util.UUID;
+
+/**
+ * Published when a signed invoice is queued for the MoR; listeners see it after the transaction commits.
+ */
+public record MorOutboxEnqueuedEvent(UUID invoiceId) {}
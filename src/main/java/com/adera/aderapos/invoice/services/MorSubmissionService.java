@@ -0,0 +1,119 @@
+package com.adera.aderapos.invoice.services;
+
+import com.adera.aderapos.audit.entities.enums.AuditAction;
+import com.adera.aderapos.audit.entities.enums.AuditEntityType;
+import com.adera.aderapos.audit.entities.enums.AuditSeverity;
+import com.adera.aderapos.audit.services.AuditService;
+import com.adera.aderapos.invoice.entities.Invoice;
+import com.adera.aderapos.invoice.entities.MorOutboxEntry;
+import com.adera.aderapos.invoice.entities.enums.InvoiceStatus;
+import com.adera.aderapos.invoice.entities.enums.MorOutboxStatus;
+import com.adera.aderapos.invoice.mor.MorResult;
+import com.adera.aderapos.invoice.repositories.InvoiceRepository;
+import com.adera.aderapos.invoice.repositories.MorOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Outbox side of the Ministry-of-Revenue submission: queues signed invoices and records the outcome
+ * of each attempt, together with the invoice's status transition.
+ */
+@Service
+@RequiredArgsConstructor
+public class MorSubmissionService {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final MorOutboxRepository outboxRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final AuditService auditService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Queues a signed invoice. Must run in the transaction that stores the invoice,
+     * so the invoice and its queue entry commit or roll back together.
+     */
+    @Transactional
+    public void enqueue(Invoice invoice) {
+        ObjectNode payload = mapper.createObjectNode()
+                .put("invoiceId", invoice.getId().toString())
+                .put("invoiceNumber", invoice.getInvoiceNumber())
+                .put("shopId", invoice.getShop().getId().toString())
+                .put("saleId", invoice.getSaleId().toString())
+                .put("issuedAt", invoice.getIssuedAt().toString())
+                .put("invoiceHash", invoice.getInvoiceHash())
+                .put("signature", invoice.getSignature())
+                .put("canonicalJson", invoice.getCanonicalJson());
+        if (invoice.getMerkleProof() != null) {
+            payload.put("merkleRoot", invoice.getMerkleRoot())
+                    .put("merkleProof", invoice.getMerkleProof());
+        }
+        outboxRepository.save(MorOutboxEntry.builder()
+                .invoiceId(invoice.getId())
+                .payload(payload.toString())
+                .status(MorOutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(Instant.now())
+                .build());
+        eventPublisher.publishEvent(new MorOutboxEnqueuedEvent(invoice.getId()));
+    }
+
+    /**
+     * Records the MoR's answer: the entry is delivered and the invoice moves to SUBMITTED, ACCEPTED or REJECTED.
+     */
+    @Transactional
+    public void recordResult(MorOutboxEntry entry, MorResult result) {
+        Instant now = Instant.now();
+        if (outboxRepository.recordAttempt(entry.getId(), entry.getAttempts(), MorOutboxStatus.DELIVERED,
+                now, result.message(), now) == 0) {
+            return;
+        }
+        InvoiceStatus status = switch (result.outcome()) {
+            case RECEIVED -> InvoiceStatus.SUBMITTED;
+            case ACCEPTED -> InvoiceStatus.ACCEPTED;
+            case REJECTED -> InvoiceStatus.REJECTED;
+        };
+        invoiceRepository.updateStatus(entry.getInvoiceId(), status, now);
+        if (status == InvoiceStatus.REJECTED) {
+            auditService.log(
+                AuditAction.SYNC,
+                AuditEntityType.INVOICE,
+                entry.getInvoiceId(),
+                null,
+                AuditService.SYSTEM_ROLE,
+                AuditSeverity.HIGH,
+                "Invoice rejected by MoR: " + result.message()
+            );
+        }
+    }
+
+    /**
+     * Records a failed attempt: the entry is retried at {@code nextAttemptAt}, or given up when that is null.
+     */
+    @Transactional
+    public void recordFailure(MorOutboxEntry entry, String error, Instant nextAttemptAt) {
+        Instant now = Instant.now();
+        if (nextAttemptAt != null) {
+            outboxRepository.recordAttempt(entry.getId(), entry.getAttempts(), MorOutboxStatus.PENDING,
+                    nextAttemptAt, error, now);
+            return;
+        }
+        if (outboxRepository.recordAttempt(entry.getId(), entry.getAttempts(), MorOutboxStatus.DEAD,
+                now, error, now) == 1) {
+            auditService.log(
+                AuditAction.SYNC,
+                AuditEntityType.INVOICE,
+                entry.getInvoiceId(),
+                null,
+                AuditService.SYSTEM_ROLE,
+                AuditSeverity.HIGH,
+                "MoR submission abandoned after " + entry.getAttempts() + " attempts: " + error
+            );
+        }
+    }
+}
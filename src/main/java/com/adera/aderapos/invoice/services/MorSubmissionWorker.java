@@ -0,0 +1,222 @@
+package com.adera.aderapos.invoice.services;
+
+import com.adera.aderapos.invoice.entities.MorOutboxEntry;
+import com.adera.aderapos.invoice.mor.MorClient;
+import com.adera.aderapos.invoice.mor.MorResult;
+import com.adera.aderapos.invoice.mor.MorUnavailableException;
+import com.adera.aderapos.invoice.repositories.MorOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the Ministry-of-Revenue outbox.
+ * <p>
+ * A drain claims due entries, splits them into batches and submits the batches in parallel on a small pool.
+ * Newly queued invoices trigger a drain on this node as soon as their transaction commits; retries and
+ * expired leases are picked up by the clustered {@code MorRetryJob} every {@code aderapos.mor.retry-interval-ms}.
+ * Failed attempts are retried with exponential backoff and jitter, starting at
+ * {@code aderapos.mor.retry-interval-ms}; after {@code aderapos.mor.max-retries} retries the entry is given up.
+ * Claims are leased, so entries held by a node that died mid-send are picked up again once the lease runs out.
+ */
+@Component
+public class MorSubmissionWorker implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(MorSubmissionWorker.class);
+
+    private final MorOutboxRepository outboxRepository;
+    private final MorSubmissionService submissionService;
+    private final MorClient client;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int workerThreads;
+    private final long leaseMs;
+    private final long retryIntervalMs;
+    private final long maxBackoffMs;
+    private final int maxRetries;
+
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    private volatile ExecutorService pool;
+    private volatile ExecutorService kicker;
+    private volatile boolean running;
+
+    public MorSubmissionWorker(MorOutboxRepository outboxRepository,
+                               MorSubmissionService submissionService,
+                               MorClient client,
+                               MeterRegistry meterRegistry,
+                               @Value("${aderapos.mor.enabled:false}") boolean enabled,
+                               @Value("${aderapos.mor.batch-size:50}") int batchSize,
+                               @Value("${aderapos.mor.worker-threads:4}") int workerThreads,
+                               @Value("${aderapos.mor.lease-ms:60000}") long leaseMs,
+                               @Value("${aderapos.mor.retry-interval-ms:15000}") long retryIntervalMs,
+                               @Value("${aderapos.mor.max-backoff-ms:600000}") long maxBackoffMs,
+                               @Value("${aderapos.mor.max-retries:3}") int maxRetries) {
+        this.outboxRepository = outboxRepository;
+        this.submissionService = submissionService;
+        this.client = client;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.workerThreads = workerThreads;
+        this.leaseMs = leaseMs;
+        this.retryIntervalMs = retryIntervalMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Drains in the background once a queued invoice is committed. Requests arriving while a drain is
+     * pending collapse into that drain, so a burst of invoices is sent in batches.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEnqueued(MorOutboxEnqueuedEvent event) {
+        ExecutorService current = kicker;
+        if (running && current != null && drainRequested.compareAndSet(false, true)) {
+            current.execute(() -> {
+                drainRequested.set(false);
+                drain();
+            });
+        }
+    }
+
+    /**
+     * Submits everything that is due, one round of parallel batches at a time.
+     */
+    public void drain() {
+        if (!running) {
+            return;
+        }
+        int perRound = batchSize * workerThreads;
+        List<MorOutboxEntry> claimed;
+        do {
+            claimed = outboxRepository.claimDue(perRound, leaseMs);
+            List<Future<?>> rounds = new ArrayList<>();
+            for (int from = 0; from < claimed.size(); from += batchSize) {
+                List<MorOutboxEntry> batch = claimed.subList(from, Math.min(from + batchSize, claimed.size()));
+                rounds.add(pool.submit(() -> submit(batch)));
+            }
+            for (Future<?> round : rounds) {
+                try {
+                    round.get();
+                } catch (ExecutionException e) {
+                    // The claims stay leased and are retried once the lease runs out
+                    log.error("MoR submission batch failed", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } while (claimed.size() == perRound && running);
+    }
+
+    private void submit(List<MorOutboxEntry> batch) {
+        List<MorResult> results;
+        try {
+            results = client.submit(batch);
+        } catch (MorUnavailableException e) {
+            log.warn("MoR unavailable for {} invoice(s): {}", batch.size(), e.getMessage());
+            batch.forEach(entry -> record(entry, () -> fail(entry, e.getMessage())));
+            return;
+        }
+        Map<UUID, MorResult> byInvoice = results.stream()
+                .collect(Collectors.toMap(MorResult::invoiceId, Function.identity(), (a, b) -> b));
+        for (MorOutboxEntry entry : batch) {
+            MorResult result = byInvoice.get(entry.getInvoiceId());
+            if (result == null) {
+                record(entry, () -> fail(entry, "No result in MoR response"));
+            } else {
+                record(entry, () -> {
+                    submissionService.recordResult(entry, result);
+                    meterRegistry.counter("aderapos.mor.submissions", "result", result.outcome().name()).increment();
+                });
+            }
+        }
+    }
+
+    /**
+     * Records one entry's outcome so that a failure to record it does not cost the rest of the batch theirs.
+     * The failed entry stays leased and is sent again once the lease runs out.
+     */
+    private void record(MorOutboxEntry entry, Runnable recording) {
+        try {
+            recording.run();
+        } catch (RuntimeException e) {
+            log.error("Could not record the MoR outcome of invoice {}", entry.getInvoiceId(), e);
+            meterRegistry.counter("aderapos.mor.submissions", "result", "ERROR").increment();
+        }
+    }
+
+    private void fail(MorOutboxEntry entry, String error) {
+        Instant next = entry.getAttempts() > maxRetries ? null : Instant.now().plusMillis(backoffMillis(entry.getAttempts()));
+        submissionService.recordFailure(entry, error, next);
+        meterRegistry.counter("aderapos.mor.submissions", "result", next != null ? "RETRY" : "DEAD").increment();
+    }
+
+    /**
+     * Exponential backoff with jitter: a random delay between half and all of
+     * {@code retryInterval * 2^(attempt-1)}, capped at {@code max-backoff-ms}, so entries that failed together
+     * do not retry together.
+     */
+    long backoffMillis(int attempt) {
+        long ceiling = retryIntervalMs << Math.min(attempt - 1, 20);
+        ceiling = Math.min(ceiling, maxBackoffMs);
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("MoR submission disabled; invoices are queued but not sent");
+            return;
+        }
+        pool = Executors.newFixedThreadPool(workerThreads,
+                Thread.ofPlatform().name("mor-submit-", 1).daemon(true).factory());
+        kicker = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("mor-drain").daemon(true).factory());
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (kicker != null) {
+            kicker.shutdownNow();
+        }
+        ExecutorService current = pool;
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Below the web server's phase: invoices issued by the last requests still trigger a drain,
+        // and the pool is shut down only after that
+        return WebServerApplicationContext.START_STOP_LIFECYCLE_PHASE - 1;
+    }
+}
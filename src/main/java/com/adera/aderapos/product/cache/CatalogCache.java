@@ -0,0 +1,132 @@
+package com.adera.aderapos.product.cache;
+
+import com.adera.aderapos.product.dtos.ProductDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-shop cache of {@link CatalogSnapshot}s.
+ * <p>
+ * Every shop has a version that is bumped after any transaction changing its products or
+ * stock commits; a snapshot is only served while its version is current. Snapshots are
+ * kept for the most recently used shops only, and expire after a maximum age so writes
+ * made by other instances show up within that bound.
+ */
+@Component
+public class CatalogCache {
+
+    private final int maxShops;
+    private final long maxAgeNanos;
+    // Distinguishes ETags across restarts, since snapshot numbers start over
+    private final String bootEpoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong snapshotSeq = new AtomicLong();
+    private final Map<UUID, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<UUID, CatalogSnapshot> snapshots;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public CatalogCache(MeterRegistry meterRegistry,
+                        @Value("${aderapos.catalog.cache.max-shops:256}") int maxShops,
+                        @Value("${aderapos.catalog.cache.max-age-ms:60000}") long maxAgeMs) {
+        this.maxShops = maxShops;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+        this.hits = Counter.builder("aderapos.catalog.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("aderapos.catalog.cache").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("aderapos.catalog.cache.evictions").register(meterRegistry);
+        this.snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CatalogSnapshot> eldest) {
+                if (size() > CatalogCache.this.maxShops) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("aderapos.catalog.cache.size", this, CatalogCache::size)
+                .description("Shops with a cached catalog snapshot")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the shop's current snapshot, loading it on a miss.
+     *
+     * @param shopId the shop
+     * @param loader loads the shop's full catalog in snapshot order
+     */
+    public CatalogSnapshot get(UUID shopId, Supplier<List<ProductDTO>> loader) {
+        AtomicLong version = versionOf(shopId);
+        long current = version.get();
+        CatalogSnapshot cached;
+        synchronized (snapshots) {
+            cached = snapshots.get(shopId);
+        }
+        if (cached != null && cached.version() == current && System.nanoTime() - cached.loadedAt() < maxAgeNanos) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        CatalogSnapshot loaded = new CatalogSnapshot(current,
+                "W/\"" + bootEpoch + "-" + snapshotSeq.incrementAndGet() + "\"", loader.get(), System.nanoTime());
+        // A write that committed while loading makes this snapshot stale already: serve it once, don't keep it
+        if (version.get() == current) {
+            synchronized (snapshots) {
+                snapshots.put(shopId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Marks the shop's catalog as changed once the current transaction commits
+     * (immediately when there is none), so readers never cache uncommitted state.
+     */
+    public void invalidate(UUID shopId) {
+        if (shopId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(shopId);
+                }
+            });
+        } else {
+            bump(shopId);
+        }
+    }
+
+    private void bump(UUID shopId) {
+        versionOf(shopId).incrementAndGet();
+        synchronized (snapshots) {
+            snapshots.remove(shopId);
+        }
+    }
+
+    private AtomicLong versionOf(UUID shopId) {
+        AtomicLong version = versions.get(shopId);
+        return version != null ? version : versions.computeIfAbsent(shopId, k -> new AtomicLong());
+    }
+
+    private double size() {
+        synchronized (snapshots) {
+            return snapshots.size();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.adera.aderapos.product.cache;
+
+import com.adera.aderapos.common.paging.Cursor;
+import com.adera.aderapos.common.paging.CursorPage;
+import com.adera.aderapos.product.dtos.ProductDTO;
+
+import java.util.List;
+
+/**
+ * Immutable copy of one shop's catalog (products with prices and stock), newest first.
+ *
+ * @param version  the shop's catalog version the snapshot was loaded at
+ * @param etag     weak ETag identifying this snapshot
+ * @param products the products, ordered by {@code (createdAt desc, id desc)}
+ * @param loadedAt {@link System#nanoTime()} when the snapshot was loaded
+ */
+public record CatalogSnapshot(long version, String etag, List<ProductDTO> products, long loadedAt) {
+
+    public CatalogSnapshot {
+        products = List.copyOf(products);
+    }
+
+    /**
+     * Cuts the same keyset page out of the snapshot that the database query would return.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the page size
+     */
+    public CursorPage<ProductDTO> page(String cursor, int limit) {
+        Cursor after = Cursor.decode(cursor);
+        int from = firstAfter(after);
+        int to = Math.min(from + limit, products.size());
+        List<ProductDTO> items = products.subList(from, to);
+        String next = null;
+        if (to < products.size() && !items.isEmpty()) {
+            ProductDTO last = items.get(items.size() - 1);
+            next = new Cursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(items, next);
+    }
+
+    /** Binary search for the first product strictly after the cursor in descending order. */
+    private int firstAfter(Cursor after) {
+        int lo = 0;
+        int hi = products.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareToCursor(products.get(mid), after) < 0) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private static int compareToCursor(ProductDTO product, Cursor cursor) {
+        int byTime = product.getCreatedAt().compareTo(cursor.at());
+        if (byTime != 0) {
+            return byTime;
+        }
+        // Same order as Postgres: uuids compare as unsigned bytes
+        int byHigh = Long.compareUnsigned(product.getId().getMostSignificantBits(),
+                cursor.id().getMostSignificantBits());
+        return byHigh != 0 ? byHigh : Long.compareUnsigned(product.getId().getLeastSignificantBits(),
+                cursor.id().getLeastSignificantBits());
+    }
+}
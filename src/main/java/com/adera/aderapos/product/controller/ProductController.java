@@ -1,13 +1,22 @@
 package com.adera.aderapos.product.controller;
 
+import com.adera.aderapos.common.paging.CursorPage;
+import com.adera.aderapos.common.paging.NdjsonWriter;
+import com.adera.aderapos.product.cache.CatalogSnapshot;
 import com.adera.aderapos.product.dtos.InventoryDTO;
 import com.adera.aderapos.product.dtos.ProductDTO;
+import com.adera.aderapos.product.dtos.ProductImportReport;
 import com.adera.aderapos.product.dtos.ProductRequestDTO;
+import com.adera.aderapos.product.imports.ImportFormat;
+import com.adera.aderapos.product.services.ProductImportService;
 import com.adera.aderapos.product.services.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -17,6 +26,8 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class ProductController {
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final NdjsonWriter ndjsonWriter;
 
     @PostMapping("/{id}/update")
     public ResponseEntity<ProductDTO> createOrUpdateProduct(@PathVariable UUID id, @RequestBody ProductDTO dto) {
@@ -28,14 +39,39 @@ public class ProductController {
         return ResponseEntity.ok(productService.createProduct(dto));
     }
 
+    /**
+     * Bulk-imports products from a CSV ({@code text/csv}) or NDJSON ({@code application/x-ndjson}) body.
+     * The body is streamed; rejected rows are listed in the report.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ProductImportReport> importProducts(@RequestParam(required = false) UUID shopId,
+                                                              @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                              InputStream body) {
+        return ResponseEntity.ok(productImportService.importProducts(shopId, body, ImportFormat.fromContentType(contentType)));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductDTO> getProduct(@PathVariable UUID id) {
         return ResponseEntity.ok(productService.getProduct(id));
     }
 
     @GetMapping("/shop/{shopId}")
-    public ResponseEntity<List<ProductDTO>> getProductsByShop(@PathVariable UUID shopId) {
-        return ResponseEntity.ok(productService.getProductsByShop(shopId));
+    public ResponseEntity<List<ProductDTO>> getProductsByShop(@PathVariable UUID shopId,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(required = false) Integer limit) {
+        // Conditional GETs are answered with 304 by Spring when If-None-Match matches the ETag
+        CatalogSnapshot catalog = productService.getCatalog(shopId);
+        return catalog.page(cursor, CursorPage.limit(limit)).toResponse(catalog.etag());
+    }
+
+    @GetMapping("/shop/{shopId}/sku/{sku}")
+    public ResponseEntity<ProductDTO> getProductBySku(@PathVariable UUID shopId, @PathVariable String sku) {
+        return ResponseEntity.ok(productService.getProductBySku(shopId, sku));
+    }
+
+    @GetMapping(value = "/shop/{shopId}/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamProductsByShop(@PathVariable UUID shopId) {
+        return ndjsonWriter.<ProductDTO>stream(sink -> productService.streamProducts(shopId, sink));
     }
 
     @PatchMapping("/{productId}/inventory")
@@ -44,8 +80,14 @@ public class ProductController {
     }
 
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<List<ProductDTO>> getAllProducts(@RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Integer limit) {
+        return productService.getAllProducts(cursor, CursorPage.limit(limit)).toResponse();
+    }
+
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllProducts() {
+        return ndjsonWriter.<ProductDTO>stream(sink -> productService.streamProducts(null, sink));
     }
 
     @DeleteMapping("/{id}")
@@ -22,6 +22,7 @@ public class ProductDTO {
     private String description;
     private BigDecimal unitPrice;
     private int quantity;
+    private int reserved;
     private Boolean active;
     private Instant createdAt;
     private Instant updatedAt;
@@ -0,0 +1,29 @@
+package com.adera.aderapos.product.dtos;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk product import. Only the first rejected rows are listed in {@code errors};
+ * {@code failed} always holds the full count. Rows replaced by a later row for the same SKU are counted
+ * in {@code superseded}, not as failures.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportReport {
+
+    /** A row that was not imported. */
+    public record RowError(long line, String sku, String message) {}
+
+    private long created;
+    private long updated;
+    private long failed;
+    private long superseded;
+    private int chunks;
+    @Builder.Default
+    private List<RowError> errors = new ArrayList<>();
+}
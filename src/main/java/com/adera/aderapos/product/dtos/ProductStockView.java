@@ -0,0 +1,27 @@
+package com.adera.aderapos.product.dtos;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Read-only projection of a product joined with its inventory row, loaded in a single query.
+ */
+public record ProductStockView(
+        UUID id,
+        UUID shopId,
+        String name,
+        String sku,
+        String description,
+        BigDecimal unitPrice,
+        Boolean active,
+        Integer quantity,
+        Integer reserved,
+        Instant createdAt,
+        Instant updatedAt,
+        String createdBy,
+        String updatedBy,
+        Instant deletedAt,
+        String deletedBy
+) {
+}
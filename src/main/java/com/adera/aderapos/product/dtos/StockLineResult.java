@@ -0,0 +1,19 @@
+package com.adera.aderapos.product.dtos;
+
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Per-product outcome of a batched stock change.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockLineResult {
+    private UUID productId;
+    private int requested;
+    private Integer available; // remaining after the change, or current stock when not applied; null if no inventory row
+    private boolean applied;
+}
@@ -10,7 +10,9 @@ import java.util.UUID;
  * Entity representing Inventory details for a Product.
  */
 @Entity
-@Table(name = "inventory")
+@Table(name = "inventory", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"product_id"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,6 +33,9 @@ public class Inventory {
     @Column(nullable = false)
     private Integer reserved = 0;
 
+    /** Highest inventory-ledger journal sequence applied to this row (null when never written by the ledger). */
+    private Long ledgerSeq;
+
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
 
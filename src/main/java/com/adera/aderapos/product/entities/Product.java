@@ -14,6 +14,9 @@ import java.util.UUID;
 @Entity
 @Table(name = "product", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"shop_id", "sku"})
+}, indexes = {
+        @Index(name = "idx_product_created", columnList = "createdAt"),
+        @Index(name = "idx_product_shop_created", columnList = "shop_id,createdAt")
 })
 @Data
 @NoArgsConstructor
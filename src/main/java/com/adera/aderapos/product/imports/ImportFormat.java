@@ -0,0 +1,27 @@
+package com.adera.aderapos.product.imports;
+
+import com.adera.aderapos.common.exception.ApiException;
+
+/**
+ * Upload formats accepted by the product import.
+ */
+public enum ImportFormat {
+    CSV,
+    NDJSON;
+
+    /**
+     * Picks the format from the request content type.
+     *
+     * @throws ApiException for any other content type
+     */
+    public static ImportFormat fromContentType(String contentType) {
+        String type = contentType == null ? "" : contentType.toLowerCase();
+        if (type.startsWith("text/csv")) {
+            return CSV;
+        }
+        if (type.startsWith("application/x-ndjson") || type.startsWith("application/ndjson")) {
+            return NDJSON;
+        }
+        throw new ApiException("Unsupported import content type: " + contentType);
+    }
+}
@@ -0,0 +1,22 @@
+package com.adera.aderapos.product.imports;
+
+import java.math.BigDecimal;
+
+/**
+ * One parsed upload row. Rows that failed parsing or validation carry an {@code error} and no values
+ * beyond what could be read.
+ *
+ * @param line     1-based line number in the upload
+ * @param quantity absolute stock to set, or null to keep existing stock (new products start at 0)
+ */
+public record ImportRow(long line, String sku, String name, String description, BigDecimal unitPrice,
+                        boolean active, Integer quantity, String error) {
+
+    static ImportRow invalid(long line, String sku, String error) {
+        return new ImportRow(line, sku, null, null, null, true, null, error);
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
@@ -0,0 +1,215 @@
+package com.adera.aderapos.product.imports;
+
+import com.adera.aderapos.common.exception.ApiException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads product import rows one line at a time, so the upload is never held in memory.
+ * <p>
+ * CSV needs a header row naming at least {@code sku}, {@code name} and {@code unitPrice}
+ * ({@code unit_price} also works); {@code description}, {@code quantity} and {@code active} are optional.
+ * Quoted fields may contain commas and doubled quotes but not line breaks.
+ * NDJSON lines are objects with the same field names.
+ * A bad row is returned with an error rather than aborting the upload.
+ */
+public final class ProductImportParser implements Closeable {
+
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final BufferedReader reader;
+    private final ImportFormat format;
+    private Map<String, Integer> columns;
+    private long line;
+
+    public ProductImportParser(InputStream in, ImportFormat format) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        this.format = format;
+    }
+
+    /**
+     * Returns the next row, or null at the end of the upload. Blank lines are skipped.
+     *
+     * @throws ApiException if the CSV header is missing a required column
+     */
+    public ImportRow next() throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (line == 1 && !text.isEmpty() && text.charAt(0) == '\uFEFF') {
+                text = text.substring(1);
+            }
+            if (text.isBlank()) {
+                continue;
+            }
+            if (format == ImportFormat.CSV && columns == null) {
+                columns = header(text);
+                continue;
+            }
+            return format == ImportFormat.CSV ? csvRow(text) : jsonRow(text);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static Map<String, Integer> header(String text) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(text);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(normalize(names.get(i)), i);
+        }
+        for (String required : List.of("sku", "name", "unitprice")) {
+            if (!columns.containsKey(required)) {
+                throw new ApiException("CSV header is missing column '" + required + "'");
+            }
+        }
+        return columns;
+    }
+
+    private ImportRow csvRow(String text) {
+        List<String> fields;
+        try {
+            fields = splitCsv(text);
+        } catch (IllegalArgumentException e) {
+            return ImportRow.invalid(line, null, e.getMessage());
+        }
+        return row(field(fields, "sku"), field(fields, "name"), field(fields, "description"),
+                field(fields, "unitprice"), field(fields, "quantity"), field(fields, "active"));
+    }
+
+    private ImportRow jsonRow(String text) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(text);
+        } catch (IOException e) {
+            return ImportRow.invalid(line, null, "Malformed JSON");
+        }
+        if (node == null || !node.isObject()) {
+            return ImportRow.invalid(line, null, "Expected a JSON object");
+        }
+        return row(text(node, "sku"), text(node, "name"), text(node, "description"),
+                text(node, "unitPrice"), text(node, "quantity"), text(node, "active"));
+    }
+
+    private ImportRow row(String sku, String name, String description, String unitPrice,
+                          String quantity, String active) {
+        if (sku == null) {
+            return ImportRow.invalid(line, null, "SKU is required");
+        }
+        if (sku.length() > MAX_TEXT_LENGTH) {
+            return ImportRow.invalid(line, null, "SKU is too long");
+        }
+        if (name == null) {
+            return ImportRow.invalid(line, sku, "Name is required");
+        }
+        if (name.length() > MAX_TEXT_LENGTH || (description != null && description.length() > MAX_TEXT_LENGTH)) {
+            return ImportRow.invalid(line, sku, "Name or description is too long");
+        }
+        if (unitPrice == null) {
+            return ImportRow.invalid(line, sku, "Unit price is required");
+        }
+        BigDecimal price;
+        Integer qty = null;
+        try {
+            price = new BigDecimal(unitPrice);
+        } catch (NumberFormatException e) {
+            return ImportRow.invalid(line, sku, "Unit price is not a number");
+        }
+        if (price.signum() < 0) {
+            return ImportRow.invalid(line, sku, "Unit price cannot be negative");
+        }
+        if (quantity != null) {
+            try {
+                qty = Integer.parseInt(quantity);
+            } catch (NumberFormatException e) {
+                return ImportRow.invalid(line, sku, "Quantity is not a whole number");
+            }
+            if (qty < 0) {
+                return ImportRow.invalid(line, sku, "Quantity cannot be negative");
+            }
+        }
+        Boolean isActive = active == null ? Boolean.TRUE : parseBoolean(active);
+        if (isActive == null) {
+            return ImportRow.invalid(line, sku, "Active must be true or false");
+        }
+        return new ImportRow(line, sku, name, description, price, isActive, qty, null);
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        String text = value.asText().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static Boolean parseBoolean(String value) {
+        return switch (value.toLowerCase()) {
+            case "true", "1", "yes", "y" -> Boolean.TRUE;
+            case "false", "0", "no", "n" -> Boolean.FALSE;
+            default -> null;
+        };
+    }
+
+    private static String normalize(String column) {
+        return column.trim().replace("_", "").replace(" ", "").toLowerCase();
+    }
+
+    static List<String> splitCsv(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,511 @@
+package com.adera.aderapos.product.ledger;
+
+import com.adera.aderapos.common.exception.ApiException;
+import com.adera.aderapos.common.exception.InsufficientStockException;
+import com.adera.aderapos.product.dtos.StockLineResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional in-process inventory ledger with write-behind to the {@code inventory} table.
+ * <p>
+ * Stock for each product is held in primitive fields and guarded by a lock striped by shop,
+ * so all lines of a sale are approved or rejected atomically without touching the database.
+ * Approved changes are appended to a local {@link LedgerJournal} and coalesced per product;
+ * a background task flushes the coalesced deltas on a fixed interval and at shutdown.
+ * On startup unflushed journal records are replayed (guarded by {@code inventory.ledger_seq},
+ * so nothing is applied twice) before the ledger is warm-loaded from the table.
+ * <p>
+ * The ledger assumes it is the only writer of stock for the shops it serves: keep it
+ * disabled when several instances share the database.
+ */
+@Component
+public class InventoryLedger implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryLedger.class);
+
+    private final InventoryLedgerStore store;
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final Path journalPath;
+    private final Stripe[] stripes;
+    private final Timer flushTimer;
+    private final Counter rejected;
+
+    private LedgerJournal journal;
+    private ScheduledExecutorService flusher;
+    private volatile boolean running;
+
+    public InventoryLedger(InventoryLedgerStore store,
+                           MeterRegistry meterRegistry,
+                           @Value("${aderapos.inventory.ledger.enabled:false}") boolean enabled,
+                           @Value("${aderapos.inventory.ledger.flush-interval-ms:1000}") long flushIntervalMs,
+                           @Value("${aderapos.inventory.ledger.journal-path:./inventory-ledger}") String journalPath,
+                           @Value("${aderapos.inventory.ledger.stripes:64}") int stripeCount) {
+        this.store = store;
+        this.enabled = enabled;
+        this.flushIntervalMs = flushIntervalMs;
+        this.journalPath = Path.of(journalPath);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.flushTimer = Timer.builder("aderapos.inventory.ledger.flush").register(meterRegistry);
+        this.rejected = Counter.builder("aderapos.inventory.ledger.rejected").register(meterRegistry);
+        Gauge.builder("aderapos.inventory.ledger.flush.lag", this, InventoryLedger::flushLagMillis)
+                .baseUnit("milliseconds")
+                .description("Age of the oldest delta not yet written to the inventory table")
+                .register(meterRegistry);
+        Gauge.builder("aderapos.inventory.ledger.pending", this, InventoryLedger::pendingProducts)
+                .description("Products with unflushed deltas")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Decrements stock for all lines of a shop's sale, all or nothing.
+     *
+     * @param shopId     the shop that owns the products
+     * @param quantities requested quantity per product id (already aggregated)
+     * @return one result per product; when any line is short nothing is applied
+     */
+    public List<StockLineResult> decrement(UUID shopId, Map<UUID, Integer> quantities) {
+        Stripe stripe = stripeFor(shopId);
+        Map<UUID, StockCell> cells = resolve(shopId, quantities.keySet());
+        List<StockLineResult> results = new ArrayList<>(quantities.size());
+        boolean allApplied = true;
+
+        stripe.lock.lock();
+        try {
+            for (Map.Entry<UUID, Integer> line : quantities.entrySet()) {
+                StockCell cell = cells.get(line.getKey());
+                boolean ok = cell != null && cell.quantity - cell.reserved >= line.getValue();
+                allApplied &= ok;
+                results.add(StockLineResult.builder()
+                        .productId(line.getKey())
+                        .requested(line.getValue())
+                        .available(cell != null ? cell.quantity - cell.reserved : null)
+                        .applied(ok)
+                        .build());
+            }
+            if (!allApplied) {
+                rejected.increment();
+                results.forEach(r -> r.setApplied(false));
+                return results;
+            }
+            for (Map.Entry<UUID, Integer> line : quantities.entrySet()) {
+                applyChange(stripe, cells.get(line.getKey()), -line.getValue(), 0);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        results.forEach(r -> r.setAvailable(r.getAvailable() - r.getRequested()));
+        // Undo by adding the decremented quantities back
+        compensateOnRollback(shopId, Map.copyOf(quantities), Map.of());
+        return results;
+    }
+
+    /**
+     * Applies a relative change to one product's quantity and reserved counts.
+     *
+     * @return the resulting {@code [quantity, reserved]}
+     * @throws InsufficientStockException if the change would leave negative or over-reserved stock
+     */
+    public int[] adjust(UUID shopId, UUID productId, int quantityDelta, int reservedDelta) {
+        return change(shopId, productId, false, quantityDelta, reservedDelta);
+    }
+
+    /**
+     * Sets a product's quantity to an absolute value, keeping reservations.
+     *
+     * @return the resulting {@code [quantity, reserved]}
+     */
+    public int[] setQuantity(UUID shopId, UUID productId, int quantity) {
+        return change(shopId, productId, true, quantity, 0);
+    }
+
+    /**
+     * Current quantity of a product as seen by the ledger.
+     */
+    public OptionalInt quantityOf(UUID shopId, UUID productId) {
+        StockCell cell = resolve(shopId, Set.of(productId)).get(productId);
+        if (cell == null) {
+            return OptionalInt.empty();
+        }
+        Stripe stripe = stripeFor(shopId);
+        stripe.lock.lock();
+        try {
+            return OptionalInt.of(cell.quantity);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops a product from the ledger, e.g. after it was deleted.
+     */
+    public void evict(UUID shopId, UUID productId) {
+        stripeFor(shopId).cells.remove(productId);
+    }
+
+    /**
+     * Writes all coalesced deltas to the inventory table in one batch.
+     * Journal generations are only deleted once their deltas are committed; on failure
+     * the deltas are put back so the next flush retries them.
+     */
+    public synchronized void flush() {
+        if (!running) {
+            return;
+        }
+        long closedGeneration = journal.roll();
+        List<InventoryLedgerStore.Delta> deltas = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (StockCell cell : stripe.dirty) {
+                    deltas.add(new InventoryLedgerStore.Delta(cell.productId, cell.shopId,
+                            cell.pendingQuantity, cell.pendingReserved, cell.lastSeq));
+                    cell.pendingQuantity = 0;
+                    cell.pendingReserved = 0;
+                    cell.dirty = false;
+                }
+                stripe.dirty.clear();
+                stripe.oldestDirtyMillis = 0;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        if (deltas.isEmpty()) {
+            journal.deleteUpTo(closedGeneration);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            store.applyDeltas(deltas);
+            journal.deleteUpTo(closedGeneration);
+            log.debug("Inventory ledger flushed {} product delta(s)", deltas.size());
+        } catch (RuntimeException e) {
+            log.error("Inventory ledger flush failed, {} delta(s) kept for retry", deltas.size(), e);
+            restore(deltas);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        journal = new LedgerJournal(journalPath);
+        long lastSeq = recover();
+        journal.open(lastSeq);
+        warmLoad();
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "inventory-ledger-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        running = true;
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Inventory ledger enabled, flushing every {} ms, journal at {}", flushIntervalMs, journalPath);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushIntervalMs * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        running = false;
+        journal.close();
+        log.info("Inventory ledger stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Below the web server's phase: the ledger is loaded before the first sale arrives and stays up
+        // until the server has stopped taking requests
+        return WebServerApplicationContext.START_STOP_LIFECYCLE_PHASE - 1;
+    }
+
+    // --- internals ---
+
+    private int[] change(UUID shopId, UUID productId, boolean absolute, int quantityArg, int reservedDelta) {
+        Stripe stripe = stripeFor(shopId);
+        StockCell cell = resolve(shopId, Set.of(productId)).get(productId);
+        if (cell == null) {
+            throw new ApiException("Inventory not found for product " + productId);
+        }
+        int quantityDelta;
+        int[] result;
+        stripe.lock.lock();
+        try {
+            quantityDelta = absolute ? quantityArg - cell.quantity : quantityArg;
+            int quantity = cell.quantity + quantityDelta;
+            int reserved = cell.reserved + reservedDelta;
+            if (quantity < 0 || reserved < 0 || reserved > quantity) {
+                rejected.increment();
+                throw new InsufficientStockException(List.of(StockLineResult.builder()
+                        .productId(productId)
+                        .requested(Math.max(-quantityDelta, reservedDelta))
+                        .available(cell.quantity - cell.reserved)
+                        .applied(false)
+                        .build()));
+            }
+            applyChange(stripe, cell, quantityDelta, reservedDelta);
+            result = new int[]{cell.quantity, cell.reserved};
+        } finally {
+            stripe.lock.unlock();
+        }
+        compensateOnRollback(shopId, Map.of(productId, -quantityDelta), Map.of(productId, -reservedDelta));
+        return result;
+    }
+
+    /**
+     * Replays journal records that never reached the inventory table.
+     *
+     * @return the highest sequence seen, so new records continue after it
+     */
+    private long recover() {
+        List<Path> files = journal.existingFiles();
+        long lastSeq = store.maxLedgerSeq();
+        if (files.isEmpty()) {
+            return lastSeq;
+        }
+        List<LedgerJournal.Entry> entries = new ArrayList<>();
+        for (Path file : files) {
+            LedgerJournal.read(file, entries::add);
+        }
+        Set<UUID> productIds = new HashSet<>();
+        entries.forEach(e -> productIds.add(e.productId()));
+        Map<UUID, Long> applied = productIds.isEmpty() ? Map.of() : store.findLedgerSeqs(productIds);
+
+        Map<UUID, int[]> sums = new LinkedHashMap<>();
+        Map<UUID, Long> maxSeq = new HashMap<>();
+        for (LedgerJournal.Entry e : entries) {
+            lastSeq = Math.max(lastSeq, e.seq());
+            if (e.seq() <= applied.getOrDefault(e.productId(), Long.MAX_VALUE)) {
+                continue;
+            }
+            int[] sum = sums.computeIfAbsent(e.productId(), k -> new int[2]);
+            sum[0] += e.quantityDelta();
+            sum[1] += e.reservedDelta();
+            maxSeq.merge(e.productId(), e.seq(), Math::max);
+        }
+        List<InventoryLedgerStore.Delta> deltas = new ArrayList<>(sums.size());
+        sums.forEach((productId, sum) ->
+                deltas.add(new InventoryLedgerStore.Delta(productId, null, sum[0], sum[1], maxSeq.get(productId))));
+        if (!deltas.isEmpty()) {
+            store.applyDeltas(deltas);
+        }
+        journal.deleteUpTo(Long.MAX_VALUE);
+        log.info("Inventory ledger recovered {} journal record(s), replayed {} product delta(s)",
+                entries.size(), deltas.size());
+        return lastSeq;
+    }
+
+    private void warmLoad() {
+        int[] count = {0};
+        store.forEachStock(row -> {
+            stripeFor(row.shopId()).cells.put(row.productId(),
+                    new StockCell(row.productId(), row.shopId(), row.quantity(), row.reserved()));
+            count[0]++;
+        });
+        log.info("Inventory ledger warm-loaded {} product(s)", count[0]);
+    }
+
+    /**
+     * Looks up ledger cells, lazily loading products the ledger has not seen yet
+     * (e.g. created after warm-load). Products of another shop are treated as missing.
+     */
+    private Map<UUID, StockCell> resolve(UUID shopId, Set<UUID> productIds) {
+        if (!running) {
+            throw new IllegalStateException("Inventory ledger is not running");
+        }
+        Stripe stripe = stripeFor(shopId);
+        Map<UUID, StockCell> found = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : productIds) {
+            StockCell cell = stripe.cells.get(id);
+            if (cell != null && cell.shopId.equals(shopId)) {
+                found.put(id, cell);
+            } else if (cell == null) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (InventoryLedgerStore.StockRow row : store.loadStock(missing)) {
+                StockCell cell = stripeFor(row.shopId()).cells.computeIfAbsent(row.productId(),
+                        k -> new StockCell(row.productId(), row.shopId(), row.quantity(), row.reserved()));
+                if (cell.shopId.equals(shopId)) {
+                    found.put(row.productId(), cell);
+                }
+            }
+        }
+        return found;
+    }
+
+    /** Applies a change to a cell and its pending delta. Caller holds the stripe lock. */
+    private void applyChange(Stripe stripe, StockCell cell, int quantityDelta, int reservedDelta) {
+        cell.lastSeq = journal.append(cell.productId, quantityDelta, reservedDelta);
+        cell.quantity += quantityDelta;
+        cell.reserved += reservedDelta;
+        cell.pendingQuantity += quantityDelta;
+        cell.pendingReserved += reservedDelta;
+        if (!cell.dirty) {
+            cell.dirty = true;
+            if (stripe.dirty.isEmpty()) {
+                stripe.oldestDirtyMillis = System.currentTimeMillis();
+            }
+            stripe.dirty.add(cell);
+        }
+    }
+
+    /**
+     * The ledger is not transactional, so undo the change if the caller's transaction rolls back.
+     */
+    private void compensateOnRollback(UUID shopId, Map<UUID, Integer> quantityDeltas, Map<UUID, Integer> reservedDeltas) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                Stripe stripe = stripeFor(shopId);
+                stripe.lock.lock();
+                try {
+                    Set<UUID> ids = new HashSet<>(quantityDeltas.keySet());
+                    ids.addAll(reservedDeltas.keySet());
+                    for (UUID id : ids) {
+                        StockCell cell = stripe.cells.get(id);
+                        if (cell != null) {
+                            applyChange(stripe, cell, quantityDeltas.getOrDefault(id, 0), reservedDeltas.getOrDefault(id, 0));
+                        }
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        });
+    }
+
+    private void restore(List<InventoryLedgerStore.Delta> deltas) {
+        for (InventoryLedgerStore.Delta d : deltas) {
+            Stripe stripe = stripeFor(d.shopId());
+            stripe.lock.lock();
+            try {
+                StockCell cell = stripe.cells.get(d.productId());
+                if (cell == null) {
+                    continue;
+                }
+                cell.pendingQuantity += d.quantityDelta();
+                cell.pendingReserved += d.reservedDelta();
+                cell.lastSeq = Math.max(cell.lastSeq, d.seq());
+                if (!cell.dirty) {
+                    cell.dirty = true;
+                    if (stripe.dirty.isEmpty()) {
+                        stripe.oldestDirtyMillis = System.currentTimeMillis();
+                    }
+                    stripe.dirty.add(cell);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            journal.force();
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Inventory ledger flush task failed", e);
+        }
+    }
+
+    private Stripe stripeFor(UUID shopId) {
+        return stripes[Math.floorMod(shopId.hashCode(), stripes.length)];
+    }
+
+    private double flushLagMillis() {
+        long oldest = Long.MAX_VALUE;
+        for (Stripe stripe : stripes) {
+            long t = stripe.oldestDirtyMillis;
+            if (t > 0 && t < oldest) {
+                oldest = t;
+            }
+        }
+        return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    private double pendingProducts() {
+        int pending = 0;
+        for (Stripe stripe : stripes) {
+            pending += stripe.dirty.size();
+        }
+        return pending;
+    }
+
+    /** Products of the shops that hash to one stripe, guarded by one lock. */
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final ConcurrentHashMap<UUID, StockCell> cells = new ConcurrentHashMap<>();
+        final List<StockCell> dirty = new ArrayList<>();
+        volatile long oldestDirtyMillis;
+    }
+
+    /** Stock of one product. All mutable fields are guarded by the owning stripe's lock. */
+    private static final class StockCell {
+        final UUID productId;
+        final UUID shopId;
+        int quantity;
+        int reserved;
+        int pendingQuantity;
+        int pendingReserved;
+        long lastSeq;
+        boolean dirty;
+
+        StockCell(UUID productId, UUID shopId, int quantity, int reserved) {
+            this.productId = productId;
+            this.shopId = shopId;
+            this.quantity = quantity;
+            this.reserved = reserved;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.adera.aderapos.product.ledger;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * JDBC access used by the {@link InventoryLedger}: warm-load, lazy loads, and the coalesced write-behind.
+ */
+@Component
+@RequiredArgsConstructor
+class InventoryLedgerStore {
+
+    /** A row of current stock as seen by the database. */
+    record StockRow(UUID productId, UUID shopId, int quantity, int reserved) {}
+
+    /** A coalesced change for one product; {@code seq} is the highest journal sequence it contains. */
+    record Delta(UUID productId, UUID shopId, int quantityDelta, int reservedDelta, long seq) {}
+
+    private static final String SELECT_STOCK = """
+            SELECT i.product_id, p.shop_id, i.quantity, i.reserved
+              FROM inventory i
+              JOIN product p ON p.id = i.product_id
+            """;
+
+    // ledger_seq makes the write idempotent: a delta that already reached the row is skipped on replay
+    private static final String APPLY_DELTA = """
+            UPDATE inventory
+               SET quantity = quantity + ?,
+                   reserved = reserved + ?,
+                   ledger_seq = ?,
+                   updated_at = now()
+             WHERE product_id = ?
+               AND coalesce(ledger_seq, 0) < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    void forEachStock(Consumer<StockRow> consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_STOCK);
+            ps.setFetchSize(1000);
+            return ps;
+        }, rs -> {
+            consumer.accept(new StockRow(rs.getObject(1, UUID.class), rs.getObject(2, UUID.class),
+                    rs.getInt(3), rs.getInt(4)));
+        });
+    }
+
+    List<StockRow> loadStock(Collection<UUID> productIds) {
+        UUID[] ids = productIds.toArray(new UUID[0]);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_STOCK + " WHERE i.product_id = ANY(?::uuid[])");
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            return ps;
+        }, (rs, rowNum) -> new StockRow(rs.getObject(1, UUID.class), rs.getObject(2, UUID.class),
+                rs.getInt(3), rs.getInt(4)));
+    }
+
+    Map<UUID, Long> findLedgerSeqs(Collection<UUID> productIds) {
+        UUID[] ids = productIds.toArray(new UUID[0]);
+        Map<UUID, Long> seqs = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT product_id, coalesce(ledger_seq, 0) FROM inventory WHERE product_id = ANY(?::uuid[])");
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            return ps;
+        }, rs -> {
+            seqs.put(rs.getObject(1, UUID.class), rs.getLong(2));
+        });
+        return seqs;
+    }
+
+    long maxLedgerSeq() {
+        Long max = jdbcTemplate.queryForObject("SELECT coalesce(max(ledger_seq), 0) FROM inventory", Long.class);
+        return max != null ? max : 0L;
+    }
+
+    /**
+     * Applies all deltas with one JDBC batch in its own transaction.
+     */
+    void applyDeltas(List<Delta> deltas) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(APPLY_DELTA, deltas, 500,
+                (ps, d) -> {
+                    ps.setInt(1, d.quantityDelta());
+                    ps.setInt(2, d.reservedDelta());
+                    ps.setLong(3, d.seq());
+                    ps.setObject(4, d.productId());
+                    ps.setLong(5, d.seq());
+                }));
+    }
+}
@@ -0,0 +1,193 @@
+package com.adera.aderapos.product.ledger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of inventory ledger deltas.
+ * <p>
+ * Every approved change is written here before it is acknowledged, so deltas that were
+ * not yet flushed to the {@code inventory} table can be replayed after a crash.
+ * Records are fixed size: {@code seq(8) | productId(16) | quantityDelta(4) | reservedDelta(4)}.
+ * The journal is split into generations; {@link #roll()} starts a new file and
+ * {@link #deleteUpTo(long)} drops generations whose deltas are known to be flushed.
+ */
+class LedgerJournal implements Closeable {
+
+    static final int RECORD_SIZE = 8 + 16 + 4 + 4;
+    private static final String PREFIX = "ledger-";
+    private static final String SUFFIX = ".journal";
+
+    /** One journal record. */
+    record Entry(long seq, UUID productId, int quantityDelta, int reservedDelta) {}
+
+    private final Path dir;
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+    private FileChannel channel;
+    private long generation;
+    private long seq;
+
+    LedgerJournal(Path dir) {
+        this.dir = dir;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create ledger journal directory " + dir, e);
+        }
+    }
+
+    /**
+     * Lists existing journal files, oldest generation first.
+     */
+    List<Path> existingFiles() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list ledger journal " + dir, e);
+        }
+        files.sort(Comparator.comparingLong(LedgerJournal::generationOf));
+        return files;
+    }
+
+    /**
+     * Reads every complete record of a journal file. A torn trailing record is ignored.
+     */
+    static void read(Path file, Consumer<Entry> consumer) {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE * 1024);
+            while (in.read(buf) > 0) {
+                buf.flip();
+                while (buf.remaining() >= RECORD_SIZE) {
+                    consumer.accept(new Entry(buf.getLong(), new UUID(buf.getLong(), buf.getLong()),
+                            buf.getInt(), buf.getInt()));
+                }
+                buf.compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read ledger journal " + file, e);
+        }
+    }
+
+    /**
+     * Opens a fresh generation after recovery. Sequences continue from {@code lastSeq}.
+     */
+    synchronized void open(long lastSeq) {
+        this.seq = lastSeq;
+        List<Path> files = existingFiles();
+        this.generation = files.isEmpty() ? 0 : generationOf(files.get(files.size() - 1));
+        openNext();
+    }
+
+    /**
+     * Appends one delta and returns its sequence number.
+     * The write reaches the OS page cache before returning; {@link #force()} makes it durable on disk.
+     */
+    synchronized long append(UUID productId, int quantityDelta, int reservedDelta) {
+        long next = seq + 1;
+        buffer.clear();
+        buffer.putLong(next)
+                .putLong(productId.getMostSignificantBits())
+                .putLong(productId.getLeastSignificantBits())
+                .putInt(quantityDelta)
+                .putInt(reservedDelta)
+                .flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ledger journal append failed", e);
+        }
+        seq = next;
+        return next;
+    }
+
+    synchronized void force() {
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ledger journal fsync failed", e);
+        }
+    }
+
+    /**
+     * Closes the current generation and starts a new one.
+     *
+     * @return the generation that was closed
+     */
+    synchronized long roll() {
+        long closed = generation;
+        closeChannel();
+        openNext();
+        return closed;
+    }
+
+    /**
+     * Deletes every closed generation up to and including {@code lastGeneration}.
+     */
+    void deleteUpTo(long lastGeneration) {
+        for (Path file : existingFiles()) {
+            if (generationOf(file) <= lastGeneration) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot delete ledger journal " + file, e);
+                }
+            }
+        }
+    }
+
+    synchronized long lastSeq() {
+        return seq;
+    }
+
+    @Override
+    public synchronized void close() {
+        closeChannel();
+    }
+
+    private void openNext() {
+        generation++;
+        Path file = dir.resolve(String.format("%s%020d%s", PREFIX, generation, SUFFIX));
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open ledger journal " + file, e);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close ledger journal", e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -2,6 +2,7 @@ package com.adera.aderapos.product.mapper;
 
 import com.adera.aderapos.product.dtos.InventoryDTO;
 import com.adera.aderapos.product.dtos.ProductDTO;
+import com.adera.aderapos.product.dtos.ProductStockView;
 import com.adera.aderapos.product.entities.Inventory;
 import com.adera.aderapos.product.entities.Product;
 import org.mapstruct.Mapper;
@@ -37,6 +38,8 @@ public interface ProductMapper {
     @Mapping(source = "deletedBy", target = "deletedBy")
     Product toEntity(ProductDTO dto);
 
+    ProductDTO toDto(ProductStockView view);
+
     InventoryDTO toDto(Inventory inventory);
 
     Inventory toEntity(InventoryDTO dto);
@@ -0,0 +1,63 @@
+package com.adera.aderapos.product.repositories;
+
+import com.adera.aderapos.product.dtos.StockLineResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Set-based inventory operations that bypass the per-row entity path.
+ */
+public interface InventoryBatchRepository {
+
+    /**
+     * Decrements stock for all given products in a single conditional UPDATE.
+     * A product is only decremented when its unreserved quantity covers the request;
+     * lines that could not be applied are reported with {@code applied = false}.
+     * Callers are expected to roll back the surrounding transaction if any line was not applied.
+     *
+     * @param quantities requested quantity per product id (already aggregated)
+     * @param updatedBy  the user recorded on the updated rows
+     * @return one result per requested product, in the iteration order of {@code quantities}
+     */
+    List<StockLineResult> decrementStock(Map<UUID, Integer> quantities, String updatedBy);
+
+    /**
+     * Moves {@code quantity} units of a product from free to reserved stock,
+     * only if enough unreserved stock is left.
+     *
+     * @return true if the reservation was taken
+     */
+    boolean reserveStock(UUID productId, int quantity, String updatedBy);
+
+    /**
+     * Gives reserved stock back (reserved is decremented, never below zero).
+     *
+     * @param quantities reserved quantity per product id to release
+     */
+    void releaseReserved(Map<UUID, Integer> quantities, String updatedBy);
+
+    /**
+     * Turns reservations into sold stock: both quantity and reserved are decremented.
+     *
+     * @param quantities reserved quantity per product id to commit
+     */
+    void commitReserved(Map<UUID, Integer> quantities, String updatedBy);
+
+    /**
+     * Locks the inventory rows of a shop's products for the rest of the transaction and reads their free stock.
+     * Rows are locked in product id order so concurrent callers cannot deadlock.
+     *
+     * @return unreserved quantity per product id; products of other shops or without inventory are absent
+     */
+    Map<UUID, Integer> lockAvailable(UUID shopId, Collection<UUID> productIds);
+
+    /**
+     * Sets absolute quantities in one statement, creating missing inventory rows with nothing reserved.
+     *
+     * @param quantities quantity per product id
+     */
+    void upsertQuantities(Map<UUID, Integer> quantities, String updatedBy);
+}
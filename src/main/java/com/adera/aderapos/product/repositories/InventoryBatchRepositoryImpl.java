@@ -0,0 +1,195 @@
+package com.adera.aderapos.product.repositories;
+
+import com.adera.aderapos.product.dtos.StockLineResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.*;
+
+/**
+ * JDBC implementation of {@link InventoryBatchRepository}.
+ * Spring Data picks this up as a fragment of {@link InventoryRepository}.
+ */
+@RequiredArgsConstructor
+public class InventoryBatchRepositoryImpl implements InventoryBatchRepository {
+
+    private static final String DECREMENT_SQL = """
+            UPDATE inventory i
+               SET quantity = i.quantity - d.qty,
+                   updated_at = now(),
+                   updated_by = ?
+              FROM unnest(?::uuid[], ?::int[]) AS d(product_id, qty)
+             WHERE i.product_id = d.product_id
+               AND i.quantity - i.reserved >= d.qty
+            RETURNING i.product_id, i.quantity - i.reserved
+            """;
+
+    private static final String AVAILABLE_SQL = """
+            SELECT product_id, quantity - reserved
+              FROM inventory
+             WHERE product_id = ANY(?::uuid[])
+            """;
+
+    private static final String RESERVE_SQL = """
+            UPDATE inventory
+               SET reserved = reserved + ?,
+                   updated_at = now(),
+                   updated_by = ?
+             WHERE product_id = ?
+               AND quantity - reserved >= ?
+            """;
+
+    private static final String RELEASE_SQL = """
+            UPDATE inventory i
+               SET reserved = greatest(i.reserved - d.qty, 0),
+                   updated_at = now(),
+                   updated_by = ?
+              FROM unnest(?::uuid[], ?::int[]) AS d(product_id, qty)
+             WHERE i.product_id = d.product_id
+            """;
+
+    private static final String COMMIT_SQL = """
+            UPDATE inventory i
+               SET quantity = i.quantity - d.qty,
+                   reserved = greatest(i.reserved - d.qty, 0),
+                   updated_at = now(),
+                   updated_by = ?
+              FROM unnest(?::uuid[], ?::int[]) AS d(product_id, qty)
+             WHERE i.product_id = d.product_id
+            """;
+
+    private static final String LOCK_AVAILABLE_SQL = """
+            SELECT i.product_id, i.quantity - i.reserved
+              FROM inventory i
+              JOIN product p ON p.id = i.product_id
+             WHERE p.shop_id = ?
+               AND i.product_id = ANY(?::uuid[])
+             ORDER BY i.product_id
+               FOR UPDATE OF i
+            """;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO inventory (id, product_id, quantity, reserved, created_at, updated_at, created_by, updated_by)
+            SELECT gen_random_uuid(), d.product_id, d.qty, 0, now(), now(), ?, ?
+              FROM unnest(?::uuid[], ?::int[]) AS d(product_id, qty)
+            ON CONFLICT (product_id) DO UPDATE
+               SET quantity = excluded.quantity,
+                   updated_at = now(),
+                   updated_by = excluded.updated_by
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<StockLineResult> decrementStock(Map<UUID, Integer> quantities, String updatedBy) {
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+        UUID[] productIds = quantities.keySet().toArray(new UUID[0]);
+        Integer[] amounts = quantities.values().toArray(new Integer[0]);
+
+        Map<UUID, Integer> applied = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(DECREMENT_SQL);
+            ps.setString(1, updatedBy);
+            ps.setArray(2, con.createArrayOf("uuid", productIds));
+            ps.setArray(3, con.createArrayOf("int4", amounts));
+            return ps;
+        }, rs -> {
+            applied.put(rs.getObject(1, UUID.class), rs.getInt(2));
+        });
+
+        // Only look up current stock for lines that were short (failure path)
+        Map<UUID, Integer> current = new HashMap<>();
+        if (applied.size() < quantities.size()) {
+            UUID[] shortIds = quantities.keySet().stream()
+                    .filter(id -> !applied.containsKey(id))
+                    .toArray(UUID[]::new);
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(AVAILABLE_SQL);
+                ps.setArray(1, con.createArrayOf("uuid", shortIds));
+                return ps;
+            }, rs -> {
+                current.put(rs.getObject(1, UUID.class), rs.getInt(2));
+            });
+        }
+
+        List<StockLineResult> results = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, requested) -> {
+            boolean ok = applied.containsKey(productId);
+            results.add(StockLineResult.builder()
+                    .productId(productId)
+                    .requested(requested)
+                    .available(ok ? applied.get(productId) : current.get(productId))
+                    .applied(ok)
+                    .build());
+        });
+        return results;
+    }
+
+    @Override
+    public boolean reserveStock(UUID productId, int quantity, String updatedBy) {
+        return jdbcTemplate.update(RESERVE_SQL, quantity, updatedBy, productId, quantity) == 1;
+    }
+
+    @Override
+    public void releaseReserved(Map<UUID, Integer> quantities, String updatedBy) {
+        updateAll(RELEASE_SQL, quantities, updatedBy);
+    }
+
+    @Override
+    public void commitReserved(Map<UUID, Integer> quantities, String updatedBy) {
+        updateAll(COMMIT_SQL, quantities, updatedBy);
+    }
+
+    @Override
+    public Map<UUID, Integer> lockAvailable(UUID shopId, Collection<UUID> productIds) {
+        Map<UUID, Integer> available = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return available;
+        }
+        UUID[] ids = productIds.toArray(new UUID[0]);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LOCK_AVAILABLE_SQL);
+            ps.setObject(1, shopId);
+            ps.setArray(2, con.createArrayOf("uuid", ids));
+            return ps;
+        }, rs -> {
+            available.put(rs.getObject(1, UUID.class), rs.getInt(2));
+        });
+        return available;
+    }
+
+    @Override
+    public void upsertQuantities(Map<UUID, Integer> quantities, String updatedBy) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        UUID[] productIds = quantities.keySet().toArray(new UUID[0]);
+        Integer[] amounts = quantities.values().toArray(new Integer[0]);
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(UPSERT_SQL);
+            ps.setString(1, updatedBy);
+            ps.setString(2, updatedBy);
+            ps.setArray(3, con.createArrayOf("uuid", productIds));
+            ps.setArray(4, con.createArrayOf("int4", amounts));
+            return ps;
+        });
+    }
+
+    private void updateAll(String sql, Map<UUID, Integer> quantities, String updatedBy) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        UUID[] productIds = quantities.keySet().toArray(new UUID[0]);
+        Integer[] amounts = quantities.values().toArray(new Integer[0]);
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setString(1, updatedBy);
+            ps.setArray(2, con.createArrayOf("uuid", productIds));
+            ps.setArray(3, con.createArrayOf("int4", amounts));
+            return ps;
+        });
+    }
+}
@@ -10,7 +10,7 @@ import java.util.UUID;
 /**
  * Repository interface for Inventory entity.
  */
-public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
+public interface InventoryRepository extends JpaRepository<Inventory, UUID>, InventoryBatchRepository {
 
     Optional<Inventory> findByProduct(Product product);
 
@@ -0,0 +1,23 @@
+package com.adera.aderapos.product.repositories;
+
+import com.adera.aderapos.product.imports.ImportRow;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Set-based product writes used by the bulk import.
+ */
+public interface ProductBatchRepository {
+
+    /** Result of upserting one SKU. */
+    record UpsertedProduct(UUID id, String sku, boolean inserted) {}
+
+    /**
+     * Inserts or updates all rows of a shop in one statement, keyed by the {@code (shop_id, sku)} constraint.
+     * Rows must have distinct SKUs.
+     *
+     * @return one result per row, telling whether the product was newly created
+     */
+    List<UpsertedProduct> upsertProducts(UUID shopId, List<ImportRow> rows, String updatedBy);
+}
@@ -0,0 +1,73 @@
+package com.adera.aderapos.product.repositories;
+
+import com.adera.aderapos.product.imports.ImportRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC implementation of {@link ProductBatchRepository}.
+ * Spring Data picks this up as a fragment of {@link ProductRepository}.
+ */
+@RequiredArgsConstructor
+public class ProductBatchRepositoryImpl implements ProductBatchRepository {
+
+    // xmax = 0 only holds for a freshly inserted row version
+    private static final String UPSERT_SQL = """
+            INSERT INTO product (id, shop_id, sku, name, description, unit_price, active,
+                                 created_at, updated_at, created_by, updated_by)
+            SELECT d.id, ?, d.sku, d.name, d.description, d.unit_price, d.active, now(), now(), ?, ?
+              FROM unnest(?::uuid[], ?::text[], ?::text[], ?::text[], ?::numeric[], ?::bool[])
+                   AS d(id, sku, name, description, unit_price, active)
+            ON CONFLICT (shop_id, sku) DO UPDATE
+               SET name = excluded.name,
+                   description = coalesce(excluded.description, product.description),
+                   unit_price = excluded.unit_price,
+                   active = excluded.active,
+                   updated_at = now(),
+                   updated_by = excluded.updated_by
+            RETURNING id, sku, xmax = 0
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<UpsertedProduct> upsertProducts(UUID shopId, List<ImportRow> rows, String updatedBy) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        int n = rows.size();
+        UUID[] ids = new UUID[n];
+        String[] skus = new String[n];
+        String[] names = new String[n];
+        String[] descriptions = new String[n];
+        BigDecimal[] prices = new BigDecimal[n];
+        Boolean[] active = new Boolean[n];
+        for (int i = 0; i < n; i++) {
+            ImportRow row = rows.get(i);
+            ids[i] = UUID.randomUUID();
+            skus[i] = row.sku();
+            names[i] = row.name();
+            descriptions[i] = row.description();
+            prices[i] = row.unitPrice();
+            active[i] = row.active();
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(UPSERT_SQL);
+            ps.setObject(1, shopId);
+            ps.setString(2, updatedBy);
+            ps.setString(3, updatedBy);
+            ps.setArray(4, con.createArrayOf("uuid", ids));
+            ps.setArray(5, con.createArrayOf("text", skus));
+            ps.setArray(6, con.createArrayOf("text", names));
+            ps.setArray(7, con.createArrayOf("text", descriptions));
+            ps.setArray(8, con.createArrayOf("numeric", prices));
+            ps.setArray(9, con.createArrayOf("bool", active));
+            return ps;
+        }, (rs, rowNum) -> new UpsertedProduct(rs.getObject(1, UUID.class), rs.getString(2), rs.getBoolean(3)));
+    }
+}
@@ -1,19 +1,74 @@
 package com.adera.aderapos.product.repositories;
 
+import com.adera.aderapos.common.paging.EntityStreams;
+import com.adera.aderapos.product.dtos.ProductStockView;
 import com.adera.aderapos.product.entities.Product;
 import com.adera.aderapos.identity.entities.Shop;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Product entity.
  */
-public interface ProductRepository extends JpaRepository<Product, UUID> {
+public interface ProductRepository extends JpaRepository<Product, UUID>, ProductBatchRepository {
 
     List<Product> findByShop(Shop shop);
 
     Optional<Product> findByShopAndSku(Shop shop, String sku);
+
+    /**
+     * Index-only check against the {@code (shop_id, sku)} unique constraint.
+     */
+    boolean existsByShopIdAndSku(UUID shopId, String sku);
+
+    String STOCK_VIEW = """
+            select new com.adera.aderapos.product.dtos.ProductStockView(
+                   p.id, p.shop.id, p.name, p.sku, p.description, p.unitPrice, p.active,
+                   coalesce(i.quantity, 0), coalesce(i.reserved, 0),
+                   p.createdAt, p.updatedAt, p.createdBy, p.updatedBy, p.deletedAt, p.deletedBy)
+              from Product p
+              left join Inventory i on i.product = p
+            """;
+
+    @Query(STOCK_VIEW + " where p.id = :id")
+    Optional<ProductStockView> findStockViewById(UUID id);
+
+    /**
+     * Resolves a scanned SKU to the product with stock, through the {@code (shop_id, sku)} unique index.
+     */
+    @Query(STOCK_VIEW + " where p.shop.id = :shopId and p.sku = :sku")
+    Optional<ProductStockView> findStockViewByShopIdAndSku(UUID shopId, String sku);
+
+    /**
+     * Keyset page of all products with stock, newest first, strictly after {@code (createdAt, id)}.
+     */
+    @Query(STOCK_VIEW + """
+             where p.createdAt < :createdAt or (p.createdAt = :createdAt and p.id < :id)
+             order by p.createdAt desc, p.id desc
+            """)
+    List<ProductStockView> findStockPage(Instant createdAt, UUID id, Limit limit);
+
+    /**
+     * A shop's whole catalog with stock, newest first; the source of its {@code CatalogSnapshot}.
+     */
+    @Query(STOCK_VIEW + " where p.shop.id = :shopId order by p.createdAt desc, p.id desc")
+    List<ProductStockView> findStockByShop(UUID shopId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EntityStreams.FETCH_SIZE))
+    @Query(STOCK_VIEW + " order by p.createdAt desc, p.id desc")
+    Stream<ProductStockView> streamStockAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EntityStreams.FETCH_SIZE))
+    @Query(STOCK_VIEW + " where p.shop.id = :shopId order by p.createdAt desc, p.id desc")
+    Stream<ProductStockView> streamStockByShop(UUID shopId);
 }
@@ -0,0 +1,11 @@
+package com.adera.aderapos.product.services;
+
+import com.adera.aderapos.product.dtos.ProductImportReport;
+import com.adera.aderapos.product.imports.ImportFormat;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+public interface ProductImportService {
+    ProductImportReport importProducts(UUID shopId, InputStream in, ImportFormat format);
+}
@@ -0,0 +1,185 @@
+package com.adera.aderapos.product.services;
+
+import com.adera.aderapos.audit.entities.enums.AuditAction;
+import com.adera.aderapos.audit.entities.enums.AuditEntityType;
+import com.adera.aderapos.audit.entities.enums.AuditSeverity;
+import com.adera.aderapos.audit.services.AuditService;
+import com.adera.aderapos.common.exception.ApiException;
+import com.adera.aderapos.identity.repositories.ShopRepository;
+import com.adera.aderapos.product.cache.CatalogCache;
+import com.adera.aderapos.product.dtos.ProductImportReport;
+import com.adera.aderapos.product.imports.ImportFormat;
+import com.adera.aderapos.product.imports.ImportRow;
+import com.adera.aderapos.product.imports.ProductImportParser;
+import com.adera.aderapos.product.ledger.InventoryLedger;
+import com.adera.aderapos.product.repositories.InventoryRepository;
+import com.adera.aderapos.product.repositories.ProductBatchRepository.UpsertedProduct;
+import com.adera.aderapos.product.repositories.ProductRepository;
+import com.adera.aderapos.security.auth.JwtPrincipal;
+import com.adera.aderapos.security.utils.SecurityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Streams a product upload into the catalog in chunks.
+ * <p>
+ * Each chunk is one transaction: one upsert statement for the products, one for their stock and
+ * one audit event summarizing the chunk. A failing chunk is reported row by row and does not
+ * stop the import; chunks already written stay committed.
+ */
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportServiceImpl.class);
+
+    private final ProductRepository productRepository;
+    private final InventoryRepository inventoryRepository;
+    private final ShopRepository shopRepository;
+    private final AuditService auditService;
+    private final InventoryLedger inventoryLedger;
+    private final CatalogCache catalogCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public ProductImportServiceImpl(ProductRepository productRepository,
+                                    InventoryRepository inventoryRepository,
+                                    ShopRepository shopRepository,
+                                    AuditService auditService,
+                                    InventoryLedger inventoryLedger,
+                                    CatalogCache catalogCache,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${aderapos.product.import.chunk-size:1000}") int chunkSize,
+                                    @Value("${aderapos.product.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.productRepository = productRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.shopRepository = shopRepository;
+        this.auditService = auditService;
+        this.inventoryLedger = inventoryLedger;
+        this.catalogCache = catalogCache;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Imports products for a shop. Existing SKUs are updated; a quantity, when given, replaces the stock.
+     * Within a chunk the last row for a SKU wins; the rows it replaces are counted as superseded.
+     *
+     * @param shopId the shop, or null for the caller's shop
+     * @param in     the upload body, read once and never buffered as a whole
+     * @param format CSV or NDJSON
+     * @return counts and the rejected rows
+     */
+    @Override
+    public ProductImportReport importProducts(UUID shopId, InputStream in, ImportFormat format) {
+        UUID targetShop = shopId != null ? shopId : SecurityUtils.getCurrentShopId();
+        if (targetShop == null) {
+            throw new ApiException("Shop ID is required");
+        }
+        if (!shopRepository.existsById(targetShop)) {
+            throw new ApiException("Shop not found");
+        }
+        String currentUser = SecurityUtils.getCurrentUserId();
+        JwtPrincipal principal = SecurityUtils.getCurrentPrincipal();
+        String currentRole = principal != null ? principal.role() : AuditService.SYSTEM_ROLE;
+        ProductImportReport report = ProductImportReport.builder().build();
+        Map<String, ImportRow> chunk = new LinkedHashMap<>();
+
+        try (ProductImportParser parser = new ProductImportParser(in, format)) {
+            ImportRow row;
+            while ((row = parser.next()) != null) {
+                if (!row.isValid()) {
+                    reject(report, row.line(), row.sku(), row.error());
+                    continue;
+                }
+                if (chunk.put(row.sku(), row) != null) {
+                    // Deduplicated, not failed: the later row is the one imported
+                    report.setSuperseded(report.getSuperseded() + 1);
+                }
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(targetShop, chunk, currentUser, currentRole, report);
+                    chunk.clear();
+                }
+            }
+            writeChunk(targetShop, chunk, currentUser, currentRole, report);
+        } catch (IOException e) {
+            throw new ApiException("Could not read import upload", e);
+        }
+        logger.info("Product import for shop {}: {} created, {} updated, {} superseded, {} failed in {} chunks",
+                targetShop, report.getCreated(), report.getUpdated(), report.getSuperseded(), report.getFailed(),
+                report.getChunks());
+        return report;
+    }
+
+    private void writeChunk(UUID shopId, Map<String, ImportRow> chunk, String currentUser, String currentRole,
+                            ProductImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<ImportRow> rows = List.copyOf(chunk.values());
+        long firstLine = rows.stream().mapToLong(ImportRow::line).min().orElse(0);
+        long lastLine = rows.stream().mapToLong(ImportRow::line).max().orElse(0);
+        try {
+            int created = transactionTemplate.execute(status -> {
+                List<UpsertedProduct> upserted = productRepository.upsertProducts(shopId, rows, currentUser);
+                Map<UUID, Integer> quantities = new LinkedHashMap<>();
+                int inserted = 0;
+                for (UpsertedProduct product : upserted) {
+                    Integer quantity = chunk.get(product.sku()).quantity();
+                    if (product.inserted()) {
+                        inserted++;
+                        quantities.put(product.id(), quantity != null ? quantity : 0);
+                    } else if (quantity != null) {
+                        if (inventoryLedger.isEnabled()) {
+                            inventoryLedger.setQuantity(shopId, product.id(), quantity);
+                        } else {
+                            quantities.put(product.id(), quantity);
+                        }
+                    }
+                }
+                inventoryRepository.upsertQuantities(quantities, currentUser);
+                catalogCache.invalidate(shopId);
+                auditService.log(
+                    AuditAction.CREATE,
+                    AuditEntityType.PRODUCT,
+                    shopId,
+                    currentUser != null ? UUID.fromString(currentUser) : null,
+                    currentRole,
+                    AuditSeverity.LOW,
+                    String.format("Product import: %d created, %d updated (lines %d-%d)",
+                            inserted, upserted.size() - inserted, firstLine, lastLine)
+                );
+                return inserted;
+            });
+            report.setCreated(report.getCreated() + created);
+            report.setUpdated(report.getUpdated() + rows.size() - created);
+        } catch (RuntimeException e) {
+            // The transaction rolled back, so none of the chunk's rows reached the catalog
+            logger.warn("Product import chunk for shop {} failed: {}", shopId, e.getMessage());
+            String message = "Chunk rejected: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            for (ImportRow row : rows) {
+                reject(report, row.line(), row.sku(), message);
+            }
+        }
+        report.setChunks(report.getChunks() + 1);
+    }
+
+    private void reject(ProductImportReport report, long line, String sku, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new ProductImportReport.RowError(line, sku, message));
+        }
+    }
+}
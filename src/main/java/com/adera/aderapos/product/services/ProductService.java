@@ -1,18 +1,26 @@
 package com.adera.aderapos.product.services;
 
+import com.adera.aderapos.common.paging.CursorPage;
+import com.adera.aderapos.product.cache.CatalogSnapshot;
 import com.adera.aderapos.product.dtos.InventoryDTO;
 import com.adera.aderapos.product.dtos.ProductDTO;
 import com.adera.aderapos.product.dtos.ProductRequestDTO;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface ProductService {
     ProductDTO getProduct(UUID id);
-    List<ProductDTO> getProductsByShop(UUID shopId);
+    ProductDTO getProductBySku(UUID shopId, String sku);
+    CursorPage<ProductDTO> getProductsByShop(UUID shopId, String cursor, int limit);
+    CatalogSnapshot getCatalog(UUID shopId);
     InventoryDTO updateInventory(UUID productId, int quantityChange);
-    List<ProductDTO> getAllProducts();
+    CursorPage<ProductDTO> getAllProducts(String cursor, int limit);
+
+    @Transactional(readOnly = true)
+    void streamProducts(UUID shopId, Consumer<ProductDTO> sink);
+
     void deleteProduct(UUID id);
 
     @Transactional
@@ -1,12 +1,19 @@
 package com.adera.aderapos.product.services;
 
+import com.adera.aderapos.common.paging.Cursor;
+import com.adera.aderapos.common.paging.CursorPage;
+import com.adera.aderapos.common.paging.EntityStreams;
 import com.adera.aderapos.identity.entities.Shop;
 import com.adera.aderapos.identity.repositories.ShopRepository;
+import com.adera.aderapos.product.cache.CatalogCache;
+import com.adera.aderapos.product.cache.CatalogSnapshot;
 import com.adera.aderapos.product.dtos.InventoryDTO;
 import com.adera.aderapos.product.dtos.ProductDTO;
 import com.adera.aderapos.product.dtos.ProductRequestDTO;
+import com.adera.aderapos.product.dtos.ProductStockView;
 import com.adera.aderapos.product.entities.Inventory;
 import com.adera.aderapos.product.entities.Product;
+import com.adera.aderapos.product.ledger.InventoryLedger;
 import com.adera.aderapos.product.repositories.InventoryRepository;
 import com.adera.aderapos.product.repositories.ProductRepository;
 import com.adera.aderapos.product.mapper.ProductMapper;
@@ -15,13 +22,17 @@ import com.adera.aderapos.audit.services.AuditService;
 import com.adera.aderapos.audit.entities.enums.AuditAction;
 import com.adera.aderapos.audit.entities.enums.AuditEntityType;
 import com.adera.aderapos.audit.entities.enums.AuditSeverity;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +46,9 @@ public class ProductServiceImpl implements ProductService {
     private final ShopRepository shopRepository;
     private final ProductMapper productMapper;
     private final AuditService auditService;
+    private final InventoryLedger inventoryLedger;
+    private final EntityManager entityManager;
+    private final CatalogCache catalogCache;
 
     private static final Logger logger = LoggerFactory.getLogger(ProductServiceImpl.class);
 
@@ -63,8 +77,8 @@ public class ProductServiceImpl implements ProductService {
                     logger.error("Shop not found for id: {}", shopId);
                     return new RuntimeException("Shop not found");
                 });
-        // SKU uniqueness check per shop
-        if (productRepository.findByShop(shop).stream().anyMatch(p -> p.getSku().equals(dto.getSku()))) {
+        // SKU uniqueness check per shop; the unique constraint settles concurrent creates
+        if (productRepository.existsByShopIdAndSku(shopId, dto.getSku())) {
             logger.error("SKU '{}' already exists in shop {}", dto.getSku(), shopId);
             throw new RuntimeException("SKU already exists in this shop");
         }
@@ -81,7 +95,13 @@ public class ProductServiceImpl implements ProductService {
                 .updatedBy(SecurityUtils.getCurrentUserId())
                 .build();
         logger.debug("Saving new product: name={}, sku={}, shopId={}", product.getName(), product.getSku(), product.getShop() != null ? product.getShop().getId() : null);
-        Product saved = productRepository.save(product);
+        Product saved;
+        try {
+            saved = productRepository.saveAndFlush(product);
+        } catch (DataIntegrityViolationException e) {
+            logger.error("SKU '{}' was created concurrently in shop {}", dto.getSku(), shopId);
+            throw new RuntimeException("SKU already exists in this shop", e);
+        }
         logger.info("Product saved with id: {}", saved.getId());
         // Create Inventory for new product
         Inventory inventory = Inventory.builder()
@@ -94,6 +114,7 @@ public class ProductServiceImpl implements ProductService {
                 .updatedBy(SecurityUtils.getCurrentUserId())
                 .build();
         inventoryRepository.save(inventory);
+        catalogCache.invalidate(shopId);
         logger.info("Inventory created for product id: {}", saved.getId());
         auditService.log(
             AuditAction.CREATE,
@@ -116,45 +137,81 @@ public class ProductServiceImpl implements ProductService {
      */
     @Override
     public ProductDTO getProduct(UUID id) {
-        Product product = productRepository.findById(id)
+        return productRepository.findStockViewById(id)
+                .map(this::toDto)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
-        Inventory inventory = inventoryRepository.findByProduct(product)
-                .orElseThrow(() -> new RuntimeException("Inventory not found for product"));
-        ProductDTO productDTO = productMapper.toDto(product);
-        productDTO.setQuantity(inventory.getQuantity());
-        return productDTO;
     }
 
     /**
-     * Retrieves products by shop ID.
+     * Resolves a scanned SKU to a product with its stock in one indexed query.
      *
      * @param shopId the shop ID
-     * @return the list of product DTOs
+     * @param sku    the SKU or barcode
+     * @return the product DTO
      */
     @Override
-    public List<ProductDTO> getProductsByShop(UUID shopId) {
-        Shop shop = shopRepository.findById(shopId)
-                .orElseThrow(() -> new RuntimeException("Shop not found"));
-        List<Product> products = productRepository.findByShop(shop);
-        List<ProductDTO> productDTOs = products.stream().map(product -> {
-            Inventory inventory = inventoryRepository.findByProduct(product)
-                    .orElseThrow(() -> new RuntimeException("Inventory not found for product"));
-            ProductDTO dto = productMapper.toDto(product);
-            dto.setQuantity(inventory.getQuantity());
-            return dto;
-        }).collect(Collectors.toList());
-        return productDTOs;
+    public ProductDTO getProductBySku(UUID shopId, String sku) {
+        return productRepository.findStockViewByShopIdAndSku(shopId, sku)
+                .map(this::toDto)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+    }
+
+    /**
+     * Retrieves a page of products by shop ID, newest first, from the shop's cached catalog.
+     *
+     * @param shopId the shop ID
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param limit  the page size
+     * @return the page of product DTOs
+     */
+    @Override
+    public CursorPage<ProductDTO> getProductsByShop(UUID shopId, String cursor, int limit) {
+        return getCatalog(shopId).page(cursor, limit);
     }
 
     /**
-     * Retrieves all products.
+     * Retrieves the shop's catalog snapshot, loading it with one query on a cache miss.
      *
-     * @return the list of all product DTOs
+     * @param shopId the shop ID
+     * @return the current catalog snapshot
      */
     @Override
-    public List<ProductDTO> getAllProducts() {
-        List<Product> products = productRepository.findAll();
-        return productMapper.toProductDtoList(products);
+    public CatalogSnapshot getCatalog(UUID shopId) {
+        return catalogCache.get(shopId, () -> {
+            if (!shopRepository.existsById(shopId)) {
+                throw new RuntimeException("Shop not found");
+            }
+            return productRepository.findStockByShop(shopId).stream().map(this::toDto).toList();
+        });
+    }
+
+    /**
+     * Retrieves a page of all products, newest first.
+     *
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param limit  the page size
+     * @return the page of product DTOs
+     */
+    @Override
+    public CursorPage<ProductDTO> getAllProducts(String cursor, int limit) {
+        Cursor after = Cursor.decode(cursor);
+        List<ProductStockView> products = productRepository.findStockPage(after.at(), after.id(), Limit.of(limit + 1));
+        return CursorPage.of(products, limit, ProductServiceImpl::cursorOf).map(this::toDto);
+    }
+
+    /**
+     * Streams products with stock from a database cursor.
+     *
+     * @param shopId the shop ID, or null for all products
+     * @param sink   receives each product DTO
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public void streamProducts(UUID shopId, Consumer<ProductDTO> sink) {
+        Stream<ProductStockView> products = shopId != null
+                ? productRepository.streamStockByShop(shopId)
+                : productRepository.streamStockAll();
+        EntityStreams.forEach(products, entityManager, view -> sink.accept(toDto(view)));
     }
 
     /**
@@ -169,6 +226,17 @@ public class ProductServiceImpl implements ProductService {
     public InventoryDTO updateInventory(UUID productId, int quantityChange) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
+        catalogCache.invalidate(product.getShop().getId());
+        if (inventoryLedger.isEnabled()) {
+            int[] stock = inventoryLedger.adjust(product.getShop().getId(), productId, quantityChange, 0);
+            return InventoryDTO.builder()
+                    .productId(productId)
+                    .quantity(stock[0])
+                    .reserved(stock[1])
+                    .updatedAt(java.time.Instant.now())
+                    .updatedBy(SecurityUtils.getCurrentUserId())
+                    .build();
+        }
         Inventory inventory = inventoryRepository.findByProduct(product)
                 .orElseGet(() -> Inventory.builder()
                         .product(product)
@@ -202,6 +270,10 @@ public class ProductServiceImpl implements ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         productRepository.delete(product);
+        catalogCache.invalidate(product.getShop().getId());
+        if (inventoryLedger.isEnabled()) {
+            inventoryLedger.evict(product.getShop().getId(), product.getId());
+        }
         String currentUser = SecurityUtils.getCurrentUserId();
         auditService.log(
             AuditAction.DELETE,
@@ -226,6 +298,7 @@ public class ProductServiceImpl implements ProductService {
     public ProductDTO updateProduct(UUID id, ProductDTO dto) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
+        catalogCache.invalidate(product.getShop().getId());
         // Manual update (since updateEntityFromDto does not exist)
         if (dto.getName() != null) product.setName(dto.getName());
         if (dto.getDescription() != null) product.setDescription(dto.getDescription());
@@ -233,7 +306,11 @@ public class ProductServiceImpl implements ProductService {
         if (dto.getShopId() != null) {
             Shop shop = shopRepository.findById(dto.getShopId())
                 .orElseThrow(() -> new RuntimeException("Shop not found"));
+            if (inventoryLedger.isEnabled() && !shop.getId().equals(product.getShop().getId())) {
+                inventoryLedger.evict(product.getShop().getId(), product.getId());
+            }
             product.setShop(shop);
+            catalogCache.invalidate(shop.getId());
         }
         product.setUpdatedAt(java.time.Instant.now());
         String currentUser = SecurityUtils.getCurrentUserId();
@@ -242,18 +319,23 @@ public class ProductServiceImpl implements ProductService {
 
         // Handle inventory quantity update if provided
         if (dto.getQuantity() != 0) {
-            Inventory inventory = inventoryRepository.findByProduct(product)
-                    .orElseThrow(() -> new RuntimeException("Inventory not found for product"));
             int newQuantity = dto.getQuantity();
             if (newQuantity < 0) {
                 throw new RuntimeException("Quantity cannot be negative");
             }
-            int oldQuantity = inventory.getQuantity();
-            inventory.setQuantity(newQuantity);
-            inventory.setUpdatedAt(java.time.Instant.now());
-            inventory.setUpdatedBy(currentUser);
-            inventoryRepository.save(inventory);
-            logger.info("Inventory updated for product id {}: {} -> {}", product.getId(), oldQuantity, newQuantity);
+            if (inventoryLedger.isEnabled()) {
+                inventoryLedger.setQuantity(product.getShop().getId(), product.getId(), newQuantity);
+                logger.info("Inventory updated for product id {} -> {} (ledger)", product.getId(), newQuantity);
+            } else {
+                Inventory inventory = inventoryRepository.findByProduct(product)
+                        .orElseThrow(() -> new RuntimeException("Inventory not found for product"));
+                int oldQuantity = inventory.getQuantity();
+                inventory.setQuantity(newQuantity);
+                inventory.setUpdatedAt(java.time.Instant.now());
+                inventory.setUpdatedBy(currentUser);
+                inventoryRepository.save(inventory);
+                logger.info("Inventory updated for product id {}: {} -> {}", product.getId(), oldQuantity, newQuantity);
+            }
             auditService.log(
                 AuditAction.UPDATE,
                 AuditEntityType.PRODUCT,
@@ -276,4 +358,20 @@ public class ProductServiceImpl implements ProductService {
         );
         return productMapper.toDto(updated);
     }
+
+    /**
+     * Maps a joined product/stock row; with the ledger enabled its in-memory quantity wins,
+     * since the table may lag behind by up to one flush interval.
+     */
+    private ProductDTO toDto(ProductStockView view) {
+        ProductDTO dto = productMapper.toDto(view);
+        if (inventoryLedger.isEnabled()) {
+            inventoryLedger.quantityOf(view.shopId(), view.id()).ifPresent(dto::setQuantity);
+        }
+        return dto;
+    }
+
+    private static Cursor cursorOf(ProductStockView view) {
+        return new Cursor(view.createdAt(), view.id());
+    }
 }
@@ -0,0 +1,54 @@
+package com.adera.aderapos.reporting.controller;
+
+import com.adera.aderapos.reporting.dtos.PaymentMixDTO;
+import com.adera.aderapos.reporting.dtos.ProductSalesDTO;
+import com.adera.aderapos.reporting.dtos.ZReportDTO;
+import com.adera.aderapos.reporting.services.ReportingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@CrossOrigin(origins = {"http://localhost:3000", "https://aderapos.netlify.app/"})
+@RestController
+@RequestMapping("/api/reports")
+@RequiredArgsConstructor
+public class ReportController {
+    private final ReportingService reportingService;
+
+    @GetMapping("/shop/{shopId}/z-report")
+    public ResponseEntity<ZReportDTO> getZReport(@PathVariable UUID shopId,
+                                                 @RequestParam(required = false)
+                                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day) {
+        return ResponseEntity.ok(reportingService.getZReport(shopId, day));
+    }
+
+    @GetMapping("/shop/{shopId}/top-products")
+    public ResponseEntity<List<ProductSalesDTO>> getTopProducts(@PathVariable UUID shopId,
+                                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(reportingService.getTopProducts(shopId, from, to, limit));
+    }
+
+    @GetMapping("/shop/{shopId}/payment-mix")
+    public ResponseEntity<List<PaymentMixDTO>> getPaymentMix(@PathVariable UUID shopId,
+                                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(reportingService.getPaymentMix(shopId, from, to));
+    }
+
+    /**
+     * Queues a recompute of the rollups of all shops for a range of business days, one day per transaction.
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Void> rebuildRollups(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        reportingService.rebuildRollups(from, to);
+        return ResponseEntity.accepted().build();
+    }
+}
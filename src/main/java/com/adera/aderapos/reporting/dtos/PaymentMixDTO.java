@@ -0,0 +1,21 @@
+package com.adera.aderapos.reporting.dtos;
+
+import com.adera.aderapos.sales.entities.enums.PaymentMethod;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Sales taken with one payment method over a period.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentMixDTO {
+    private PaymentMethod paymentMethod;
+    private Long saleCount;
+    private Long quantity;
+    private BigDecimal netAmount;
+    private BigDecimal vatAmount;
+}
@@ -0,0 +1,22 @@
+package com.adera.aderapos.reporting.dtos;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Sales of one product over a period.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductSalesDTO {
+    private UUID productId;
+    private String productName;
+    private Long saleCount;
+    private Long quantity;
+    private BigDecimal netAmount;
+    private BigDecimal vatAmount;
+}
@@ -0,0 +1,26 @@
+package com.adera.aderapos.reporting.dtos;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * End-of-day totals of a shop, with the split by payment method.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ZReportDTO {
+    private UUID shopId;
+    private LocalDate businessDay;
+    private long saleCount;
+    private long quantity;
+    private BigDecimal netAmount;
+    private BigDecimal vatAmount;
+    private BigDecimal grossAmount;
+    private List<PaymentMixDTO> payments;
+}
@@ -0,0 +1,60 @@
+package com.adera.aderapos.reporting.entities;
+
+import com.adera.aderapos.sales.entities.enums.PaymentMethod;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Sales of one product in one shop on one business day, per payment method.
+ * Maintained incrementally as sales are written and rebuildable from {@code sales} and {@code sale_item}.
+ */
+@Entity
+@Table(name = "sales_daily_rollup", indexes = {
+        @Index(name = "idx_sales_daily_rollup_shop_day", columnList = "shop_id,businessDay")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesDailyRollup {
+
+    @EmbeddedId
+    private Key id;
+
+    /** Number of sales containing the product. */
+    @Column(nullable = false)
+    private long saleCount;
+
+    @Column(nullable = false)
+    private long quantity;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal netAmount;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal vatAmount;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        @Column(name = "shop_id", nullable = false)
+        private UUID shopId;
+
+        @Column(nullable = false)
+        private LocalDate businessDay;
+
+        @Column(nullable = false)
+        private UUID productId;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false)
+        private PaymentMethod paymentMethod;
+    }
+}
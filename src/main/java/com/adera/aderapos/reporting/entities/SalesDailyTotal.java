@@ -0,0 +1,56 @@
+package com.adera.aderapos.reporting.entities;
+
+import com.adera.aderapos.sales.entities.enums.PaymentMethod;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Whole-sale totals of one shop on one business day, per payment method.
+ * Kept next to {@link SalesDailyRollup} because sale counts cannot be summed from per-product rows.
+ */
+@Entity
+@Table(name = "sales_daily_totals", indexes = {
+        @Index(name = "idx_sales_daily_totals_shop_day", columnList = "shop_id,businessDay")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SalesDailyTotal {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private long saleCount;
+
+    @Column(nullable = false)
+    private long quantity;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal netAmount;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal vatAmount;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        @Column(name = "shop_id", nullable = false)
+        private UUID shopId;
+
+        @Column(nullable = false)
+        private LocalDate businessDay;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false)
+        private PaymentMethod paymentMethod;
+    }
+}
@@ -0,0 +1,37 @@
+package com.adera.aderapos.reporting.repositories;
+
+import com.adera.aderapos.sales.entities.enums.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Set-based writes of the daily sales rollups.
+ */
+public interface SalesRollupBatchRepository {
+
+    /** A change to one rollup row; amounts are added to the stored row and may be negative. */
+    record RollupRow(UUID shopId, LocalDate businessDay, UUID productId, PaymentMethod paymentMethod,
+                     long saleCount, long quantity, BigDecimal netAmount, BigDecimal vatAmount) {}
+
+    /**
+     * Adds per-product rows to {@code sales_daily_rollup} with one upsert.
+     */
+    void addProductRows(Collection<RollupRow> rows);
+
+    /**
+     * Adds whole-sale rows to {@code sales_daily_totals} with one upsert; {@code productId} is ignored.
+     */
+    void addTotalRows(Collection<RollupRow> rows);
+
+    /**
+     * Replaces both rollups of one business day with aggregates of the stored sales created in {@code [from, to)}.
+     * A row a sale writer booked between the delete and the insert is overwritten by the recomputed one.
+     *
+     * @return the number of per-product rows written
+     */
+    int rebuildDay(LocalDate businessDay, Instant from, Instant to, BigDecimal vatRate);
+}
@@ -0,0 +1,174 @@
+package com.adera.aderapos.reporting.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * JDBC implementation of {@link SalesRollupBatchRepository}.
+ * Spring Data picks this up as a fragment of {@link SalesRollupRepository}.
+ */
+@RequiredArgsConstructor
+public class SalesRollupBatchRepositoryImpl implements SalesRollupBatchRepository {
+
+    private static final String ADD_PRODUCTS_SQL = """
+            INSERT INTO sales_daily_rollup
+                   (shop_id, business_day, product_id, payment_method, sale_count, quantity, net_amount, vat_amount)
+            SELECT d.shop_id, d.business_day::date, d.product_id, d.payment_method,
+                   d.sale_count, d.quantity, d.net_amount, d.vat_amount
+              FROM unnest(?::uuid[], ?::text[], ?::uuid[], ?::text[], ?::int8[], ?::int8[], ?::numeric[], ?::numeric[])
+                   AS d(shop_id, business_day, product_id, payment_method, sale_count, quantity, net_amount, vat_amount)
+            ON CONFLICT (shop_id, business_day, product_id, payment_method) DO UPDATE
+               SET sale_count = sales_daily_rollup.sale_count + excluded.sale_count,
+                   quantity = sales_daily_rollup.quantity + excluded.quantity,
+                   net_amount = sales_daily_rollup.net_amount + excluded.net_amount,
+                   vat_amount = sales_daily_rollup.vat_amount + excluded.vat_amount
+            """;
+
+    private static final String ADD_TOTALS_SQL = """
+            INSERT INTO sales_daily_totals
+                   (shop_id, business_day, payment_method, sale_count, quantity, net_amount, vat_amount)
+            SELECT d.shop_id, d.business_day::date, d.payment_method,
+                   d.sale_count, d.quantity, d.net_amount, d.vat_amount
+              FROM unnest(?::uuid[], ?::text[], ?::text[], ?::int8[], ?::int8[], ?::numeric[], ?::numeric[])
+                   AS d(shop_id, business_day, payment_method, sale_count, quantity, net_amount, vat_amount)
+            ON CONFLICT (shop_id, business_day, payment_method) DO UPDATE
+               SET sale_count = sales_daily_totals.sale_count + excluded.sale_count,
+                   quantity = sales_daily_totals.quantity + excluded.quantity,
+                   net_amount = sales_daily_totals.net_amount + excluded.net_amount,
+                   vat_amount = sales_daily_totals.vat_amount + excluded.vat_amount
+            """;
+
+    private static final String DELETE_PRODUCTS_SQL = "DELETE FROM sales_daily_rollup WHERE business_day = ?";
+
+    private static final String DELETE_TOTALS_SQL = "DELETE FROM sales_daily_totals WHERE business_day = ?";
+
+    private static final String REBUILD_PRODUCTS_SQL = """
+            INSERT INTO sales_daily_rollup
+                   (shop_id, business_day, product_id, payment_method, sale_count, quantity, net_amount, vat_amount)
+            SELECT s.shop_id, ?, i.product_id, s.payment_method,
+                   count(DISTINCT s.id), sum(i.quantity), sum(i.total_price), sum(i.total_price) * ?
+              FROM sales s
+              JOIN sale_item i ON i.sale_id = s.id
+             WHERE s.created_at >= ? AND s.created_at < ?
+               AND s.status <> 'REJECTED'
+             GROUP BY s.shop_id, i.product_id, s.payment_method
+            ON CONFLICT (shop_id, business_day, product_id, payment_method) DO UPDATE
+               SET sale_count = excluded.sale_count,
+                   quantity = excluded.quantity,
+                   net_amount = excluded.net_amount,
+                   vat_amount = excluded.vat_amount
+            """;
+
+    private static final String REBUILD_TOTALS_SQL = """
+            INSERT INTO sales_daily_totals
+                   (shop_id, business_day, payment_method, sale_count, quantity, net_amount, vat_amount)
+            SELECT s.shop_id, ?, s.payment_method,
+                   count(DISTINCT s.id), coalesce(sum(i.quantity), 0),
+                   coalesce(sum(i.total_price), 0), coalesce(sum(i.total_price), 0) * ?
+              FROM sales s
+              LEFT JOIN sale_item i ON i.sale_id = s.id
+             WHERE s.created_at >= ? AND s.created_at < ?
+               AND s.status <> 'REJECTED'
+             GROUP BY s.shop_id, s.payment_method
+            ON CONFLICT (shop_id, business_day, payment_method) DO UPDATE
+               SET sale_count = excluded.sale_count,
+                   quantity = excluded.quantity,
+                   net_amount = excluded.net_amount,
+                   vat_amount = excluded.vat_amount
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addProductRows(Collection<RollupRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int n = rows.size();
+        UUID[] shopIds = new UUID[n];
+        String[] days = new String[n];
+        UUID[] productIds = new UUID[n];
+        String[] methods = new String[n];
+        Long[] saleCounts = new Long[n];
+        Long[] quantities = new Long[n];
+        BigDecimal[] nets = new BigDecimal[n];
+        BigDecimal[] vats = new BigDecimal[n];
+        int i = 0;
+        for (RollupRow row : rows) {
+            shopIds[i] = row.shopId();
+            days[i] = row.businessDay().toString();
+            productIds[i] = row.productId();
+            methods[i] = row.paymentMethod().name();
+            saleCounts[i] = row.saleCount();
+            quantities[i] = row.quantity();
+            nets[i] = row.netAmount();
+            vats[i] = row.vatAmount();
+            i++;
+        }
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(ADD_PRODUCTS_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", shopIds));
+            ps.setArray(2, con.createArrayOf("text", days));
+            ps.setArray(3, con.createArrayOf("uuid", productIds));
+            ps.setArray(4, con.createArrayOf("text", methods));
+            ps.setArray(5, con.createArrayOf("int8", saleCounts));
+            ps.setArray(6, con.createArrayOf("int8", quantities));
+            ps.setArray(7, con.createArrayOf("numeric", nets));
+            ps.setArray(8, con.createArrayOf("numeric", vats));
+            return ps;
+        });
+    }
+
+    @Override
+    public void addTotalRows(Collection<RollupRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int n = rows.size();
+        UUID[] shopIds = new UUID[n];
+        String[] days = new String[n];
+        String[] methods = new String[n];
+        Long[] saleCounts = new Long[n];
+        Long[] quantities = new Long[n];
+        BigDecimal[] nets = new BigDecimal[n];
+        BigDecimal[] vats = new BigDecimal[n];
+        int i = 0;
+        for (RollupRow row : rows) {
+            shopIds[i] = row.shopId();
+            days[i] = row.businessDay().toString();
+            methods[i] = row.paymentMethod().name();
+            saleCounts[i] = row.saleCount();
+            quantities[i] = row.quantity();
+            nets[i] = row.netAmount();
+            vats[i] = row.vatAmount();
+            i++;
+        }
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(ADD_TOTALS_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", shopIds));
+            ps.setArray(2, con.createArrayOf("text", days));
+            ps.setArray(3, con.createArrayOf("text", methods));
+            ps.setArray(4, con.createArrayOf("int8", saleCounts));
+            ps.setArray(5, con.createArrayOf("int8", quantities));
+            ps.setArray(6, con.createArrayOf("numeric", nets));
+            ps.setArray(7, con.createArrayOf("numeric", vats));
+            return ps;
+        });
+    }
+
+    @Override
+    public int rebuildDay(LocalDate businessDay, Instant from, Instant to, BigDecimal vatRate) {
+        jdbcTemplate.update(DELETE_PRODUCTS_SQL, businessDay);
+        jdbcTemplate.update(DELETE_TOTALS_SQL, businessDay);
+        jdbcTemplate.update(REBUILD_TOTALS_SQL, businessDay, vatRate, Timestamp.from(from), Timestamp.from(to));
+        return jdbcTemplate.update(REBUILD_PRODUCTS_SQL, businessDay, vatRate, Timestamp.from(from), Timestamp.from(to));
+    }
+}
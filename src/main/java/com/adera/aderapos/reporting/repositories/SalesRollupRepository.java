@@ -0,0 +1,37 @@
+package com.adera.aderapos.reporting.repositories;
+
+import com.adera.aderapos.reporting.dtos.ProductSalesDTO;
+import com.adera.aderapos.reporting.entities.SalesDailyRollup;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesDailyRollup, SalesDailyRollup.Key>,
+        SalesRollupBatchRepository {
+
+    /**
+     * Best-selling products of a shop by net amount over an inclusive range of business days.
+     */
+    @Query("""
+            select new com.adera.aderapos.reporting.dtos.ProductSalesDTO(
+                   r.id.productId, p.name, sum(r.saleCount), sum(r.quantity), sum(r.netAmount), sum(r.vatAmount))
+              from SalesDailyRollup r
+              left join Product p on p.id = r.id.productId
+             where r.id.shopId = :shopId
+               and r.id.businessDay between :from and :to
+             group by r.id.productId, p.name
+            having sum(r.quantity) > 0
+             order by sum(r.netAmount) desc
+            """)
+    List<ProductSalesDTO> findTopProducts(@Param("shopId") UUID shopId,
+                                          @Param("from") LocalDate from,
+                                          @Param("to") LocalDate to,
+                                          Limit limit);
+}
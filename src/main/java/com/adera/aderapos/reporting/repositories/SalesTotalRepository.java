@@ -0,0 +1,33 @@
+package com.adera.aderapos.reporting.repositories;
+
+import com.adera.aderapos.reporting.dtos.PaymentMixDTO;
+import com.adera.aderapos.reporting.entities.SalesDailyTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SalesTotalRepository extends JpaRepository<SalesDailyTotal, SalesDailyTotal.Key> {
+
+    /**
+     * Sales of a shop per payment method over an inclusive range of business days.
+     */
+    @Query("""
+            select new com.adera.aderapos.reporting.dtos.PaymentMixDTO(
+                   t.id.paymentMethod, sum(t.saleCount), sum(t.quantity), sum(t.netAmount), sum(t.vatAmount))
+              from SalesDailyTotal t
+             where t.id.shopId = :shopId
+               and t.id.businessDay between :from and :to
+             group by t.id.paymentMethod
+            having sum(t.saleCount) > 0
+             order by sum(t.netAmount) desc
+            """)
+    List<PaymentMixDTO> findPaymentMix(@Param("shopId") UUID shopId,
+                                       @Param("from") LocalDate from,
+                                       @Param("to") LocalDate to);
+}
@@ -0,0 +1,49 @@
+package com.adera.aderapos.reporting.services;
+
+import com.adera.aderapos.reporting.dtos.PaymentMixDTO;
+import com.adera.aderapos.reporting.dtos.ProductSalesDTO;
+import com.adera.aderapos.reporting.dtos.ZReportDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface ReportingService {
+    /**
+     * End-of-day report of a shop.
+     *
+     * @param shopId the UUID of the shop
+     * @param day    the business day, or null for today
+     * @return the day's totals and payment split
+     */
+    ZReportDTO getZReport(UUID shopId, LocalDate day);
+
+    /**
+     * Best-selling products of a shop by net amount.
+     *
+     * @param shopId the UUID of the shop
+     * @param from   first business day, inclusive
+     * @param to     last business day, inclusive
+     * @param limit  the number of products to return
+     * @return products, best first
+     */
+    List<ProductSalesDTO> getTopProducts(UUID shopId, LocalDate from, LocalDate to, int limit);
+
+    /**
+     * Sales of a shop split by payment method.
+     *
+     * @param shopId the UUID of the shop
+     * @param from   first business day, inclusive
+     * @param to     last business day, inclusive
+     * @return one entry per payment method used, largest first
+     */
+    List<PaymentMixDTO> getPaymentMix(UUID shopId, LocalDate from, LocalDate to);
+
+    /**
+     * Queue a recompute of the rollups of all shops from the stored sales; it runs in the background.
+     *
+     * @param from first business day, inclusive
+     * @param to   last business day, inclusive, at most {@code aderapos.reporting.max-rebuild-days} after from
+     */
+    void rebuildRollups(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,116 @@
+package com.adera.aderapos.reporting.services;
+
+import com.adera.aderapos.common.exception.ApiException;
+import com.adera.aderapos.reporting.dtos.PaymentMixDTO;
+import com.adera.aderapos.reporting.dtos.ProductSalesDTO;
+import com.adera.aderapos.reporting.dtos.ZReportDTO;
+import com.adera.aderapos.reporting.jobs.SalesRollupRebuildJob;
+import com.adera.aderapos.reporting.repositories.SalesRollupRepository;
+import com.adera.aderapos.reporting.repositories.SalesTotalRepository;
+import org.quartz.JobDataMap;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * ReportingService implementation. Reports read only the daily rollups, never the sales themselves.
+ */
+@Service
+public class ReportingServiceImpl implements ReportingService {
+
+    private static final int MAX_TOP_PRODUCTS = 500;
+
+    private final SalesRollupRepository rollupRepository;
+    private final SalesTotalRepository totalRepository;
+    private final SalesRollupService rollupService;
+    private final Scheduler scheduler;
+    private final int maxRebuildDays;
+
+    public ReportingServiceImpl(SalesRollupRepository rollupRepository,
+                                SalesTotalRepository totalRepository,
+                                SalesRollupService rollupService,
+                                Scheduler scheduler,
+                                @Value("${aderapos.reporting.max-rebuild-days:31}") int maxRebuildDays) {
+        this.rollupRepository = rollupRepository;
+        this.totalRepository = totalRepository;
+        this.rollupService = rollupService;
+        this.scheduler = scheduler;
+        this.maxRebuildDays = maxRebuildDays;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public ZReportDTO getZReport(UUID shopId, LocalDate day) {
+        LocalDate businessDay = day != null ? day : rollupService.today();
+        List<PaymentMixDTO> payments = totalRepository.findPaymentMix(shopId, businessDay, businessDay);
+        long saleCount = 0;
+        long quantity = 0;
+        BigDecimal net = BigDecimal.ZERO;
+        BigDecimal vat = BigDecimal.ZERO;
+        for (PaymentMixDTO payment : payments) {
+            saleCount += payment.getSaleCount();
+            quantity += payment.getQuantity();
+            net = net.add(payment.getNetAmount());
+            vat = vat.add(payment.getVatAmount());
+        }
+        return ZReportDTO.builder()
+                .shopId(shopId)
+                .businessDay(businessDay)
+                .saleCount(saleCount)
+                .quantity(quantity)
+                .netAmount(net)
+                .vatAmount(vat)
+                .grossAmount(net.add(vat))
+                .payments(payments)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<ProductSalesDTO> getTopProducts(UUID shopId, LocalDate from, LocalDate to, int limit) {
+        checkRange(from, to);
+        return rollupRepository.findTopProducts(shopId, from, to, Limit.of(Math.min(Math.max(limit, 1), MAX_TOP_PRODUCTS)));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<PaymentMixDTO> getPaymentMix(UUID shopId, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return totalRepository.findPaymentMix(shopId, from, to);
+    }
+
+    /**
+     * Triggers a one-off run of the rebuild job, so the days are rebuilt on whichever node picks it up,
+     * after any rebuild already running.
+     */
+    @Override
+    public void rebuildRollups(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        if (ChronoUnit.DAYS.between(from, to) >= maxRebuildDays) {
+            throw new ApiException("At most " + maxRebuildDays + " days can be rebuilt at once");
+        }
+        JobDataMap range = new JobDataMap();
+        range.put(SalesRollupRebuildJob.FROM, from.toString());
+        range.put(SalesRollupRebuildJob.TO, to.toString());
+        try {
+            scheduler.triggerJob(SalesRollupRebuildJob.KEY, range);
+        } catch (SchedulerException e) {
+            throw new ApiException("Could not queue the rollup rebuild", e);
+        }
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new ApiException("A date range with from on or before to is required");
+        }
+    }
+}
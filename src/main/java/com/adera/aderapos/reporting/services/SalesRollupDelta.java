@@ -0,0 +1,96 @@
+package com.adera.aderapos.reporting.services;
+
+import com.adera.aderapos.invoice.services.InvoiceService;
+import com.adera.aderapos.reporting.repositories.SalesRollupBatchRepository.RollupRow;
+import com.adera.aderapos.sales.entities.Sale;
+import com.adera.aderapos.sales.entities.SaleItem;
+import com.adera.aderapos.sales.entities.enums.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Accumulates the rollup changes of any number of sales, so they are written with one upsert per table.
+ * Obtain one from {@link SalesRollupService#newDelta()} and hand it back to {@link SalesRollupService#apply}.
+ * Rows come out sorted by key, so concurrent upserts lock shared rollup rows in the same order and cannot deadlock.
+ */
+public final class SalesRollupDelta {
+
+    private record Key(UUID shopId, LocalDate businessDay, UUID productId, PaymentMethod paymentMethod) {}
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::shopId)
+            .thenComparing(Key::businessDay)
+            .thenComparing(Key::productId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Key::paymentMethod, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static final class Amounts {
+        long saleCount;
+        long quantity;
+        BigDecimal netAmount = BigDecimal.ZERO;
+        BigDecimal vatAmount = BigDecimal.ZERO;
+
+        void add(long sales, long units, BigDecimal net) {
+            saleCount += sales;
+            quantity += units;
+            netAmount = netAmount.add(net);
+            vatAmount = vatAmount.add(net.multiply(InvoiceService.VAT_RATE));
+        }
+
+        boolean isZero() {
+            return saleCount == 0 && quantity == 0 && netAmount.signum() == 0;
+        }
+    }
+
+    private final ZoneId zone;
+    private final Map<Key, Amounts> products = new TreeMap<>(KEY_ORDER);
+    private final Map<Key, Amounts> totals = new TreeMap<>(KEY_ORDER);
+
+    SalesRollupDelta(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * Adds a sale's contribution ({@code sign} 1) or takes it back ({@code sign} -1), using the sale's
+     * current status and payment method. Rejected sales contribute nothing.
+     */
+    public SalesRollupDelta add(Sale sale, int sign) {
+        if (!SalesRollupService.counts(sale.getStatus())) {
+            return this;
+        }
+        LocalDate day = LocalDate.ofInstant(sale.getCreatedAt(), zone);
+        UUID shopId = sale.getShop().getId();
+        Amounts total = totals.computeIfAbsent(new Key(shopId, day, null, sale.getPaymentMethod()), k -> new Amounts());
+        total.add(sign, 0, BigDecimal.ZERO);
+        Set<UUID> seen = new HashSet<>();
+        for (SaleItem item : sale.getSaleItems()) {
+            BigDecimal net = sign > 0 ? item.getTotalPrice() : item.getTotalPrice().negate();
+            long units = (long) sign * item.getQuantity();
+            products.computeIfAbsent(new Key(shopId, day, item.getProductId(), sale.getPaymentMethod()), k -> new Amounts())
+                    .add(seen.add(item.getProductId()) ? sign : 0, units, net);
+            total.add(0, units, net);
+        }
+        return this;
+    }
+
+    List<RollupRow> productRows() {
+        return rows(products);
+    }
+
+    List<RollupRow> totalRows() {
+        return rows(totals);
+    }
+
+    private static List<RollupRow> rows(Map<Key, Amounts> amounts) {
+        List<RollupRow> rows = new ArrayList<>(amounts.size());
+        amounts.forEach((key, a) -> {
+            // Changes that cancel out, like re-booking an unchanged sale, need no write
+            if (!a.isZero()) {
+                rows.add(new RollupRow(key.shopId(), key.businessDay(), key.productId(), key.paymentMethod(),
+                        a.saleCount, a.quantity, a.netAmount, a.vatAmount));
+            }
+        });
+        return rows;
+    }
+}
@@ -0,0 +1,82 @@
+package com.adera.aderapos.reporting.services;
+
+import com.adera.aderapos.invoice.services.InvoiceService;
+import com.adera.aderapos.reporting.repositories.SalesRollupRepository;
+import com.adera.aderapos.sales.entities.Sale;
+import com.adera.aderapos.sales.entities.enums.SaleStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Maintains the daily sales rollups read by the reports.
+ * <p>
+ * Sale writers book their changes in the same transaction through {@link #record(Sale)} or a
+ * {@link SalesRollupDelta}; {@link #rebuild(LocalDate, LocalDate)} recomputes whole days from the sales,
+ * one day per transaction. Business days follow {@code aderapos.reporting.time-zone}.
+ */
+@Service
+public class SalesRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private final SalesRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ZoneId zone;
+
+    public SalesRollupService(SalesRollupRepository rollupRepository,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${aderapos.reporting.time-zone:Africa/Addis_Ababa}") String zone) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.zone = ZoneId.of(zone);
+    }
+
+    /** Whether sales in this status count towards the rollups. */
+    public static boolean counts(SaleStatus status) {
+        return status != SaleStatus.REJECTED;
+    }
+
+    public SalesRollupDelta newDelta() {
+        return new SalesRollupDelta(zone);
+    }
+
+    /** Books a newly written sale; runs in the caller's transaction. */
+    public void record(Sale sale) {
+        apply(newDelta().add(sale, 1));
+    }
+
+    /** Writes accumulated changes; runs in the caller's transaction. */
+    public void apply(SalesRollupDelta delta) {
+        rollupRepository.addTotalRows(delta.totalRows());
+        rollupRepository.addProductRows(delta.productRows());
+    }
+
+    /**
+     * Recomputes the rollups of every shop for an inclusive range of business days.
+     *
+     * @return the number of per-product rows written
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        int rows = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            LocalDate businessDay = day;
+            Integer written = transactionTemplate.execute(status -> rollupRepository.rebuildDay(businessDay,
+                    businessDay.atStartOfDay(zone).toInstant(),
+                    businessDay.plusDays(1).atStartOfDay(zone).toInstant(),
+                    InvoiceService.VAT_RATE));
+            rows += written != null ? written : 0;
+        }
+        log.info("Rebuilt sales rollups for {} to {}: {} product row(s)", from, to, rows);
+        return rows;
+    }
+
+    public LocalDate today() {
+        return LocalDate.now(zone);
+    }
+}
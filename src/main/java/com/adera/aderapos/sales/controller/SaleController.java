@@ -1,11 +1,16 @@
 package com.adera.aderapos.sales.controller;
 
+import com.adera.aderapos.common.paging.CursorPage;
+import com.adera.aderapos.common.paging.NdjsonWriter;
 import com.adera.aderapos.sales.services.SaleService;
+import com.adera.aderapos.sales.services.SaleSyncService;
 import com.adera.aderapos.sales.dtos.SaleItemDTO;
 import com.adera.aderapos.sales.dtos.SaleDTO;
+import com.adera.aderapos.sales.dtos.SaleSyncResultDTO;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -16,20 +21,66 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class SaleController {
     private final SaleService saleService;
+    private final SaleSyncService saleSyncService;
+    private final NdjsonWriter ndjsonWriter;
 
     @PostMapping
-    public ResponseEntity<SaleDTO> createSale(@RequestBody SaleDTO dto) {
+    public ResponseEntity<SaleDTO> createSale(@RequestBody SaleDTO dto,
+                                              @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null) {
+            dto.setIdempotencyKey(idempotencyKey);
+        }
         return ResponseEntity.ok(saleService.createSale(dto));
     }
 
+    /**
+     * Accepts a sale into the on-disk offline queue and answers 202 without waiting for the database.
+     * The sale is stored by the next replay; its idempotency key is how the till finds it afterwards.
+     */
+    @PostMapping("/queue")
+    public ResponseEntity<Void> queueSale(@RequestBody SaleDTO dto,
+                                          @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null) {
+            dto.setIdempotencyKey(idempotencyKey);
+        }
+        saleService.queueSale(dto);
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Tells the till what became of a queued sale: ACCEPTED with its sale ID, REJECTED with the reason,
+     * or PENDING while it waits in the queue.
+     */
+    @GetMapping("/queue/{idempotencyKey}")
+    public ResponseEntity<SaleSyncResultDTO> getQueuedSaleOutcome(@PathVariable String idempotencyKey,
+                                                                  @RequestParam(required = false) UUID shopId) {
+        return ResponseEntity.ok(saleService.getQueuedSaleOutcome(shopId, idempotencyKey));
+    }
+
+    /**
+     * Ingests sales queued by an offline till, in ring-up order. Each sale needs an idempotency key;
+     * the response lists one accept/duplicate/reject result per sale.
+     */
+    @PostMapping("/sync")
+    public ResponseEntity<List<SaleSyncResultDTO>> syncSales(@RequestBody List<SaleDTO> sales) {
+        return ResponseEntity.ok(saleSyncService.syncSales(sales));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<SaleDTO> getSaleById(@PathVariable UUID id) {
         return ResponseEntity.ok(saleService.getSaleById(id));
     }
 
     @GetMapping("/shop/{shopId}")
-    public ResponseEntity<List<SaleDTO>> getSalesByShop(@PathVariable UUID shopId) {
-        return ResponseEntity.ok(saleService.getSalesByShop(shopId));
+    public ResponseEntity<List<SaleDTO>> getSalesByShop(@PathVariable UUID shopId,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer limit) {
+        return saleService.getSalesByShop(shopId, cursor, CursorPage.limit(limit)).toResponse();
+    }
+
+    @GetMapping(value = "/shop/{shopId}/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamSalesByShop(@PathVariable UUID shopId) {
+        return ndjsonWriter.<SaleDTO>stream(sink -> saleService.streamSales(shopId, sink));
     }
 
     @PostMapping("/{saleId}/items")
@@ -39,8 +90,14 @@ public class SaleController {
     }
 
     @GetMapping
-    public ResponseEntity<List<SaleDTO>> getAllSales() {
-        return ResponseEntity.ok(saleService.getAllSales());
+    public ResponseEntity<List<SaleDTO>> getAllSales(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer limit) {
+        return saleService.getAllSales(cursor, CursorPage.limit(limit)).toResponse();
+    }
+
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllSales() {
+        return ndjsonWriter.<SaleDTO>stream(sink -> saleService.streamSales(null, sink));
     }
 
     @DeleteMapping("/{id}")
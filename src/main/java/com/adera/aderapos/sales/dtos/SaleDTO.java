@@ -20,6 +20,8 @@ public class SaleDTO {
     private UUID id;
     private UUID shopId;
     private UUID userId;
+    /** Client-generated key; resubmitting it returns the original sale. */
+    private String idempotencyKey;
     private PaymentMethod paymentMethod;
     private SaleStatus status;
     private BigDecimal totalAmount;
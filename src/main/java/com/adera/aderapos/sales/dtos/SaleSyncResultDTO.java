@@ -0,0 +1,32 @@
+package com.adera.aderapos.sales.dtos;
+
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one sale in an offline sync batch, in request order, or of one queued sale looked up by its key.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaleSyncResultDTO {
+
+    public enum Status {
+        /** Stored by this request. */
+        ACCEPTED,
+        /** The idempotency key was already stored; {@code saleId} is the original sale. */
+        DUPLICATE,
+        /** Not stored; see {@code message}. */
+        REJECTED,
+        /** Neither stored nor rejected yet: still in the offline queue, or never received. */
+        PENDING
+    }
+
+    private int index;
+    private String idempotencyKey;
+    private Status status;
+    private UUID saleId;
+    private String message;
+}
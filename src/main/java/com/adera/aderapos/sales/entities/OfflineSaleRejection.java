@@ -0,0 +1,45 @@
+package com.adera.aderapos.sales.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A queued sale the offline replay could not store, kept so the till can look up its outcome by
+ * idempotency key. Sales that failed outright rather than being rejected keep their payload for re-entry.
+ */
+@Entity
+@Table(name = "offline_sale_rejection", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_offline_rejection_key", columnNames = {"shopId", "idempotencyKey"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OfflineSaleRejection {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID shopId;
+
+    @Column(nullable = false, length = 64)
+    private String idempotencyKey;
+
+    /** The user who rang the sale up. */
+    private UUID userId;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String reason;
+
+    /** The queued sale as JSON, for sales that failed rather than being rejected. */
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false)
+    private Instant rejectedAt;
+}
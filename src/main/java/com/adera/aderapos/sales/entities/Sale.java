@@ -6,6 +6,7 @@ import com.adera.aderapos.sales.entities.enums.PaymentMethod;
 import com.adera.aderapos.sales.entities.enums.SaleStatus;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -16,7 +17,13 @@ import java.util.UUID;
  * Sale entity representing a sales transaction in the POS system.
  */
 @Entity
-@Table(name = "sales")
+@Table(name = "sales", indexes = {
+        @Index(name = "idx_sales_user", columnList = "user_id"),
+        @Index(name = "idx_sales_created", columnList = "createdAt"),
+        @Index(name = "idx_sales_shop_created", columnList = "shop_id,createdAt")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_sales_shop_idempotency_key", columnNames = {"shop_id", "idempotencyKey"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,7 +31,7 @@ import java.util.UUID;
 public class Sale {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -42,6 +49,10 @@ public class Sale {
     @Column(nullable = false)
     private PaymentMethod paymentMethod;
 
+    /** Client-generated key, unique per shop; null for sales submitted without one. */
+    @Column(length = 64)
+    private String idempotencyKey;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private SaleStatus status;
@@ -63,8 +74,11 @@ public class Sale {
 
     @PrePersist
     protected void onCreate() {
-        this.createdAt = Instant.now();
-        this.updatedAt = this.createdAt;
+        // Sales synced from an offline till keep the time they were rung up
+        if (this.createdAt == null) {
+            this.createdAt = Instant.now();
+        }
+        this.updatedAt = Instant.now();
     }
 
     @PreUpdate
@@ -0,0 +1,57 @@
+package com.adera.aderapos.sales.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Stock held in {@code inventory.reserved} for a line of an open sale.
+ * Expired reservations have already given their stock back and are kept until the sale
+ * is finalized so its lines can still be charged against free stock.
+ */
+@Entity
+@Table(name = "stock_reservation", indexes = {
+        @Index(name = "idx_reservation_sale", columnList = "saleId"),
+        @Index(name = "idx_reservation_expiry", columnList = "expired,expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID saleId;
+
+    @Column(nullable = false)
+    private UUID shopId;
+
+    @Column(nullable = false)
+    private UUID productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    @Column(nullable = false)
+    private boolean expired;
+
+    // Audit fields
+    @Column(updatable = false)
+    private Instant createdAt;
+
+    private String createdBy;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = Instant.now();
+    }
+}
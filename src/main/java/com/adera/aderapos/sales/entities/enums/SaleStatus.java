@@ -9,5 +9,10 @@ public enum SaleStatus {
     SUBMITTED_TO_MOR,
     ACCEPTED,
     REJECTED,
-    RECEIPT_ISSUED
+    RECEIPT_ISSUED;
+
+    /** Whether the sale is settled and its reserved stock must be committed or released. */
+    public boolean isFinal() {
+        return this == ACCEPTED || this == REJECTED || this == RECEIPT_ISSUED;
+    }
 }
@@ -0,0 +1,24 @@
+package com.adera.aderapos.sales.jobs;
+
+import com.adera.aderapos.sales.services.ReservationExpirySweeper;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * Expires abandoned basket reservations. Runs on one node of the cluster at a time.
+ */
+@DisallowConcurrentExecution
+public class ReservationSweepJob extends QuartzJobBean {
+
+    private final ReservationExpirySweeper sweeper;
+
+    public ReservationSweepJob(ReservationExpirySweeper sweeper) {
+        this.sweeper = sweeper;
+    }
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) {
+        sweeper.sweep();
+    }
+}
@@ -0,0 +1,19 @@
+package com.adera.aderapos.sales.repositories;
+
+import com.adera.aderapos.sales.entities.OfflineSaleRejection;
+
+import java.util.Collection;
+
+/**
+ * Set-based writes of offline sale rejections.
+ */
+public interface OfflineSaleRejectionBatchRepository {
+
+    /**
+     * Stores the rejections in one statement. A key rejected again replaces its earlier rejection;
+     * within the collection the last rejection of a key wins.
+     *
+     * @param rejections the rejections, with shop and idempotency key set
+     */
+    void upsertAll(Collection<OfflineSaleRejection> rejections);
+}
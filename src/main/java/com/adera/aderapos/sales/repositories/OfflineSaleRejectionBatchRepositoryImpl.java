@@ -0,0 +1,79 @@
+package com.adera.aderapos.sales.repositories;
+
+import com.adera.aderapos.sales.entities.OfflineSaleRejection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JDBC implementation of {@link OfflineSaleRejectionBatchRepository}.
+ * Spring Data picks this up as a fragment of {@link OfflineSaleRejectionRepository}.
+ */
+@RequiredArgsConstructor
+public class OfflineSaleRejectionBatchRepositoryImpl implements OfflineSaleRejectionBatchRepository {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO offline_sale_rejection (id, shop_id, idempotency_key, user_id, reason, payload, rejected_at)
+            SELECT d.id, d.shop_id, d.idempotency_key, d.user_id, d.reason, d.payload, d.rejected_at
+              FROM unnest(?::uuid[], ?::uuid[], ?::text[], ?::uuid[], ?::text[], ?::text[], ?::timestamptz[])
+                   AS d(id, shop_id, idempotency_key, user_id, reason, payload, rejected_at)
+            ON CONFLICT (shop_id, idempotency_key) DO UPDATE
+               SET user_id = excluded.user_id,
+                   reason = excluded.reason,
+                   payload = excluded.payload,
+                   rejected_at = excluded.rejected_at
+            """;
+
+    private record Key(UUID shopId, String idempotencyKey) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(Collection<OfflineSaleRejection> rejections) {
+        // One statement may not update the same row twice
+        Map<Key, OfflineSaleRejection> byKey = new LinkedHashMap<>();
+        for (OfflineSaleRejection rejection : rejections) {
+            byKey.put(new Key(rejection.getShopId(), rejection.getIdempotencyKey()), rejection);
+        }
+        if (byKey.isEmpty()) {
+            return;
+        }
+        List<OfflineSaleRejection> rows = List.copyOf(byKey.values());
+        int n = rows.size();
+        UUID[] ids = new UUID[n];
+        UUID[] shopIds = new UUID[n];
+        String[] keys = new String[n];
+        UUID[] userIds = new UUID[n];
+        String[] reasons = new String[n];
+        String[] payloads = new String[n];
+        Timestamp[] rejectedAt = new Timestamp[n];
+        for (int i = 0; i < n; i++) {
+            OfflineSaleRejection row = rows.get(i);
+            ids[i] = UUID.randomUUID();
+            shopIds[i] = row.getShopId();
+            keys[i] = row.getIdempotencyKey();
+            userIds[i] = row.getUserId();
+            reasons[i] = row.getReason();
+            payloads[i] = row.getPayload();
+            rejectedAt[i] = Timestamp.from(row.getRejectedAt());
+        }
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(UPSERT_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            ps.setArray(2, con.createArrayOf("uuid", shopIds));
+            ps.setArray(3, con.createArrayOf("text", keys));
+            ps.setArray(4, con.createArrayOf("uuid", userIds));
+            ps.setArray(5, con.createArrayOf("text", reasons));
+            ps.setArray(6, con.createArrayOf("text", payloads));
+            ps.setArray(7, con.createArrayOf("timestamptz", rejectedAt));
+            return ps;
+        });
+    }
+}
@@ -0,0 +1,16 @@
+package com.adera.aderapos.sales.repositories;
+
+import com.adera.aderapos.sales.entities.OfflineSaleRejection;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository interface for OfflineSaleRejection entity.
+ */
+public interface OfflineSaleRejectionRepository extends JpaRepository<OfflineSaleRejection, UUID>,
+        OfflineSaleRejectionBatchRepository {
+
+    Optional<OfflineSaleRejection> findByShopIdAndIdempotencyKey(UUID shopId, String idempotencyKey);
+}
@@ -0,0 +1,18 @@
+package com.adera.aderapos.sales.repositories;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Set-based sale lookups used by the offline sync.
+ */
+public interface SaleBatchRepository {
+
+    /**
+     * Resolves many idempotency keys of a shop in one query.
+     *
+     * @return sale id per key, for the keys that are already stored
+     */
+    Map<String, UUID> findIdsByIdempotencyKeys(UUID shopId, Collection<String> idempotencyKeys);
+}
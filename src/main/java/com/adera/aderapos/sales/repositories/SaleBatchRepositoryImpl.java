@@ -0,0 +1,45 @@
+package com.adera.aderapos.sales.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JDBC implementation of {@link SaleBatchRepository}.
+ * Spring Data picks this up as a fragment of {@link SaleRepository}.
+ */
+@RequiredArgsConstructor
+public class SaleBatchRepositoryImpl implements SaleBatchRepository {
+
+    private static final String KEYS_SQL = """
+            SELECT idempotency_key, id
+              FROM sales
+             WHERE shop_id = ?
+               AND idempotency_key = ANY(?::text[])
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<String, UUID> findIdsByIdempotencyKeys(UUID shopId, Collection<String> idempotencyKeys) {
+        Map<String, UUID> ids = new HashMap<>();
+        if (idempotencyKeys.isEmpty()) {
+            return ids;
+        }
+        String[] keys = idempotencyKeys.toArray(new String[0]);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(KEYS_SQL);
+            ps.setObject(1, shopId);
+            ps.setArray(2, con.createArrayOf("text", keys));
+            return ps;
+        }, rs -> {
+            ids.put(rs.getString(1), rs.getObject(2, UUID.class));
+        });
+        return ids;
+    }
+}
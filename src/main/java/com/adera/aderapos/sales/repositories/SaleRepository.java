@@ -2,14 +2,56 @@ package com.adera.aderapos.sales.repositories;
 
 import com.adera.aderapos.sales.entities.Sale;
 import com.adera.aderapos.identity.entities.Shop;
+import com.adera.aderapos.common.paging.EntityStreams;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface SaleRepository extends JpaRepository<Sale, UUID> {
+public interface SaleRepository extends JpaRepository<Sale, UUID>, SaleBatchRepository {
 
     List<Sale> findByShop(Shop shop);
     List<Sale> findByUserId(UUID userId);
 
+    /**
+     * Finds a sale by its client idempotency key, through the {@code (shop_id, idempotency_key)} unique index.
+     */
+    Optional<Sale> findByShopIdAndIdempotencyKey(UUID shopId, String idempotencyKey);
+
+    /**
+     * Keyset page of all sales, newest first, strictly after {@code (createdAt, id)}.
+     */
+    @Query("""
+            select s from Sale s
+             where s.createdAt < :createdAt or (s.createdAt = :createdAt and s.id < :id)
+             order by s.createdAt desc, s.id desc
+            """)
+    List<Sale> findPage(Instant createdAt, UUID id, Limit limit);
+
+    /**
+     * Keyset page of a shop's sales, newest first, strictly after {@code (createdAt, id)}.
+     */
+    @Query("""
+            select s from Sale s
+             where s.shop.id = :shopId
+               and (s.createdAt < :createdAt or (s.createdAt = :createdAt and s.id < :id))
+             order by s.createdAt desc, s.id desc
+            """)
+    List<Sale> findPageByShop(UUID shopId, Instant createdAt, UUID id, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EntityStreams.FETCH_SIZE))
+    @Query("select s from Sale s order by s.createdAt desc, s.id desc")
+    Stream<Sale> streamAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EntityStreams.FETCH_SIZE))
+    @Query("select s from Sale s where s.shop.id = :shopId order by s.createdAt desc, s.id desc")
+    Stream<Sale> streamByShop(UUID shopId);
 }
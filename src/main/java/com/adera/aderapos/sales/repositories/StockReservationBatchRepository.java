@@ -0,0 +1,31 @@
+package com.adera.aderapos.sales.repositories;
+
+import com.adera.aderapos.sales.entities.StockReservation;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Set-based operations on stock reservations.
+ */
+public interface StockReservationBatchRepository {
+
+    /**
+     * Marks up to {@code limit} past-due reservations as expired in one statement.
+     * Rows locked by a concurrent sweep are skipped, so several nodes can sweep at once.
+     *
+     * @param limit the maximum number of reservations to expire
+     * @return the expired reservations (product, shop and quantity populated)
+     */
+    List<StockReservation> markExpired(int limit);
+
+    /**
+     * Deletes a sale's reservations and returns what was deleted, in one statement.
+     * The delete locks the rows, so a reservation is either claimed here or expired by the sweep,
+     * never both; {@code expired} reflects the sweep's decision as committed.
+     *
+     * @param saleId the ID of the sale
+     * @return the claimed reservations (product, shop, quantity and expired populated)
+     */
+    List<StockReservation> claimBySaleId(UUID saleId);
+}
@@ -0,0 +1,68 @@
+package com.adera.aderapos.sales.repositories;
+
+import com.adera.aderapos.sales.entities.StockReservation;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC implementation of {@link StockReservationBatchRepository}.
+ */
+@RequiredArgsConstructor
+public class StockReservationBatchRepositoryImpl implements StockReservationBatchRepository {
+
+    private static final String MARK_EXPIRED_SQL = """
+            WITH due AS (
+                SELECT id
+                  FROM stock_reservation
+                 WHERE expired = false
+                   AND expires_at < now()
+                 ORDER BY expires_at
+                 LIMIT ?
+                   FOR UPDATE SKIP LOCKED
+            )
+            UPDATE stock_reservation r
+               SET expired = true
+              FROM due
+             WHERE r.id = due.id
+            RETURNING r.id, r.sale_id, r.shop_id, r.product_id, r.quantity
+            """;
+
+    private static final String CLAIM_SQL = """
+            DELETE FROM stock_reservation
+             WHERE sale_id = ?
+            RETURNING id, sale_id, shop_id, product_id, quantity, expired
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    @Override
+    public List<StockReservation> markExpired(int limit) {
+        return jdbcTemplate.query(MARK_EXPIRED_SQL, (rs, rowNum) -> StockReservation.builder()
+                .id(rs.getObject(1, UUID.class))
+                .saleId(rs.getObject(2, UUID.class))
+                .shopId(rs.getObject(3, UUID.class))
+                .productId(rs.getObject(4, UUID.class))
+                .quantity(rs.getInt(5))
+                .expired(true)
+                .build(), limit);
+    }
+
+    @Override
+    public List<StockReservation> claimBySaleId(UUID saleId) {
+        // Reservations made earlier in this transaction must reach the table first
+        entityManager.flush();
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> StockReservation.builder()
+                .id(rs.getObject(1, UUID.class))
+                .saleId(rs.getObject(2, UUID.class))
+                .shopId(rs.getObject(3, UUID.class))
+                .productId(rs.getObject(4, UUID.class))
+                .quantity(rs.getInt(5))
+                .expired(rs.getBoolean(6))
+                .build(), saleId);
+    }
+}
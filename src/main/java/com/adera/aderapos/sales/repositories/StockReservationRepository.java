@@ -0,0 +1,34 @@
+package com.adera.aderapos.sales.repositories;
+
+import com.adera.aderapos.sales.entities.StockReservation;
+import com.adera.aderapos.sales.entities.enums.SaleStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Repository interface for StockReservation entity.
+ */
+public interface StockReservationRepository extends JpaRepository<StockReservation, UUID>, StockReservationBatchRepository {
+
+    /**
+     * Deletes reservations that lapsed before {@code before} and whose sale is gone or settled.
+     * Lapsed reservations of open sales are kept, since committing the sale charges them against free stock.
+     *
+     * @param settled the final sale statuses
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            delete from StockReservation r
+             where r.expired = true and r.expiresAt < :before
+               and not exists (select 1 from Sale s where s.id = r.saleId and s.status not in :settled)
+            """)
+    int purgeExpiredBefore(@Param("before") Instant before, @Param("settled") Collection<SaleStatus> settled);
+}
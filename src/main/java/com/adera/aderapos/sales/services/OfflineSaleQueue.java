@@ -0,0 +1,292 @@
+package com.adera.aderapos.sales.services;
+
+import com.adera.aderapos.common.exception.ApiException;
+import com.adera.aderapos.common.journal.SegmentJournal;
+import com.adera.aderapos.sales.dtos.SaleDTO;
+import com.adera.aderapos.sales.dtos.SaleSyncResultDTO;
+import com.adera.aderapos.sales.entities.OfflineSaleRejection;
+import com.adera.aderapos.sales.repositories.OfflineSaleRejectionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * On-disk queue of sales accepted without the database.
+ * <p>
+ * {@link #enqueue(UUID, SaleDTO)} appends the sale to a {@link SegmentJournal} under
+ * {@code aderapos.offline.queue-path} and returns; the journal is fsynced every
+ * {@code aderapos.offline.fsync-interval-ms}. Every {@code aderapos.offline.sync-interval-ms} the queue is
+ * replayed in order through {@link SaleSyncService}, whose idempotency keys make a replay after a crash harmless.
+ * The consumer offset only moves once a batch is stored, and segments behind it are deleted.
+ * <p>
+ * Sales the sync rejects are recorded in {@code offline_sale_rejection}, where the till finds them by
+ * idempotency key. A batch that keeps failing for another reason than an unreachable database is replayed
+ * sale by sale; a sale that still fails is recorded there too, with its payload, and the queue moves on.
+ */
+@Component
+public class OfflineSaleQueue implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OfflineSaleQueue.class);
+    static final String CONSUMER = "sale-sync";
+
+    /** A journaled sale with the user who rang it up, since the replay runs outside any request. */
+    record QueuedSale(UUID userId, SaleDTO sale) {}
+
+    private final SaleSyncService saleSyncService;
+    private final OfflineSaleRejectionRepository rejectionRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path queuePath;
+    private final int segmentSize;
+    private final int batchSize;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+
+    private volatile SegmentJournal journal;
+    private volatile boolean running;
+
+    public OfflineSaleQueue(SaleSyncService saleSyncService,
+                            OfflineSaleRejectionRepository rejectionRepository,
+                            ObjectMapper objectMapper,
+                            @Value("${aderapos.offline.enabled:false}") boolean enabled,
+                            @Value("${aderapos.offline.queue-path:./offline-queue}") String queuePath,
+                            @Value("${aderapos.offline.segment-size-bytes:16777216}") int segmentSize,
+                            @Value("${aderapos.offline.replay-batch-size:500}") int batchSize,
+                            @Value("${aderapos.offline.max-retries:5}") int maxRetries,
+                            @Value("${aderapos.offline.retry-backoff-ms:5000}") long retryBackoffMs) {
+        this.saleSyncService = saleSyncService;
+        this.rejectionRepository = rejectionRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.queuePath = Path.of(queuePath);
+        this.segmentSize = segmentSize;
+        this.batchSize = batchSize;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    /**
+     * Appends a sale to the queue. Returns once the sale is in the page cache; nothing waits for the database.
+     */
+    public void enqueue(UUID userId, SaleDTO sale) {
+        SegmentJournal current = journal;
+        if (current == null) {
+            throw new ApiException("Offline sale queue is disabled");
+        }
+        current.append(objectMapper.writeValueAsBytes(new QueuedSale(userId, sale)));
+    }
+
+    @Scheduled(fixedDelayString = "${aderapos.offline.fsync-interval-ms:100}")
+    public void flush() {
+        SegmentJournal current = journal;
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    /**
+     * Replays queued sales in journal order, one batch at a time.
+     */
+    @Scheduled(fixedDelayString = "${aderapos.offline.sync-interval-ms:60000}")
+    public synchronized void replay() {
+        if (!running) {
+            return;
+        }
+        List<SegmentJournal.Entry> entries;
+        do {
+            entries = journal.read(journal.committed(CONSUMER), batchSize);
+            if (entries.isEmpty() || !replay(entries)) {
+                break;
+            }
+            journal.commit(CONSUMER, entries.get(entries.size() - 1).next());
+        } while (entries.size() == batchSize && running);
+        int deleted = journal.compact();
+        if (deleted > 0) {
+            log.debug("Deleted {} replayed offline queue segment(s)", deleted);
+        }
+    }
+
+    /**
+     * Syncs one batch, retrying with a growing pause while the database is unreachable.
+     * A batch that fails for any other reason, or still fails after {@code max-retries}, is replayed sale by sale.
+     *
+     * @return whether the batch was stored and its offset may be committed
+     */
+    private boolean replay(List<SegmentJournal.Entry> entries) {
+        List<QueuedSale> queued = new ArrayList<>(entries.size());
+        for (SegmentJournal.Entry entry : entries) {
+            try {
+                QueuedSale sale = objectMapper.readValue(entry.payload(), QueuedSale.class);
+                if (sale.userId() == null || sale.sale() == null) {
+                    log.error("Skipping incomplete offline queue record at offset {}", entry.offset());
+                    continue;
+                }
+                queued.add(sale);
+            } catch (JacksonException e) {
+                // Retrying cannot fix an unreadable record; it must not hold up the rest of the queue
+                log.error("Skipping unreadable offline queue record at offset {}", entry.offset(), e);
+            }
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                syncInUserRuns(queued);
+                return true;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return false;
+                }
+                if (attempt > maxRetries || !isTransient(e)) {
+                    log.error("Offline queue replay failed {} time(s); replaying {} sale(s) one by one",
+                            attempt, queued.size(), e);
+                    return replaySaleBySale(queued);
+                }
+                log.warn("Offline queue replay failed, retrying: {}", e.getMessage());
+                try {
+                    Thread.sleep(retryBackoffMs * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Isolates the sales that fail a batch. A sale failing for good is recorded as rejected, with its payload,
+     * so it no longer holds up the queue; sales already stored are reported as duplicates if replayed again.
+     *
+     * @return whether every sale was stored or recorded; false leaves the batch queued
+     */
+    private boolean replaySaleBySale(List<QueuedSale> queued) {
+        for (QueuedSale sale : queued) {
+            if (!running) {
+                return false;
+            }
+            try {
+                recordRejections(sale.userId(), saleSyncService.syncSales(List.of(sale.sale()), sale.userId()),
+                        List.of(sale.sale()));
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    log.error("Offline queue replay stopped, the database is unavailable; the batch stays queued", e);
+                    return false;
+                }
+                String reason = "Replay failed: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                log.error("Dead-lettering queued sale {}: {}", sale.sale().getIdempotencyKey(), reason, e);
+                OfflineSaleRejection rejection = rejection(sale.userId(), sale.sale(), reason);
+                if (rejection != null) {
+                    rejection.setPayload(objectMapper.writeValueAsString(sale));
+                    rejectionRepository.upsertAll(List.of(rejection));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Syncs consecutive sales of the same user together, keeping journal order across users.
+     */
+    private void syncInUserRuns(List<QueuedSale> queued) {
+        int from = 0;
+        while (from < queued.size()) {
+            UUID userId = queued.get(from).userId();
+            int to = from + 1;
+            while (to < queued.size() && userId.equals(queued.get(to).userId())) {
+                to++;
+            }
+            List<SaleDTO> sales = queued.subList(from, to).stream().map(QueuedSale::sale).toList();
+            recordRejections(userId, saleSyncService.syncSales(sales, userId), sales);
+            from = to;
+        }
+    }
+
+    /** Stores the rejected sales of one sync call, so the till can look them up. */
+    private void recordRejections(UUID userId, List<SaleSyncResultDTO> results, List<SaleDTO> sales) {
+        List<OfflineSaleRejection> rejections = new ArrayList<>();
+        for (SaleSyncResultDTO result : results) {
+            if (result.getStatus() != SaleSyncResultDTO.Status.REJECTED) {
+                continue;
+            }
+            log.warn("Queued sale {} rejected: {}", result.getIdempotencyKey(), result.getMessage());
+            OfflineSaleRejection rejection = rejection(userId, sales.get(result.getIndex()), result.getMessage());
+            if (rejection != null) {
+                rejections.add(rejection);
+            }
+        }
+        rejectionRepository.upsertAll(rejections);
+    }
+
+    /** A rejection row, or null for a sale without a shop or valid key, which the till cannot look up. */
+    private static OfflineSaleRejection rejection(UUID userId, SaleDTO sale, String reason) {
+        String key = sale != null ? sale.getIdempotencyKey() : null;
+        if (sale == null || sale.getShopId() == null || key == null || key.isBlank()
+                || key.length() > SaleIdempotencyGuard.MAX_KEY_LENGTH) {
+            return null;
+        }
+        return OfflineSaleRejection.builder()
+                .shopId(sale.getShopId())
+                .idempotencyKey(key)
+                .userId(userId)
+                .reason(reason != null ? reason : "Rejected")
+                .rejectedAt(Instant.now())
+                .build();
+    }
+
+    /** Whether the failure is the database being unreachable or busy, which waiting may cure. */
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        journal = new SegmentJournal(queuePath, segmentSize);
+        running = true;
+        log.info("Offline sale queue open at {}", queuePath.toAbsolutePath());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        synchronized (this) {
+            SegmentJournal current = journal;
+            journal = null;
+            if (current != null) {
+                current.close();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Below the web server's phase: the journal is open before the first queued sale and closed
+        // only once no request can append to it
+        return WebServerApplicationContext.START_STOP_LIFECYCLE_PHASE - 1;
+    }
+}
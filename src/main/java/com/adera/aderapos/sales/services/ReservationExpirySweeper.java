@@ -0,0 +1,57 @@
+package com.adera.aderapos.sales.services;
+
+import com.adera.aderapos.sales.entities.enums.SaleStatus;
+import com.adera.aderapos.sales.repositories.StockReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Gives back stock held by abandoned baskets; run by {@code ReservationSweepJob}.
+ * Works in bounded batches, each in its own transaction, so a large backlog
+ * never turns into one long-running transaction.
+ */
+@Component
+public class ReservationExpirySweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationExpirySweeper.class);
+    private static final List<SaleStatus> SETTLED = Arrays.stream(SaleStatus.values()).filter(SaleStatus::isFinal).toList();
+
+    private final ReservationService reservationService;
+    private final StockReservationRepository reservationRepository;
+    private final int batchSize;
+    private final Duration retention;
+
+    public ReservationExpirySweeper(ReservationService reservationService,
+                                    StockReservationRepository reservationRepository,
+                                    @Value("${aderapos.reservation.sweep-batch-size:1000}") int batchSize,
+                                    @Value("${aderapos.reservation.retention-ms:604800000}") long retentionMs) {
+        this.reservationService = reservationService;
+        this.reservationRepository = reservationRepository;
+        this.batchSize = batchSize;
+        this.retention = Duration.ofMillis(retentionMs);
+    }
+
+    /**
+     * Expires all past-due reservations, one batch at a time, then purges old expired ones that no open sale
+     * still needs.
+     */
+    public void sweep() {
+        int total = 0;
+        int expired;
+        do {
+            expired = reservationService.expireBatch(batchSize);
+            total += expired;
+        } while (expired == batchSize);
+        int purged = reservationRepository.purgeExpiredBefore(Instant.now().minus(retention), SETTLED);
+        if (total > 0 || purged > 0) {
+            log.info("Reservation sweep expired {} and purged {} reservation(s)", total, purged);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.adera.aderapos.sales.services;
+
+import com.adera.aderapos.sales.entities.Sale;
+
+import java.util.UUID;
+
+public interface ReservationService {
+    /**
+     * Reserve stock for a line added to an open sale.
+     *
+     * @param sale      the sale the line belongs to
+     * @param productId the UUID of the product
+     * @param quantity  the quantity to hold
+     */
+    void reserve(Sale sale, UUID productId, int quantity);
+
+    /**
+     * Turn all reservations of a sale into sold stock. Lines whose reservation
+     * already expired are charged against free stock instead.
+     *
+     * @param sale the finalized sale
+     */
+    void commit(Sale sale);
+
+    /**
+     * Give back all stock still reserved by a sale.
+     *
+     * @param sale the rejected or deleted sale
+     */
+    void release(Sale sale);
+
+    /**
+     * Expire one batch of past-due reservations and release their stock.
+     *
+     * @param batchSize the maximum number of reservations to expire
+     * @return the number of reservations expired
+     */
+    int expireBatch(int batchSize);
+}
@@ -0,0 +1,176 @@
+package com.adera.aderapos.sales.services;
+
+import com.adera.aderapos.common.exception.ApiException;
+import com.adera.aderapos.common.exception.InsufficientStockException;
+import com.adera.aderapos.product.cache.CatalogCache;
+import com.adera.aderapos.product.dtos.StockLineResult;
+import com.adera.aderapos.product.ledger.InventoryLedger;
+import com.adera.aderapos.product.repositories.InventoryRepository;
+import com.adera.aderapos.sales.entities.Sale;
+import com.adera.aderapos.sales.entities.StockReservation;
+import com.adera.aderapos.sales.repositories.StockReservationRepository;
+import com.adera.aderapos.security.utils.SecurityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * ReservationService implementation backed by {@code inventory.reserved}
+ * (or the inventory ledger when it is enabled).
+ */
+@Service
+public class ReservationServiceImpl implements ReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationServiceImpl.class);
+
+    private final StockReservationRepository reservationRepository;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryLedger inventoryLedger;
+    private final CatalogCache catalogCache;
+    private final Duration ttl;
+
+    public ReservationServiceImpl(StockReservationRepository reservationRepository,
+                                  InventoryRepository inventoryRepository,
+                                  InventoryLedger inventoryLedger,
+                                  CatalogCache catalogCache,
+                                  @Value("${aderapos.reservation.ttl-ms:900000}") long ttlMs) {
+        this.reservationRepository = reservationRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryLedger = inventoryLedger;
+        this.catalogCache = catalogCache;
+        this.ttl = Duration.ofMillis(ttlMs);
+    }
+
+    /**
+     * Reserves stock with one conditional update and records the reservation.
+     * @param sale the sale the line belongs to
+     * @param productId the UUID of the product
+     * @param quantity the quantity to hold
+     */
+    @Transactional
+    @Override
+    public void reserve(Sale sale, UUID productId, int quantity) {
+        if (quantity <= 0) {
+            throw new ApiException("Quantity must be positive");
+        }
+        UUID shopId = sale.getShop().getId();
+        String user = SecurityUtils.getCurrentUserId();
+        if (inventoryLedger.isEnabled()) {
+            inventoryLedger.adjust(shopId, productId, 0, quantity);
+        } else if (!inventoryRepository.reserveStock(productId, quantity, user)) {
+            throw new InsufficientStockException(List.of(StockLineResult.builder()
+                    .productId(productId)
+                    .requested(quantity)
+                    .applied(false)
+                    .build()));
+        }
+        catalogCache.invalidate(shopId);
+        reservationRepository.save(StockReservation.builder()
+                .saleId(sale.getId())
+                .shopId(shopId)
+                .productId(productId)
+                .quantity(quantity)
+                .expiresAt(Instant.now().plus(ttl))
+                .createdBy(user)
+                .build());
+    }
+
+    /**
+     * Claims the sale's reservations and commits them into sold stock. Only what was claimed is adjusted,
+     * so a hold released by a concurrent expiry sweep is never given back twice.
+     * @param sale the finalized sale
+     */
+    @Transactional
+    @Override
+    public void commit(Sale sale) {
+        List<StockReservation> reservations = reservationRepository.claimBySaleId(sale.getId());
+        if (reservations.isEmpty()) {
+            return;
+        }
+        Map<UUID, Integer> held = new LinkedHashMap<>();
+        Map<UUID, Integer> lapsed = new LinkedHashMap<>();
+        for (StockReservation r : reservations) {
+            (r.isExpired() ? lapsed : held).merge(r.getProductId(), r.getQuantity(), Integer::sum);
+        }
+        UUID shopId = sale.getShop().getId();
+        String user = SecurityUtils.getCurrentUserId();
+        if (inventoryLedger.isEnabled()) {
+            held.forEach((productId, q) -> inventoryLedger.adjust(shopId, productId, -q, -q));
+        } else {
+            inventoryRepository.commitReserved(held, user);
+        }
+        if (!lapsed.isEmpty()) {
+            // The hold was given back by the expiry sweep, so charge these lines against free stock
+            List<StockLineResult> results = inventoryLedger.isEnabled()
+                    ? inventoryLedger.decrement(shopId, lapsed)
+                    : inventoryRepository.decrementStock(lapsed, user);
+            List<StockLineResult> shortLines = results.stream().filter(r -> !r.isApplied()).toList();
+            if (!shortLines.isEmpty()) {
+                throw new InsufficientStockException(shortLines);
+            }
+        }
+        catalogCache.invalidate(shopId);
+        log.debug("Committed {} reservation(s) for sale {}", reservations.size(), sale.getId());
+    }
+
+    /**
+     * Claims the sale's reservations and releases the ones the expiry sweep has not released yet.
+     * @param sale the rejected or deleted sale
+     */
+    @Transactional
+    @Override
+    public void release(Sale sale) {
+        List<StockReservation> reservations = reservationRepository.claimBySaleId(sale.getId());
+        if (reservations.isEmpty()) {
+            return;
+        }
+        Map<UUID, Integer> held = new LinkedHashMap<>();
+        for (StockReservation r : reservations) {
+            if (!r.isExpired()) {
+                held.merge(r.getProductId(), r.getQuantity(), Integer::sum);
+            }
+        }
+        releaseStock(sale.getShop().getId(), held);
+        log.debug("Released {} reservation(s) for sale {}", reservations.size(), sale.getId());
+    }
+
+    /**
+     * Expires one batch of reservations: marks them in one statement, then
+     * releases the aggregated quantities per product.
+     * @param batchSize the maximum number of reservations to expire
+     * @return the number of reservations expired
+     */
+    @Transactional
+    @Override
+    public int expireBatch(int batchSize) {
+        List<StockReservation> expired = reservationRepository.markExpired(batchSize);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        Map<UUID, Map<UUID, Integer>> byShop = new HashMap<>();
+        for (StockReservation r : expired) {
+            byShop.computeIfAbsent(r.getShopId(), k -> new LinkedHashMap<>())
+                    .merge(r.getProductId(), r.getQuantity(), Integer::sum);
+        }
+        byShop.forEach(this::releaseStock);
+        return expired.size();
+    }
+
+    private void releaseStock(UUID shopId, Map<UUID, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        if (inventoryLedger.isEnabled()) {
+            quantities.forEach((productId, q) -> inventoryLedger.adjust(shopId, productId, 0, -q));
+        } else {
+            inventoryRepository.releaseReserved(quantities, SecurityUtils.getCurrentUserId());
+        }
+        catalogCache.invalidate(shopId);
+    }
+}
@@ -0,0 +1,145 @@
+package com.adera.aderapos.sales.services;
+
+import com.adera.aderapos.common.exception.ApiException;
+import com.adera.aderapos.sales.dtos.SaleDTO;
+import com.adera.aderapos.sales.dtos.SaleItemDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Makes sale submission idempotent per {@code (shop, idempotency key)}.
+ * <p>
+ * Concurrent submissions of the same key on this node collapse to one execution; the others wait for
+ * its result. Recently completed keys are answered from memory. Everything else falls back to the
+ * {@code (shop_id, idempotency_key)} unique index: a stored sale is returned as is, and a submission
+ * that loses the insert race on another node reads back the winner's sale.
+ * A replay must carry the same payment method and lines as the sale stored for its key; anything else is
+ * a reused key, not a retry, and is rejected.
+ * The supplied action must run and commit its own transaction, so a result is only shared once it is durable.
+ */
+@Component
+class SaleIdempotencyGuard {
+
+    static final int MAX_KEY_LENGTH = 64;
+
+    private record Key(UUID shopId, String value) {}
+
+    private final Map<Key, CompletableFuture<SaleDTO>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Key, SaleDTO> recent;
+
+    SaleIdempotencyGuard(@Value("${aderapos.sales.idempotency.cache-size:10000}") int cacheSize) {
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SaleDTO> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the sale stored for the key, or runs {@code create} once to make it.
+     *
+     * @param request the submitted sale, compared against a sale already stored for the key
+     * @param lookup finds a committed sale for the key in the database
+     * @param create creates and commits the sale
+     */
+    SaleDTO execute(UUID shopId, String idempotencyKey, SaleDTO request,
+                    Supplier<Optional<SaleDTO>> lookup, Supplier<SaleDTO> create) {
+        validate(idempotencyKey);
+        Key key = new Key(shopId, idempotencyKey);
+        SaleDTO cached = cached(key);
+        if (cached != null) {
+            return replayOf(request, cached);
+        }
+        CompletableFuture<SaleDTO> mine = new CompletableFuture<>();
+        CompletableFuture<SaleDTO> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return replayOf(request, await(running));
+        }
+        try {
+            Optional<SaleDTO> stored = lookup.get();
+            SaleDTO result = stored.orElseGet(() -> {
+                try {
+                    return create.get();
+                } catch (DataIntegrityViolationException e) {
+                    // Another node committed the same key first
+                    return lookup.get().orElseThrow(() -> e);
+                }
+            });
+            remember(key, result);
+            mine.complete(result);
+            return stored.isPresent() ? replayOf(request, result) : result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    static void validate(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ApiException("Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    /**
+     * Returns the stored sale if the request is a replay of it, else rejects the reused key.
+     */
+    private static SaleDTO replayOf(SaleDTO request, SaleDTO stored) {
+        if (request.getPaymentMethod() != stored.getPaymentMethod() || !lines(request).equals(lines(stored))) {
+            throw new ApiException("Idempotency key " + request.getIdempotencyKey()
+                    + " was already used for a different sale");
+        }
+        return stored;
+    }
+
+    /**
+     * Quantity per product and unit price, so line order and split lines do not matter.
+     */
+    private static Map<String, Integer> lines(SaleDTO sale) {
+        Map<String, Integer> lines = new HashMap<>();
+        if (sale.getSaleItems() != null) {
+            for (SaleItemDTO item : sale.getSaleItems()) {
+                String price = item.getUnitPrice() != null ? item.getUnitPrice().stripTrailingZeros().toPlainString() : null;
+                lines.merge(item.getProductId() + "@" + price,
+                        item.getQuantity() != null ? item.getQuantity() : 0, Integer::sum);
+            }
+        }
+        return lines;
+    }
+
+    private SaleDTO cached(Key key) {
+        synchronized (recent) {
+            return recent.get(key);
+        }
+    }
+
+    private void remember(Key key, SaleDTO sale) {
+        synchronized (recent) {
+            recent.put(key, sale);
+        }
+    }
+
+    private static SaleDTO await(CompletableFuture<SaleDTO> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
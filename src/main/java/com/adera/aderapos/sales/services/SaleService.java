@@ -1,22 +1,42 @@
 package com.adera.aderapos.sales.services;
 
+import com.adera.aderapos.common.paging.CursorPage;
 import com.adera.aderapos.sales.dtos.SaleDTO;
 import com.adera.aderapos.sales.dtos.SaleItemDTO;
+import com.adera.aderapos.sales.dtos.SaleSyncResultDTO;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface SaleService {
     /**
-     * Create a new Sale.
+     * Create a new Sale. A sale carrying an idempotency key is created at most once per shop;
+     * repeating the key returns the original sale.
      *
      * @param saleDTO the SaleDTO containing sale details
      * @return the created SaleDTO
      */
-    @Transactional
     SaleDTO createSale(SaleDTO saleDTO);
 
+    /**
+     * Queue a Sale on disk to be written later, without waiting for the database.
+     * The sale needs an idempotency key, which identifies it once it is stored.
+     *
+     * @param saleDTO the SaleDTO containing sale details
+     */
+    void queueSale(SaleDTO saleDTO);
+
+    /**
+     * Look up what became of a queued sale: stored, rejected by the replay, or still pending.
+     *
+     * @param shopId         the shop, or null for the caller's shop
+     * @param idempotencyKey the key the sale was queued with
+     * @return the outcome; {@code saleId} is set once stored, {@code message} when rejected
+     */
+    SaleSyncResultDTO getQueuedSaleOutcome(UUID shopId, String idempotencyKey);
+
     /**
      * Get a Sale by its ID.
      *
@@ -26,19 +46,32 @@ public interface SaleService {
     SaleDTO getSaleById(UUID id);
 
     /**
-     * Get all Sales for a specific Shop.
+     * Get a page of Sales for a specific Shop, newest first.
      *
      * @param shopId the UUID of the shop
-     * @return list of SaleDTOs
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the page size
+     * @return page of SaleDTOs
+     */
+    CursorPage<SaleDTO> getSalesByShop(UUID shopId, String cursor, int limit);
+
+    /**
+     * Get a page of all Sales, newest first.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the page size
+     * @return page of SaleDTOs
      */
-    List<SaleDTO> getSalesByShop(UUID shopId);
+    CursorPage<SaleDTO> getAllSales(String cursor, int limit);
 
     /**
-     * Get all Sales.
+     * Stream Sales, newest first, reading them from a database cursor.
      *
-     * @return list of all SaleDTOs
+     * @param shopId the UUID of the shop, or null for all sales
+     * @param sink   receives each SaleDTO as it is read
      */
-    List<SaleDTO> getAllSales();
+    @Transactional(readOnly = true)
+    void streamSales(UUID shopId, Consumer<SaleDTO> sink);
 
     /**
      * Delete a Sale by its ID.
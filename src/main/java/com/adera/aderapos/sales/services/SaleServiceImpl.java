@@ -1,20 +1,28 @@
 package com.adera.aderapos.sales.services;
 
+import com.adera.aderapos.common.exception.ApiException;
+import com.adera.aderapos.common.exception.InsufficientStockException;
+import com.adera.aderapos.common.paging.Cursor;
+import com.adera.aderapos.common.paging.CursorPage;
+import com.adera.aderapos.common.paging.EntityStreams;
 import com.adera.aderapos.identity.entities.AppUser;
 import com.adera.aderapos.identity.entities.Shop;
 import com.adera.aderapos.identity.repositories.AppUserRepository;
 import com.adera.aderapos.identity.repositories.ShopRepository;
-import com.adera.aderapos.product.dtos.ProductRequestDTO;
-import com.adera.aderapos.product.entities.Inventory;
-import com.adera.aderapos.product.entities.Product;
+import com.adera.aderapos.product.cache.CatalogCache;
+import com.adera.aderapos.product.dtos.StockLineResult;
+import com.adera.aderapos.product.ledger.InventoryLedger;
 import com.adera.aderapos.product.repositories.InventoryRepository;
-import com.adera.aderapos.product.repositories.ProductRepository;
+import com.adera.aderapos.reporting.services.SalesRollupDelta;
+import com.adera.aderapos.reporting.services.SalesRollupService;
 import com.adera.aderapos.sales.dtos.SaleDTO;
 import com.adera.aderapos.sales.dtos.SaleItemDTO;
+import com.adera.aderapos.sales.dtos.SaleSyncResultDTO;
 import com.adera.aderapos.sales.entities.Sale;
 import com.adera.aderapos.sales.entities.SaleItem;
 import com.adera.aderapos.sales.entities.enums.SaleStatus;
 import com.adera.aderapos.sales.mapper.SaleMapper;
+import com.adera.aderapos.sales.repositories.OfflineSaleRejectionRepository;
 import com.adera.aderapos.sales.repositories.SaleItemRepository;
 import com.adera.aderapos.sales.repositories.SaleRepository;
 import com.adera.aderapos.security.utils.SecurityUtils;
@@ -22,18 +30,26 @@ import com.adera.aderapos.audit.services.AuditService;
 import com.adera.aderapos.audit.entities.enums.AuditAction;
 import com.adera.aderapos.audit.entities.enums.AuditEntityType;
 import com.adera.aderapos.audit.entities.enums.AuditSeverity;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * SaleService implementation for managing sales operations.
@@ -51,15 +67,91 @@ public class SaleServiceImpl implements SaleService{
     private final SaleMapper saleMapper;
     private final AuditService auditService;
     private final InventoryRepository inventoryRepository;
+    private final InventoryLedger inventoryLedger;
+    private final ReservationService reservationService;
+    private final EntityManager entityManager;
+    private final CatalogCache catalogCache;
+    private final SaleIdempotencyGuard idempotencyGuard;
+    private final TransactionTemplate transactionTemplate;
+    private final OfflineSaleQueue offlineSaleQueue;
+    private final OfflineSaleRejectionRepository offlineSaleRejectionRepository;
+    private final SalesRollupService salesRollupService;
 
     /**
-     * Creates a new sale.
+     * Creates a new sale. With an idempotency key, a replayed submission returns the original sale
+     * without touching stock again; a different sale under a used key is rejected.
      * @param saleDTO the DTO containing sale details
      * @return the created SaleDTO
      */
-    @Transactional
     @Override
     public SaleDTO createSale(SaleDTO saleDTO) {
+        String idempotencyKey = saleDTO.getIdempotencyKey();
+        if (idempotencyKey == null) {
+            return transactionTemplate.execute(status -> insertSale(saleDTO));
+        }
+        return idempotencyGuard.execute(saleDTO.getShopId(), idempotencyKey, saleDTO,
+                () -> saleRepository.findByShopIdAndIdempotencyKey(saleDTO.getShopId(), idempotencyKey)
+                        .map(saleMapper::toDto),
+                () -> transactionTemplate.execute(status -> insertSale(saleDTO)));
+    }
+
+    /**
+     * Appends the sale to the offline queue; it is stored by the next replay, keeping its ring-up time.
+     * @param saleDTO the DTO containing sale details
+     */
+    @Override
+    public void queueSale(SaleDTO saleDTO) {
+        String idempotencyKey = saleDTO.getIdempotencyKey();
+        if (idempotencyKey == null || idempotencyKey.isBlank()
+                || idempotencyKey.length() > SaleIdempotencyGuard.MAX_KEY_LENGTH) {
+            throw new ApiException("Idempotency key must be 1 to " + SaleIdempotencyGuard.MAX_KEY_LENGTH + " characters");
+        }
+        if (saleDTO.getShopId() == null || saleDTO.getSaleItems() == null || saleDTO.getSaleItems().isEmpty()) {
+            throw new ApiException("Sale must name a shop and contain at least one item");
+        }
+        if (saleDTO.getCreatedAt() == null) {
+            saleDTO.setCreatedAt(Instant.now());
+        }
+        offlineSaleQueue.enqueue(UUID.fromString(SecurityUtils.getCurrentUserId()), saleDTO);
+        log.debug("Queued sale {} for shopId={}", idempotencyKey, saleDTO.getShopId());
+    }
+
+    /**
+     * Reports a queued sale as stored, rejected or pending. A stored sale wins over an earlier rejection
+     * of the same key.
+     * @param shopId the shop, or null for the caller's shop
+     * @param idempotencyKey the key the sale was queued with
+     * @return the outcome of the queued sale
+     */
+    @Override
+    public SaleSyncResultDTO getQueuedSaleOutcome(UUID shopId, String idempotencyKey) {
+        UUID targetShop = shopId != null ? shopId : SecurityUtils.getCurrentShopId();
+        if (targetShop == null) {
+            throw new ApiException("Shop ID is required");
+        }
+        SaleIdempotencyGuard.validate(idempotencyKey);
+        SaleSyncResultDTO outcome = SaleSyncResultDTO.builder()
+                .idempotencyKey(idempotencyKey)
+                .status(SaleSyncResultDTO.Status.PENDING)
+                .build();
+        Optional<Sale> sale = saleRepository.findByShopIdAndIdempotencyKey(targetShop, idempotencyKey);
+        if (sale.isPresent()) {
+            outcome.setStatus(SaleSyncResultDTO.Status.ACCEPTED);
+            outcome.setSaleId(sale.get().getId());
+            return outcome;
+        }
+        offlineSaleRejectionRepository.findByShopIdAndIdempotencyKey(targetShop, idempotencyKey)
+                .ifPresent(rejection -> {
+                    outcome.setStatus(SaleSyncResultDTO.Status.REJECTED);
+                    outcome.setMessage(rejection.getReason());
+                });
+        return outcome;
+    }
+
+    /**
+     * Decrements stock and writes the sale; runs inside the caller's transaction.
+     */
+    private SaleDTO insertSale(SaleDTO saleDTO) {
         log.info("Creating sale for shopId={}, userId={}", saleDTO.getShopId(), SecurityUtils.getCurrentUserId());
         UUID userId = UUID.fromString(SecurityUtils.getCurrentUserId());
 //        UUID userId = UUID.fromString("ce2c8794-c62c-4ad4-bffc-5b612078dbc4"); // Temporary for testing without security
@@ -73,11 +165,15 @@ public class SaleServiceImpl implements SaleService{
 //        }
         log.debug("User authorized for shop: {}", shop.getName());
 
+        // Decrement stock for all lines in one statement before writing the sale
+        decrementStock(shop.getId(), saleDTO.getSaleItems(), user.getUsername());
+
         // Map DTO → Entity
         Sale sale = Sale.builder()
                 .shop(shop)
                 .user(user)
                 .paymentMethod(saleDTO.getPaymentMethod())
+                .idempotencyKey(saleDTO.getIdempotencyKey())
                 .status(SaleStatus.SALE_CREATED)
                 .createdAt(Instant.now())
                 .createdBy(user.getUsername())
@@ -97,19 +193,7 @@ public class SaleServiceImpl implements SaleService{
         sale.setSaleItems(items);
         calculateTotals(sale);
         Sale saved = saleRepository.save(sale);
-
-        List<SaleItemDTO> saleItems = saleDTO.getSaleItems();
-        for (SaleItemDTO item : saleItems) {
-            Inventory inventory = inventoryRepository.findByProduct(
-                    Product.builder().id(item.getProductId()).build()
-            ).orElseThrow(() -> new RuntimeException("Inventory not found for product " + item.getProductId()));
-            if (inventory.getQuantity() < item.getQuantity()) {
-                throw new RuntimeException("Insufficient inventory for product " + item.getProductId());
-            }
-            inventory.setQuantity(inventory.getQuantity() - item.getQuantity());
-            inventoryRepository.save(inventory);
-            log.debug("Updated inventory for product {}: new quantity={}", item.getProductId(), inventory.getQuantity());
-        }
+        salesRollupService.record(saved);
 
         auditService.log(
             AuditAction.CREATE,
@@ -139,24 +223,47 @@ public class SaleServiceImpl implements SaleService{
     /**
      * Retrieves sales by shop ID.
      * @param shopId the UUID of the shop
-     * @return a list of SaleDTOs associated with the shop
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param limit the page size
+     * @return a page of SaleDTOs associated with the shop
      */
     @Override
-    public List<SaleDTO> getSalesByShop(UUID shopId) {
-        Shop shop = shopRepository.findById(shopId)
-                .orElseThrow(() -> new RuntimeException("Shop not found"));
-        List<Sale> sales = saleRepository.findByShop(shop);
-        return sales.stream().map(saleMapper::toDto).collect(Collectors.toList());
+    public CursorPage<SaleDTO> getSalesByShop(UUID shopId, String cursor, int limit) {
+        if (!shopRepository.existsById(shopId)) {
+            throw new RuntimeException("Shop not found");
+        }
+        Cursor after = Cursor.decode(cursor);
+        List<Sale> sales = saleRepository.findPageByShop(shopId, after.at(), after.id(), Limit.of(limit + 1));
+        return CursorPage.of(sales, limit, SaleServiceImpl::cursorOf).map(saleMapper::toDto);
     }
 
     /**
-     * Retrieves all sales.
-     * @return a list of all SaleDTOs
+     * Retrieves a page of all sales.
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param limit the page size
+     * @return a page of SaleDTOs
      */
     @Override
-    public List<SaleDTO> getAllSales() {
-        List<Sale> sales = saleRepository.findAll();
-        return sales.stream().map(saleMapper::toDto).collect(Collectors.toList());
+    public CursorPage<SaleDTO> getAllSales(String cursor, int limit) {
+        Cursor after = Cursor.decode(cursor);
+        List<Sale> sales = saleRepository.findPage(after.at(), after.id(), Limit.of(limit + 1));
+        return CursorPage.of(sales, limit, SaleServiceImpl::cursorOf).map(saleMapper::toDto);
+    }
+
+    /**
+     * Streams sales from a database cursor, keeping only a bounded number of entities in memory.
+     * @param shopId the UUID of the shop, or null for all sales
+     * @param sink receives each SaleDTO
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public void streamSales(UUID shopId, Consumer<SaleDTO> sink) {
+        Stream<Sale> sales = shopId != null ? saleRepository.streamByShop(shopId) : saleRepository.streamAll();
+        EntityStreams.forEach(sales, entityManager, sale -> sink.accept(saleMapper.toDto(sale)));
+    }
+
+    private static Cursor cursorOf(Sale sale) {
+        return new Cursor(sale.getCreatedAt(), sale.getId());
     }
 
     /**
@@ -171,6 +278,8 @@ public class SaleServiceImpl implements SaleService{
                 .orElseThrow(() -> new RuntimeException("Sale not found"));
         AppUser user = userRepository.findById(UUID.fromString(SecurityUtils.getCurrentUserId()))
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        // Rebook the sale with its new line
+        SalesRollupDelta rollup = salesRollupService.newDelta().add(sale, -1);
         SaleItem item = saleMapper.toEntity(itemDTO);
         item.setSale(sale);
         item.setTotalPrice(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
@@ -178,9 +287,11 @@ public class SaleServiceImpl implements SaleService{
         item.setCreatedBy(user.getUsername());
         item.setUpdatedAt(Instant.now());
         item.setUpdatedBy(user.getUsername());
+        reservationService.reserve(sale, item.getProductId(), item.getQuantity());
         sale.getSaleItems().add(item);
         calculateTotals(sale);
         saleRepository.save(sale);
+        salesRollupService.apply(rollup.add(sale, 1));
         auditService.log(
             AuditAction.UPDATE,
             AuditEntityType.SALE,
@@ -201,6 +312,8 @@ public class SaleServiceImpl implements SaleService{
     public void deleteSale(UUID id) {
         Sale sale = saleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Sale not found"));
+        reservationService.release(sale);
+        salesRollupService.apply(salesRollupService.newDelta().add(sale, -1));
         saleRepository.delete(sale);
         String currentUserId = SecurityUtils.getCurrentUserId();
         auditService.log(
@@ -225,12 +338,23 @@ public class SaleServiceImpl implements SaleService{
     public SaleDTO updateSale(UUID id, SaleDTO saleDTO) {
         Sale sale = saleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Sale not found"));
+        SaleStatus previous = sale.getStatus();
+        // Rebook the sale, so a new status or payment method moves it between rollups
+        SalesRollupDelta rollup = salesRollupService.newDelta().add(sale, -1);
         sale.setPaymentMethod(saleDTO.getPaymentMethod());
         sale.setStatus(saleDTO.getStatus());
+        if (saleDTO.getStatus() != null && saleDTO.getStatus().isFinal() && !previous.isFinal()) {
+            if (saleDTO.getStatus() == SaleStatus.REJECTED) {
+                reservationService.release(sale);
+            } else {
+                reservationService.commit(sale);
+            }
+        }
         sale.setUpdatedAt(Instant.now());
         sale.setUpdatedBy(SecurityUtils.getCurrentUserId());
         calculateTotals(sale);
         Sale updated = saleRepository.save(sale);
+        salesRollupService.apply(rollup.add(updated, 1));
         String updateUserId = SecurityUtils.getCurrentUserId();
         auditService.log(
             AuditAction.UPDATE,
@@ -256,6 +380,38 @@ public class SaleServiceImpl implements SaleService{
         return sale.getSaleItems().stream().map(saleMapper::toDto).collect(Collectors.toList());
     }
 
+    /**
+     * Decrements inventory for every line of a sale with a single conditional update,
+     * or through the in-memory ledger when it is enabled.
+     * Lines for the same product are merged first; if any product is short the whole
+     * sale is rejected and the transaction rolls back the lines that were applied.
+     * @param shopId the shop selling the items
+     * @param saleItems the requested sale lines
+     * @param username the user recorded on the inventory rows
+     */
+    private void decrementStock(UUID shopId, List<SaleItemDTO> saleItems, String username) {
+        if (saleItems == null || saleItems.isEmpty()) {
+            throw new ApiException("Sale must contain at least one item");
+        }
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        for (SaleItemDTO item : saleItems) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new ApiException("Invalid sale item: product and positive quantity are required");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        List<StockLineResult> results = inventoryLedger.isEnabled()
+                ? inventoryLedger.decrement(shopId, quantities)
+                : inventoryRepository.decrementStock(quantities, username);
+        List<StockLineResult> shortLines = results.stream().filter(r -> !r.isApplied()).toList();
+        if (!shortLines.isEmpty()) {
+            log.warn("Rejecting sale, insufficient stock: {}", shortLines);
+            throw new InsufficientStockException(shortLines);
+        }
+        catalogCache.invalidate(shopId);
+        log.debug("Decremented inventory for {} product(s)", results.size());
+    }
+
     /**
      * Calculates and updates the total amount of the sale.
      * @param sale the Sale entity
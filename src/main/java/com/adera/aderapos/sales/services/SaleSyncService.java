@@ -0,0 +1,26 @@
+package com.adera.aderapos.sales.services;
+
+import com.adera.aderapos.sales.dtos.SaleDTO;
+import com.adera.aderapos.sales.dtos.SaleSyncResultDTO;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface SaleSyncService {
+    /**
+     * Ingest sales queued by an offline till.
+     *
+     * @param sales the queued sales in the order they were rung up; each needs an idempotency key
+     * @return one result per sale, in request order
+     */
+    List<SaleSyncResultDTO> syncSales(List<SaleDTO> sales);
+
+    /**
+     * Ingest queued sales on behalf of a user, for callers without a request context.
+     *
+     * @param sales  the queued sales in the order they were rung up; each needs an idempotency key
+     * @param userId the user who rang the sales up
+     * @return one result per sale, in request order
+     */
+    List<SaleSyncResultDTO> syncSales(List<SaleDTO> sales, UUID userId);
+}
@@ -0,0 +1,321 @@
+package com.adera.aderapos.sales.services;
+
+import com.adera.aderapos.audit.entities.enums.AuditAction;
+import com.adera.aderapos.audit.entities.enums.AuditEntityType;
+import com.adera.aderapos.audit.entities.enums.AuditSeverity;
+import com.adera.aderapos.audit.services.AuditService;
+import com.adera.aderapos.common.exception.ApiException;
+import com.adera.aderapos.identity.entities.AppUser;
+import com.adera.aderapos.identity.entities.Shop;
+import com.adera.aderapos.identity.repositories.AppUserRepository;
+import com.adera.aderapos.identity.repositories.ShopRepository;
+import com.adera.aderapos.product.cache.CatalogCache;
+import com.adera.aderapos.product.dtos.StockLineResult;
+import com.adera.aderapos.product.ledger.InventoryLedger;
+import com.adera.aderapos.product.repositories.InventoryRepository;
+import com.adera.aderapos.reporting.services.SalesRollupDelta;
+import com.adera.aderapos.reporting.services.SalesRollupService;
+import com.adera.aderapos.sales.dtos.SaleDTO;
+import com.adera.aderapos.sales.dtos.SaleItemDTO;
+import com.adera.aderapos.sales.dtos.SaleSyncResultDTO;
+import com.adera.aderapos.sales.dtos.SaleSyncResultDTO.Status;
+import com.adera.aderapos.sales.entities.Sale;
+import com.adera.aderapos.sales.entities.SaleItem;
+import com.adera.aderapos.sales.entities.enums.SaleStatus;
+import com.adera.aderapos.sales.mapper.SaleMapper;
+import com.adera.aderapos.sales.repositories.SaleRepository;
+import com.adera.aderapos.security.utils.SecurityUtils;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Ingests an offline till's queued sales in one transaction per shop.
+ * <p>
+ * Keys already stored are reported as duplicates. Stock for all referenced products is locked and
+ * read with one query; sales are then checked in request order against the running free stock, so an
+ * earlier sale wins when stock runs out. The accepted sales' stock is decremented with one aggregated
+ * UPDATE, and sales with their items are inserted through Hibernate's JDBC batching.
+ */
+@Service
+public class SaleSyncServiceImpl implements SaleSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(SaleSyncServiceImpl.class);
+    private static final int FLUSH_EVERY = 200;
+
+    private final SaleRepository saleRepository;
+    private final ShopRepository shopRepository;
+    private final AppUserRepository userRepository;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryLedger inventoryLedger;
+    private final CatalogCache catalogCache;
+    private final SaleMapper saleMapper;
+    private final AuditService auditService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final SalesRollupService salesRollupService;
+    private final int maxBatchSize;
+
+    public SaleSyncServiceImpl(SaleRepository saleRepository,
+                               ShopRepository shopRepository,
+                               AppUserRepository userRepository,
+                               InventoryRepository inventoryRepository,
+                               InventoryLedger inventoryLedger,
+                               CatalogCache catalogCache,
+                               SaleMapper saleMapper,
+                               AuditService auditService,
+                               EntityManager entityManager,
+                               TransactionTemplate transactionTemplate,
+                               SalesRollupService salesRollupService,
+                               @Value("${aderapos.sales.sync.max-batch-size:5000}") int maxBatchSize) {
+        this.saleRepository = saleRepository;
+        this.shopRepository = shopRepository;
+        this.userRepository = userRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryLedger = inventoryLedger;
+        this.catalogCache = catalogCache;
+        this.saleMapper = saleMapper;
+        this.auditService = auditService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.salesRollupService = salesRollupService;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public List<SaleSyncResultDTO> syncSales(List<SaleDTO> sales) {
+        return syncSales(sales, UUID.fromString(SecurityUtils.getCurrentUserId()));
+    }
+
+    @Override
+    public List<SaleSyncResultDTO> syncSales(List<SaleDTO> sales, UUID userId) {
+        if (sales == null || sales.isEmpty()) {
+            return List.of();
+        }
+        if (sales.size() > maxBatchSize) {
+            throw new ApiException("Sync batch exceeds " + maxBatchSize + " sales");
+        }
+        SaleSyncResultDTO[] results = new SaleSyncResultDTO[sales.size()];
+        Map<UUID, List<Integer>> byShop = new LinkedHashMap<>();
+        for (int i = 0; i < sales.size(); i++) {
+            String error = validate(sales.get(i));
+            if (error != null) {
+                results[i] = result(i, sales.get(i), Status.REJECTED, null, error);
+            } else {
+                byShop.computeIfAbsent(sales.get(i).getShopId(), k -> new ArrayList<>()).add(i);
+            }
+        }
+        byShop.forEach((shopId, indexes) -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> syncShop(shopId, indexes, sales, userId, results));
+            } catch (DataIntegrityViolationException e) {
+                // Another submission stored one of the keys first; a second pass reports it as a duplicate
+                log.warn("Sync for shop {} raced on an idempotency key, retrying once", shopId);
+                transactionTemplate.executeWithoutResult(status -> syncShop(shopId, indexes, sales, userId, results));
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    private void syncShop(UUID shopId, List<Integer> indexes, List<SaleDTO> sales, UUID userId,
+                          SaleSyncResultDTO[] results) {
+        // Clear outcomes of a rolled back first pass
+        indexes.forEach(i -> results[i] = null);
+        Optional<Shop> shop = shopRepository.findById(shopId);
+        if (shop.isEmpty()) {
+            indexes.forEach(i -> results[i] = result(i, sales.get(i), Status.REJECTED, null, "Shop not found"));
+            return;
+        }
+        AppUser user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        // Deduplicate against stored sales and within the batch; the first occurrence of a key is the one applied
+        Set<String> keys = new LinkedHashSet<>();
+        indexes.forEach(i -> keys.add(sales.get(i).getIdempotencyKey()));
+        Map<String, UUID> stored = saleRepository.findIdsByIdempotencyKeys(shopId, keys);
+        Map<String, Integer> firstIndex = new HashMap<>();
+        List<Integer> candidates = new ArrayList<>();
+        Set<UUID> productIds = new HashSet<>();
+        for (int i : indexes) {
+            SaleDTO dto = sales.get(i);
+            UUID existing = stored.get(dto.getIdempotencyKey());
+            if (existing != null) {
+                results[i] = result(i, dto, Status.DUPLICATE, existing, null);
+            } else if (firstIndex.putIfAbsent(dto.getIdempotencyKey(), i) == null) {
+                candidates.add(i);
+                dto.getSaleItems().forEach(item -> productIds.add(item.getProductId()));
+            }
+        }
+
+        boolean ledger = inventoryLedger.isEnabled();
+        Map<UUID, Integer> available = ledger ? Map.of() : inventoryRepository.lockAvailable(shopId, productIds);
+        Map<UUID, Integer> totals = new LinkedHashMap<>();
+        SalesRollupDelta rollup = salesRollupService.newDelta();
+        int accepted = 0;
+        for (int i : candidates) {
+            SaleDTO dto = sales.get(i);
+            Map<UUID, Integer> quantities = quantities(dto);
+            String shortage = ledger ? decrementLedger(shopId, quantities) : reserve(available, quantities);
+            if (shortage != null) {
+                results[i] = result(i, dto, Status.REJECTED, null, shortage);
+                continue;
+            }
+            quantities.forEach((productId, quantity) -> totals.merge(productId, quantity, Integer::sum));
+            Sale sale = toSale(dto, shop.get(), user);
+            entityManager.persist(sale);
+            rollup.add(sale, 1);
+            results[i] = result(i, dto, Status.ACCEPTED, sale.getId(), null);
+            if (++accepted % FLUSH_EVERY == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        if (!ledger && !totals.isEmpty()) {
+            // The rows are locked, so the aggregated decrement cannot come up short
+            boolean applied = inventoryRepository.decrementStock(totals, user.getUsername()).stream()
+                    .allMatch(StockLineResult::isApplied);
+            if (!applied) {
+                throw new IllegalStateException("Locked stock changed during sync for shop " + shopId);
+            }
+        }
+        salesRollupService.apply(rollup);
+
+        // Later copies of a key in the same batch share the outcome of the first
+        for (int i : indexes) {
+            if (results[i] == null) {
+                SaleSyncResultDTO first = results[firstIndex.get(sales.get(i).getIdempotencyKey())];
+                Status status = first.getStatus() == Status.REJECTED ? Status.REJECTED : Status.DUPLICATE;
+                results[i] = result(i, sales.get(i), status, first.getSaleId(), first.getMessage());
+            }
+        }
+        if (accepted > 0) {
+            catalogCache.invalidate(shopId);
+        }
+        long duplicates = indexes.stream().filter(i -> results[i].getStatus() == Status.DUPLICATE).count();
+        auditService.log(
+            AuditAction.SYNC,
+            AuditEntityType.SALE,
+            shopId,
+            user.getId(),
+            user.getRole() != null ? user.getRole().name() : null,
+            AuditSeverity.LOW,
+            String.format("Offline sync: %d accepted, %d duplicate, %d rejected",
+                    accepted, duplicates, indexes.size() - accepted - duplicates)
+        );
+        log.info("Synced {} sale(s) for shop {}: {} accepted, {} duplicate", indexes.size(), shopId, accepted, duplicates);
+    }
+
+    /**
+     * Takes a sale's quantities from the running free stock, all lines or none.
+     *
+     * @return null when taken, otherwise the reason for rejecting the sale
+     */
+    private static String reserve(Map<UUID, Integer> available, Map<UUID, Integer> quantities) {
+        for (Map.Entry<UUID, Integer> line : quantities.entrySet()) {
+            Integer free = available.get(line.getKey());
+            if (free == null) {
+                return "Unknown product " + line.getKey();
+            }
+            if (free < line.getValue()) {
+                return "Insufficient stock for product " + line.getKey();
+            }
+        }
+        quantities.forEach((productId, quantity) -> available.merge(productId, -quantity, Integer::sum));
+        return null;
+    }
+
+    private String decrementLedger(UUID shopId, Map<UUID, Integer> quantities) {
+        List<StockLineResult> lines = inventoryLedger.decrement(shopId, quantities);
+        if (lines.stream().allMatch(StockLineResult::isApplied)) {
+            return null;
+        }
+        return lines.stream()
+                .filter(line -> line.getAvailable() == null || line.getAvailable() < line.getRequested())
+                .findFirst()
+                .map(line -> line.getAvailable() == null
+                        ? "Unknown product " + line.getProductId()
+                        : "Insufficient stock for product " + line.getProductId())
+                .orElse("Insufficient stock");
+    }
+
+    private Sale toSale(SaleDTO dto, Shop shop, AppUser user) {
+        Instant now = Instant.now();
+        Instant ringUp = dto.getCreatedAt() != null && !dto.getCreatedAt().isAfter(now) ? dto.getCreatedAt() : now;
+        Sale sale = Sale.builder()
+                .shop(shop)
+                .user(user)
+                .paymentMethod(dto.getPaymentMethod())
+                .idempotencyKey(dto.getIdempotencyKey())
+                .status(SaleStatus.SALE_CREATED)
+                .createdAt(ringUp)
+                .createdBy(user.getUsername())
+                .updatedBy(user.getUsername())
+                .build();
+        List<SaleItem> items = new ArrayList<>(dto.getSaleItems().size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (SaleItemDTO itemDTO : dto.getSaleItems()) {
+            SaleItem item = saleMapper.toEntity(itemDTO);
+            item.setId(null);
+            item.setSale(sale);
+            if (item.getTotalPrice() == null) {
+                item.setTotalPrice(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            }
+            item.setCreatedAt(now);
+            item.setCreatedBy(user.getUsername());
+            item.setUpdatedAt(now);
+            item.setUpdatedBy(user.getUsername());
+            items.add(item);
+            total = total.add(item.getTotalPrice());
+        }
+        sale.setSaleItems(items);
+        sale.setTotalAmount(total);
+        return sale;
+    }
+
+    private static Map<UUID, Integer> quantities(SaleDTO dto) {
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        dto.getSaleItems().forEach(item -> quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum));
+        return quantities;
+    }
+
+    private static String validate(SaleDTO dto) {
+        if (dto == null) {
+            return "Sale is empty";
+        }
+        if (dto.getIdempotencyKey() == null || dto.getIdempotencyKey().isBlank()
+                || dto.getIdempotencyKey().length() > SaleIdempotencyGuard.MAX_KEY_LENGTH) {
+            return "Idempotency key must be 1 to " + SaleIdempotencyGuard.MAX_KEY_LENGTH + " characters";
+        }
+        if (dto.getShopId() == null || dto.getPaymentMethod() == null) {
+            return "Shop and payment method are required";
+        }
+        if (dto.getSaleItems() == null || dto.getSaleItems().isEmpty()) {
+            return "Sale must contain at least one item";
+        }
+        for (SaleItemDTO item : dto.getSaleItems()) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0
+                    || item.getUnitPrice() == null) {
+                return "Invalid sale item: product, positive quantity and unit price are required";
+            }
+        }
+        return null;
+    }
+
+    private static SaleSyncResultDTO result(int index, SaleDTO dto, Status status, UUID saleId, String message) {
+        return SaleSyncResultDTO.builder()
+                .index(index)
+                .idempotencyKey(dto != null ? dto.getIdempotencyKey() : null)
+                .status(status)
+                .saleId(saleId)
+                .message(message)
+                .build();
+    }
+}
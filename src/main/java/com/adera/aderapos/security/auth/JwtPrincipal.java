@@ -0,0 +1,25 @@
+package com.adera.aderapos.security.auth;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Claims of a verified JWT, stored as the principal of the authenticated request.
+ *
+ * @param userId    the user ID (token subject)
+ * @param shopId    the shop the user belongs to
+ * @param role      the user role, without the "ROLE_" prefix
+ * @param expiresAt when the token expires
+ */
+public record JwtPrincipal(UUID userId, UUID shopId, String role, Instant expiresAt) implements Principal {
+
+    @Override
+    public String getName() {
+        return userId.toString();
+    }
+
+    public boolean isExpired() {
+        return !Instant.now().isBefore(expiresAt);
+    }
+}
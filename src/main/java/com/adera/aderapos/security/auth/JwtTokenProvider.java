@@ -2,20 +2,47 @@ package com.adera.aderapos.security.auth;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for generating and validating JWT tokens.
+ * <p>
+ * A token is verified once and turned into a {@link JwtPrincipal}. Recently verified tokens
+ * are cached by their SHA-256 digest until they expire, so a client sending the same token
+ * on every request skips signature verification and claim parsing.
  */
 @Component
 public class JwtTokenProvider {
 
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
     private final long expirationMs = 900_000; // 15 min
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(key).build();
+    private final Map<ByteBuffer, JwtPrincipal> verified = new ConcurrentHashMap<>();
+    private final int cacheSize;
+
+    public JwtTokenProvider(@Value("${aderapos.jwt.cache-size:10000}") int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
 
     /**
      * Generate JWT token
@@ -37,53 +64,57 @@ public class JwtTokenProvider {
     }
 
     /**
-     * Validate JWT token
+     * Verify a JWT token and extract its claims
      *
      * @param token the JWT token
-     * @return true if valid, false otherwise
+     * @return the principal, or empty if the token is invalid or expired
      */
-    public boolean validateToken(String token) {
+    public Optional<JwtPrincipal> parse(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        ByteBuffer digest = ByteBuffer.wrap(SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+        JwtPrincipal cached = verified.get(digest);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return Optional.of(cached);
+            }
+            verified.remove(digest);
+            return Optional.empty();
+        }
+        JwtPrincipal principal;
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            principal = new JwtPrincipal(
+                    UUID.fromString(claims.getSubject()),
+                    UUID.fromString(claims.get("shopId", String.class)),
+                    claims.get("role", String.class),
+                    claims.getExpiration().toInstant());
+        } catch (JwtException | IllegalArgumentException | NullPointerException e) {
+            return Optional.empty();
         }
+        if (verified.size() >= cacheSize) {
+            evict();
+        }
+        verified.put(digest, principal);
+        return Optional.of(principal);
     }
 
     /**
-     * Extract userId
-     *
-     * @param token the JWT token
-     * @return the user ID
-     */
-    public UUID getUserId(String token) {
-        Claims claims = Jwts.parserBuilder().setSigningKey(key).build()
-                .parseClaimsJws(token).getBody();
-        return UUID.fromString(claims.getSubject());
-    }
-
-    /**
-     * Extract shopId
+     * Validate JWT token
      *
      * @param token the JWT token
-     * @return the shop ID
+     * @return true if valid, false otherwise
      */
-    public UUID getShopId(String token) {
-        Claims claims = Jwts.parserBuilder().setSigningKey(key).build()
-                .parseClaimsJws(token).getBody();
-        return UUID.fromString(claims.get("shopId", String.class));
+    public boolean validateToken(String token) {
+        return parse(token).isPresent();
     }
 
-    /**
-     * Extract role
-     *
-     * @param token the JWT token
-     * @return the user role
-     */
-    public String getRole(String token) {
-        Claims claims = Jwts.parserBuilder().setSigningKey(key).build()
-                .parseClaimsJws(token).getBody();
-        return claims.get("role", String.class);
+    private void evict() {
+        verified.values().removeIf(JwtPrincipal::isExpired);
+        if (verified.size() >= cacheSize) {
+            // Still full of live tokens: start over rather than track recency on every hit
+            verified.clear();
+        }
     }
 }
@@ -2,6 +2,7 @@ package com.adera.aderapos.security.config;
 
 import com.adera.aderapos.security.auth.JwtAuthenticationEntryPoint;
 import com.adera.aderapos.security.auth.JwtAuthenticationFilter;
+import com.adera.aderapos.security.rate.RateLimitFilter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -22,6 +23,7 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final JwtAuthenticationEntryPoint entryPoint;
+    private final RateLimitFilter rateLimitFilter;
 
     /**
      * Security filter chain configuration.
@@ -49,7 +51,8 @@ public class SecurityConfig {
                         .anyRequest().authenticated()
                 )
                 .exceptionHandling(ex -> ex.authenticationEntryPoint(entryPoint))
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
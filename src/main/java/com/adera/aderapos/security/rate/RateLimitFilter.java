@@ -0,0 +1,77 @@
+package com.adera.aderapos.security.rate;
+
+import com.adera.aderapos.security.utils.SecurityUtils;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Applies per-route rate limits and answers 429 with a Retry-After header when exceeded.
+ * <p>
+ * Login and invoice verification are limited per client address; sales are limited per
+ * authenticated user (falling back to the client address), so it must run after the JWT filter.
+ * Behind a proxy the client address comes from its X-Forwarded-For header, see
+ * {@code server.forward-headers-strategy}. The 429 is written directly rather than through
+ * {@code sendError}, whose {@code /error} dispatch would be refused for anonymous callers.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiterService limiter;
+    private final boolean enabled;
+    private final RateLimitPolicy login;
+    private final RateLimitPolicy sales;
+    private final RateLimitPolicy verify;
+
+    public RateLimitFilter(RateLimiterService limiter,
+                           @Value("${aderapos.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${aderapos.rate-limit.login.per-minute:10}") int loginPerMinute,
+                           @Value("${aderapos.rate-limit.login.burst:5}") int loginBurst,
+                           @Value("${aderapos.rate-limit.sales.per-minute:600}") int salesPerMinute,
+                           @Value("${aderapos.rate-limit.sales.burst:60}") int salesBurst,
+                           @Value("${aderapos.rate-limit.verify.per-minute:120}") int verifyPerMinute,
+                           @Value("${aderapos.rate-limit.verify.burst:20}") int verifyBurst) {
+        this.limiter = limiter;
+        this.enabled = enabled;
+        this.login = new RateLimitPolicy("login", loginPerMinute, loginBurst);
+        this.sales = new RateLimitPolicy("sales", salesPerMinute, salesBurst);
+        this.verify = new RateLimitPolicy("verify", verifyPerMinute, verifyBurst);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        long retryAfterMs = 0;
+        if (path.equals("/auth/login")) {
+            retryAfterMs = limiter.acquire(login, request.getRemoteAddr());
+        } else if (path.startsWith("/api/sales")) {
+            String userId = SecurityUtils.getCurrentUserId();
+            retryAfterMs = limiter.acquire(sales, userId != null ? userId : request.getRemoteAddr());
+        } else if (path.startsWith("/api/verify")) {
+            retryAfterMs = limiter.acquire(verify, request.getRemoteAddr());
+        }
+
+        if (retryAfterMs > 0) {
+            response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf((retryAfterMs + 999) / 1000));
+            response.setContentType("application/json");
+            response.getWriter().write("{\"timestamp\":\"" + Instant.now() + "\",\"error\":\"Too many requests\"}");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,29 @@
+package com.adera.aderapos.security.rate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A rate limit: a sustained number of requests per minute plus a burst allowance.
+ *
+ * @param name      the policy name, also used to keep its keys apart from other policies
+ * @param perMinute sustained requests per minute
+ * @param burst     requests that may arrive back to back before the sustained rate applies
+ */
+public record RateLimitPolicy(String name, int perMinute, int burst) {
+
+    public RateLimitPolicy {
+        if (perMinute <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate limit policy " + name + " needs a positive rate and burst");
+        }
+    }
+
+    /** Time one request "costs": the spacing between requests at the sustained rate. */
+    long emissionIntervalNanos() {
+        return TimeUnit.MINUTES.toNanos(1) / perMinute;
+    }
+
+    /** How far ahead of now the theoretical arrival time may run before requests are rejected. */
+    long toleranceNanos() {
+        return emissionIntervalNanos() * burst;
+    }
+}
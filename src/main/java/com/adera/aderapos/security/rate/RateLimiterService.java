@@ -1,20 +1,38 @@
 package com.adera.aderapos.security.rate;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for rate limiting user requests.
+ * <p>
+ * Implements the generic cell rate algorithm (GCRA): the whole state of a key is one
+ * theoretical arrival time (TAT) in an {@link AtomicLong}, updated with compare-and-set only.
+ * A request is allowed when pushing the TAT forward by one emission interval keeps it
+ * within the policy's tolerance of now. A key whose TAT is in the past has a full bucket,
+ * which is the same as having no state, so such keys are evicted periodically.
  */
 @Service
 public class RateLimiterService {
 
-    private final ConcurrentHashMap<String, UserRequestInfo> userRequestMap = new ConcurrentHashMap<>();
-    private final int MAX_REQUESTS = 50; // e.g., max 50 requests
-    private final long WINDOW_MS = 60_000; // 1 minute
+    private static final RateLimitPolicy DEFAULT_POLICY = new RateLimitPolicy("default", 50, 50);
+
+    private final Map<String, Map<String, AtomicLong>> buckets = new ConcurrentHashMap<>();
+    // TATs are nanos since this origin, so a fresh key (TAT 0) is always in the past
+    private final long origin = System.nanoTime();
+
+    public RateLimiterService(MeterRegistry meterRegistry) {
+        Gauge.builder("aderapos.ratelimit.keys", this, RateLimiterService::trackedKeys)
+                .description("Rate limited keys currently holding state")
+                .register(meterRegistry);
+    }
 
     /**
      * Checks if a request is allowed for the given key.
@@ -23,25 +41,53 @@ public class RateLimiterService {
      * @return true if the request is allowed, false otherwise
      */
     public boolean allowRequest(String key) {
-        UserRequestInfo info = userRequestMap.computeIfAbsent(key, k -> new UserRequestInfo());
-        synchronized (info) {
-            long now = Instant.now().toEpochMilli();
-            if (now - info.startTime > WINDOW_MS) {
-                info.startTime = now;
-                info.count.set(0);
+        return acquire(DEFAULT_POLICY, key) == 0;
+    }
+
+    /**
+     * Takes one request from a key's allowance under the given policy.
+     *
+     * @param policy the policy to apply
+     * @param key    the identifier for the user/requester
+     * @return 0 if the request is allowed, otherwise the milliseconds until it would be
+     */
+    public long acquire(RateLimitPolicy policy, String key) {
+        Map<String, AtomicLong> keys = buckets.get(policy.name());
+        if (keys == null) {
+            keys = buckets.computeIfAbsent(policy.name(), n -> new ConcurrentHashMap<>());
+        }
+        AtomicLong tat = keys.get(key);
+        if (tat == null) {
+            tat = keys.computeIfAbsent(key, k -> new AtomicLong());
+        }
+        long interval = policy.emissionIntervalNanos();
+        long tolerance = policy.toleranceNanos();
+        while (true) {
+            long now = System.nanoTime() - origin;
+            long current = tat.get();
+            long next = Math.max(current, now) + interval;
+            long excess = next - now - tolerance;
+            if (excess > 0) {
+                return TimeUnit.NANOSECONDS.toMillis(excess) + 1;
             }
-            if (info.count.incrementAndGet() <= MAX_REQUESTS) {
-                return true;
+            if (tat.compareAndSet(current, next)) {
+                return 0;
             }
-            return false;
         }
     }
 
     /**
-     * Resets the request count for the given key.
+     * Drops keys that have been idle long enough to have a full allowance again.
      */
-    private static class UserRequestInfo {
-        long startTime = Instant.now().toEpochMilli();
-        AtomicInteger count = new AtomicInteger(0);
+    @Scheduled(fixedDelayString = "${aderapos.rate-limit.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime() - origin;
+        for (Map<String, AtomicLong> keys : buckets.values()) {
+            keys.values().removeIf(tat -> tat.get() <= now);
+        }
+    }
+
+    private double trackedKeys() {
+        return buckets.values().stream().mapToInt(Map::size).sum();
     }
 }
@@ -1,26 +1,17 @@
 package com.adera.aderapos.security.utils;
 
+import com.adera.aderapos.security.auth.JwtPrincipal;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
-import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
-import com.adera.aderapos.security.auth.JwtTokenProvider;
 
 import java.util.UUID;
 
 /**
  * Utility class for security-related operations.
  */
-@Component
-public class SecurityUtils {
-    private static JwtTokenProvider jwtTokenProvider;
+public final class SecurityUtils {
 
-    @Autowired
-    public SecurityUtils(JwtTokenProvider jwtTokenProvider) {
-        SecurityUtils.jwtTokenProvider = jwtTokenProvider;
+    private SecurityUtils() {
     }
 
     /**
@@ -51,18 +42,17 @@ public class SecurityUtils {
      * @return the shop ID of the currently authenticated user, or null if not available
      */
     public static UUID getCurrentShopId() {
-        ServletRequestAttributes attrs = (ServletRequestAttributes)
-                RequestContextHolder.getRequestAttributes();
-        if (attrs == null) {
-            return null;
-        }
-        HttpServletRequest request = attrs.getRequest();
-        String authHeader = request.getHeader("Authorization");
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            UUID shopId = jwtTokenProvider.getShopId(token);
-            return shopId != null ? UUID.fromString(shopId.toString()) : null;
-        }
-        return null;
+        JwtPrincipal principal = getCurrentPrincipal();
+        return principal != null ? principal.shopId() : null;
+    }
+
+    /**
+     * Retrieves the claims of the current request's token.
+     *
+     * @return the principal set by the JWT filter, or null if the request is not JWT-authenticated
+     */
+    public static JwtPrincipal getCurrentPrincipal() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getPrincipal() instanceof JwtPrincipal principal ? principal : null;
     }
 }
@@ -1,5 +1,6 @@
 package com.adera.aderapos.telegram;
 
+import com.adera.aderapos.common.paging.CursorPage;
 import com.adera.aderapos.identity.entities.AppUser;
 import com.adera.aderapos.identity.repositories.AppUserRepository;
 import com.adera.aderapos.sales.dtos.SaleDTO;
@@ -44,11 +45,12 @@ public class TelegramController {
 
     // List invoices for a Telegram user
     @GetMapping("/invoices")
-    public ResponseEntity<List<InvoiceDTO>> getInvoicesForTelegramUser(@RequestHeader("X-Telegram-Id") String telegramId) {
+    public ResponseEntity<List<InvoiceDTO>> getInvoicesForTelegramUser(@RequestHeader("X-Telegram-Id") String telegramId,
+                                                                       @RequestParam(required = false) String cursor,
+                                                                       @RequestParam(required = false) Integer limit) {
         AppUser user = userRepository.findByTelegramId(telegramId)
                 .orElseThrow(() -> new RuntimeException("Unauthorized Telegram user"));
-        List<InvoiceDTO> invoices = invoiceService.getInvoicesByUserId(user.getId());
-        return ResponseEntity.ok(invoices);
+        return invoiceService.getInvoicesByUserId(user.getId(), cursor, CursorPage.limit(limit)).toResponse();
     }
 
     // TODO: Add endpoints for offline queue and notifications as needed
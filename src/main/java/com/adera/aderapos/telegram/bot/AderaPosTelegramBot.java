@@ -1,5 +1,6 @@
 package com.adera.aderapos.telegram.bot;
 
+import com.adera.aderapos.common.paging.CursorPage;
 import com.adera.aderapos.product.dtos.ProductDTO;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
@@ -14,6 +15,7 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMa
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.*;
 import org.slf4j.Logger;
@@ -205,15 +207,14 @@ You can also use the menu buttons.
     }
 
     private void showProductButtons(Long chatId) {
-        ProductDTO[] products = null;
+        List<ProductDTO> products;
         try {
-            products = restTemplate.getForObject(
-                baseUrl + "/api/products", ProductDTO[].class);
+            products = fetchProducts(chatId);
         } catch (Exception e) {
             sendText(chatId, "Failed to fetch products. Please try again later.");
             return;
         }
-        if (products == null || products.length == 0) {
+        if (products.isEmpty()) {
             sendText(chatId, "No products found.");
             return;
         }
@@ -364,17 +365,9 @@ You can also use the menu buttons.
 
     private void listProducts(Long chatId) {
         try {
-            ProductDTO[] products = restTemplate.exchange(
-                    baseUrl + "/api/products",
-                    HttpMethod.GET,
-                    new HttpEntity<>(telegramHeader(chatId)),
-                    ProductDTO[].class
-            ).getBody();
             StringBuilder sb = new StringBuilder("Products:\n");
-            if (products != null) {
-                for (ProductDTO p : products) {
-                    sb.append(p.getName()).append(" - ").append(p.getUnitPrice()).append("\n");
-                }
+            for (ProductDTO p : fetchProducts(chatId)) {
+                sb.append(p.getName()).append(" - ").append(p.getUnitPrice()).append("\n");
             }
             sendText(chatId, sb.toString());
         } catch (Exception e) {
@@ -383,6 +376,32 @@ You can also use the menu buttons.
         }
     }
 
+    /**
+     * Fetches every product page by page, following the next-cursor header, since one call returns at most a page.
+     */
+    private List<ProductDTO> fetchProducts(Long chatId) {
+        List<ProductDTO> products = new ArrayList<>();
+        String cursor = null;
+        do {
+            UriComponentsBuilder uri = UriComponentsBuilder.fromUriString(baseUrl + "/api/products")
+                    .queryParam("limit", CursorPage.MAX_LIMIT);
+            if (cursor != null) {
+                uri.queryParam("cursor", cursor);
+            }
+            ResponseEntity<ProductDTO[]> page = restTemplate.exchange(
+                    uri.encode().build().toUri(),
+                    HttpMethod.GET,
+                    new HttpEntity<>(telegramHeader(chatId)),
+                    ProductDTO[].class
+            );
+            if (page.getBody() != null) {
+                products.addAll(Arrays.asList(page.getBody()));
+            }
+            cursor = page.getHeaders().getFirst(CursorPage.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+        return products;
+    }
+
     enum BotState {
         IDLE,
         AWAITING_PHONE,
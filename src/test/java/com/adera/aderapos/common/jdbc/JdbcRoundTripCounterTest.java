@@ -0,0 +1,130 @@
+package com.adera.aderapos.common.jdbc;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JdbcRoundTripCounterTest {
+
+    private final DataSource dataSource = JdbcRoundTripCounter.wrap(fake(DataSource.class));
+
+    @BeforeEach
+    void setUp() {
+        JdbcRoundTripCounter.reset();
+    }
+
+    @Test
+    void countsEachBatchedRowAsAStatementAndEachExecuteAsARoundTrip() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            PreparedStatement insert = connection.prepareStatement("insert");
+            for (int i = 0; i < 3; i++) {
+                insert.setInt(1, i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            insert.executeUpdate();
+            Statement select = connection.createStatement();
+            select.executeQuery("select");
+            select.execute("select");
+            insert.close();
+        }
+
+        assertEquals(new JdbcRoundTripCounter.Counts(6, 4), JdbcRoundTripCounter.current());
+    }
+
+    @Test
+    void resetStartsTheNextRequestFromZero() throws SQLException {
+        execute(2);
+        assertEquals(new JdbcRoundTripCounter.Counts(2, 2), JdbcRoundTripCounter.current());
+
+        JdbcRoundTripCounter.reset();
+        assertEquals(new JdbcRoundTripCounter.Counts(0, 0), JdbcRoundTripCounter.current());
+
+        execute(1);
+        assertEquals(new JdbcRoundTripCounter.Counts(1, 1), JdbcRoundTripCounter.current());
+    }
+
+    @Test
+    void countsBelongToTheThreadThatMadeTheCalls() throws Exception {
+        AtomicReference<JdbcRoundTripCounter.Counts> other = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                execute(5);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            other.set(JdbcRoundTripCounter.current());
+        });
+        thread.start();
+        thread.join();
+
+        assertEquals(new JdbcRoundTripCounter.Counts(5, 5), other.get());
+        assertEquals(new JdbcRoundTripCounter.Counts(0, 0), JdbcRoundTripCounter.current());
+    }
+
+    @Test
+    void interceptorRecordsEachRequestOnItsOwn() throws SQLException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JdbcRoundTripInterceptor interceptor = new JdbcRoundTripInterceptor(registry);
+        execute(7); // left over from work outside any request
+
+        for (int statements : new int[]{3, 1}) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/sales");
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/sales");
+            interceptor.preHandle(request, new MockHttpServletResponse(), null);
+            execute(statements);
+            interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+        }
+
+        DistributionSummary summary = registry.get("aderapos.jdbc.round.trips")
+                .tag("method", "POST").tag("uri", "/api/sales").summary();
+        assertEquals(2, summary.count());
+        assertEquals(4.0, summary.totalAmount());
+        assertEquals(3.0, summary.max());
+    }
+
+    private void execute(int statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            for (int i = 0; i < statements; i++) {
+                connection.prepareStatement("update").executeUpdate();
+            }
+        }
+    }
+
+    /** A JDBC object that accepts every call, handing out further fakes where an interface is returned. */
+    private static <T> T fake(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Class<?> returns = method.getReturnType();
+            if (returns.isInterface() && returns.getName().startsWith("java.sql")) {
+                return fake(returns);
+            }
+            if (returns == int[].class) {
+                return new int[0];
+            }
+            if (returns == int.class) {
+                return 0;
+            }
+            if (returns == long.class) {
+                return 0L;
+            }
+            if (returns == boolean.class) {
+                return false;
+            }
+            return null;
+        }));
+    }
+}
@@ -0,0 +1,105 @@
+package com.adera.aderapos.invoice.crypto;
+
+import com.adera.aderapos.invoice.entities.Invoice;
+import com.adera.aderapos.invoice.entities.InvoiceLine;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CanonicalJsonWriterTest {
+
+    private final CanonicalJsonWriter writer = new CanonicalJsonWriter();
+
+    @Test
+    void bytesMatchGoldenFile() throws IOException {
+        assertArrayEquals(golden(), bytes(writer.encode(invoice(), lines())));
+    }
+
+    @Test
+    void sameInvoiceAfterDatabaseRoundTripEncodesIdentically() throws IOException {
+        Invoice stored = invoice();
+        // Postgres keeps microseconds and the loaded amounts carry the column's scale
+        stored.setIssuedAt(Instant.parse("2025-01-31T09:15:30.123456Z"));
+        stored.setNetAmount(new BigDecimal("1234.5000"));
+        assertArrayEquals(golden(), bytes(writer.encode(stored, lines())));
+    }
+
+    @Test
+    void reusedBufferDoesNotLeakEarlierOutput() throws IOException {
+        List<InvoiceLine> many = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            many.add(line("Item " + i, 1, "1.00"));
+        }
+        writer.encode(invoice(), many);
+        assertArrayEquals(golden(), bytes(writer.encode(invoice(), lines())));
+        assertEquals(new String(golden(), StandardCharsets.UTF_8), writer.write(invoice(), lines()));
+    }
+
+    @Test
+    void chainedInvoiceCarriesPreviousHashAfterItsNumber() {
+        Invoice chained = invoice();
+        chained.setPreviousHash("n4bQgYhMfWWaL+qgxVrQFaO/TxsrC4Is0V1sFbDwCgg=");
+        String json = writer.write(chained, lines());
+        assertTrue(json.startsWith("{\"invoiceNumber\":\"INV-0001-000042\","
+                + "\"previousHash\":\"n4bQgYhMfWWaL+qgxVrQFaO/TxsrC4Is0V1sFbDwCgg=\",\"issuedAt\":"));
+        assertTrue(CanonicalJsonWriter.linksTo(json, chained.getPreviousHash()));
+    }
+
+    @Test
+    void productNameCannotForgeALink() {
+        List<InvoiceLine> forged = List.of(line("\"previousHash\":\"forged\"", 1, "1.00"));
+        assertFalse(CanonicalJsonWriter.linksTo(writer.write(invoice(), forged), "forged"));
+    }
+
+    private static Invoice invoice() {
+        return Invoice.builder()
+                .invoiceNumber("INV-0001-000042")
+                .issuedAt(Instant.parse("2025-01-31T09:15:30.123456789Z"))
+                .netAmount(new BigDecimal("1234.5"))
+                .vatAmount(new BigDecimal("1234.5").multiply(new BigDecimal("0.15")))
+                .surtaxAmount(new BigDecimal("1234.5").multiply(new BigDecimal("0.01")))
+                .grossAmount(new BigDecimal("1432.020"))
+                .build();
+    }
+
+    private static List<InvoiceLine> lines() {
+        return List.of(
+                line("ቡና", 2, "450.25"),
+                line("Coffee \"Yirgacheffe\" 250g", 1, "300"),
+                line("Sugar\\Cane", 4, "8.5"));
+    }
+
+    private static InvoiceLine line(String name, int quantity, String unitPrice) {
+        BigDecimal price = new BigDecimal(unitPrice);
+        return InvoiceLine.builder()
+                .productName(name)
+                .quantity(quantity)
+                .unitPrice(price)
+                .lineTotal(price.multiply(BigDecimal.valueOf(quantity)))
+                .build();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] golden() throws IOException {
+        try (InputStream in = CanonicalJsonWriterTest.class.getResourceAsStream("/golden/canonical-invoice.json")) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.adera.aderapos.invoice.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvoiceHashServiceTest {
+
+    private final InvoiceHashService hashService = new InvoiceHashService();
+
+    @Test
+    void stringAndBytesHashLikeThePlainDigest() throws NoSuchAlgorithmException {
+        String json = "{\"invoiceNumber\":\"INV-0001-000042\",\"lines\":[{\"productName\":\"ቡና\"}]}";
+        String expected = reference(json);
+        assertEquals(expected, hashService.hash(json));
+        assertEquals(expected, hashService.hash(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8))));
+        // The reused digest carries nothing over from the previous call
+        assertEquals(expected, hashService.hash(json));
+    }
+
+    @Test
+    void largeAndUnpairedSurrogateInputMatchesStringGetBytes() throws NoSuchAlgorithmException {
+        String large = "x".repeat(500_000) + "😀";
+        assertEquals(reference(large), hashService.hash(large));
+        String broken = "a\uD800b";
+        assertEquals(reference(broken), hashService.hash(broken));
+        assertEquals(reference("short"), hashService.hash("short"));
+    }
+
+    @Test
+    void matchesComparesAgainstStoredHash() {
+        String json = "{\"grossAmount\":1432.02}";
+        String stored = hashService.hash(json);
+        assertTrue(hashService.matches(json, stored));
+        assertTrue(hashService.matches(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)), stored));
+        assertFalse(hashService.matches("{\"grossAmount\":1432.03}", stored));
+        assertFalse(hashService.matches(json, stored.substring(1)));
+        assertFalse(hashService.matches(json, null));
+    }
+
+    private static String reference(String json) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(json.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+}
@@ -0,0 +1,52 @@
+package com.adera.aderapos.invoice.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MerkleTreeTest {
+
+    private final InvoiceHashService hashService = new InvoiceHashService();
+
+    @Test
+    void everyProofLeadsToTheRoot() {
+        for (int size = 1; size <= 17; size++) {
+            List<String> hashes = hashes(size);
+            MerkleTree.Batch batch = MerkleTree.build(hashes);
+            for (int i = 0; i < size; i++) {
+                assertEquals(batch.root(), MerkleTree.rootOf(hashes.get(i), batch.proofs().get(i)));
+            }
+        }
+    }
+
+    @Test
+    void proofDoesNotFitAnotherLeafOrPosition() {
+        List<String> hashes = hashes(8);
+        MerkleTree.Batch batch = MerkleTree.build(hashes);
+        assertNotEquals(batch.root(), MerkleTree.rootOf(hashes.get(1), batch.proofs().get(0)));
+        assertNotEquals(batch.root(), MerkleTree.rootOf(hashService.hash("forged"), batch.proofs().get(0)));
+        // A leaf is never accepted as an inner node
+        assertNotEquals(batch.root(), MerkleTree.build(List.of(batch.root())).root());
+    }
+
+    @Test
+    void malformedProofIsRejected() {
+        String hash = hashService.hash("invoice");
+        assertThrows(IllegalArgumentException.class, () -> MerkleTree.rootOf(hash, "X" + hash));
+        assertThrows(IllegalArgumentException.class, () -> MerkleTree.rootOf(hash, "L"));
+        assertThrows(IllegalArgumentException.class, () -> MerkleTree.build(List.of()));
+    }
+
+    private List<String> hashes(int size) {
+        List<String> hashes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            hashes.add(hashService.hash("{\"invoiceNumber\":\"INV-" + i + "\"}"));
+        }
+        return hashes;
+    }
+}
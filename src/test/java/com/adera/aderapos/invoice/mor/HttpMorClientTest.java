@@ -0,0 +1,152 @@
+package com.adera.aderapos.invoice.mor;
+
+import com.adera.aderapos.invoice.entities.MorOutboxEntry;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the client against a stub MoR on a local port.
+ */
+class HttpMorClientTest {
+
+    private HttpServer server;
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicReference<String> response = new AtomicReference<>("[]");
+    private final AtomicReference<String> received = new AtomicReference<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Function<String, Reply>> stub =
+            new AtomicReference<>(request -> new Reply(status.get(), response.get()));
+
+    private record Reply(int status, String body) {}
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/invoices/batch", exchange -> {
+            received.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            requests.add(received.get());
+            Reply reply = stub.get().apply(received.get());
+            byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(reply.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    private HttpMorClient client() {
+        return new HttpMorClient("http://127.0.0.1:" + server.getAddress().getPort() + "/", 1000, 2000);
+    }
+
+    private static MorOutboxEntry entry(UUID invoiceId) {
+        return MorOutboxEntry.builder()
+                .invoiceId(invoiceId)
+                .payload("{\"invoiceId\":\"" + invoiceId + "\"}")
+                .build();
+    }
+
+    @Test
+    void submitsBatchAndParsesPerInvoiceResults() {
+        UUID accepted = UUID.randomUUID();
+        UUID rejected = UUID.randomUUID();
+        response.set("[{\"invoiceId\":\"" + accepted + "\",\"status\":\"ACCEPTED\"},"
+                + "{\"invoiceId\":\"" + rejected + "\",\"status\":\"REJECTED\",\"message\":\"bad TIN\"}]");
+
+        List<MorResult> results = client().submit(List.of(entry(accepted), entry(rejected)));
+
+        assertEquals("[{\"invoiceId\":\"" + accepted + "\"},{\"invoiceId\":\"" + rejected + "\"}]", received.get());
+        assertEquals(List.of(
+                new MorResult(accepted, MorResult.Outcome.ACCEPTED, null),
+                new MorResult(rejected, MorResult.Outcome.REJECTED, "bad TIN")), results);
+    }
+
+    @Test
+    void serverErrorsAndThrottlingAreRetryable() {
+        status.set(503);
+        assertThrows(MorUnavailableException.class, () -> client().submit(List.of(entry(UUID.randomUUID()))));
+        status.set(429);
+        assertThrows(MorUnavailableException.class, () -> client().submit(List.of(entry(UUID.randomUUID()))));
+    }
+
+    @Test
+    void errorsThatNameNoInvoiceAreRetryableNotRejections() {
+        for (int code : new int[]{400, 401, 403, 404}) {
+            status.set(code);
+            response.set("{\"error\":\"nope\"}");
+            assertThrows(MorUnavailableException.class, () -> client().submit(List.of(entry(UUID.randomUUID()))),
+                    "status " + code);
+        }
+    }
+
+    @Test
+    void perInvoiceRejectionsInAnErrorResponseAreTheAnswer() {
+        UUID rejected = UUID.randomUUID();
+        status.set(422);
+        response.set("[{\"invoiceId\":\"" + rejected + "\",\"status\":\"REJECTED\",\"message\":\"bad TIN\"}]");
+
+        List<MorResult> results = client().submit(List.of(entry(UUID.randomUUID()), entry(rejected)));
+
+        assertEquals(List.of(new MorResult(rejected, MorResult.Outcome.REJECTED, "bad TIN")), results);
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void refusedBatchIsSplitDownToTheOffendingInvoice() {
+        UUID bad = UUID.randomUUID();
+        List<UUID> good = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        stub.set(request -> {
+            if (request.contains(bad.toString())) {
+                return request.contains("},{")
+                        ? new Reply(413, "{\"error\":\"too large\"}")
+                        : new Reply(400, "[" + result(bad, "REJECTED") + "]");
+            }
+            return new Reply(200, good.stream().filter(id -> request.contains(id.toString()))
+                    .map(id -> result(id, "ACCEPTED")).collect(Collectors.joining(",", "[", "]")));
+        });
+
+        List<MorResult> results = client().submit(List.of(entry(good.get(0)), entry(good.get(1)),
+                entry(bad), entry(good.get(2))));
+
+        assertEquals(List.of(
+                new MorResult(good.get(0), MorResult.Outcome.ACCEPTED, null),
+                new MorResult(good.get(1), MorResult.Outcome.ACCEPTED, null),
+                new MorResult(bad, MorResult.Outcome.REJECTED, null),
+                new MorResult(good.get(2), MorResult.Outcome.ACCEPTED, null)), results);
+        // The whole batch, each half, then the refused half's two invoices on their own
+        assertEquals(5, requests.size());
+    }
+
+    private static String result(UUID invoiceId, String outcome) {
+        return "{\"invoiceId\":\"" + invoiceId + "\",\"status\":\"" + outcome + "\"}";
+    }
+
+    @Test
+    void unreachableServerIsRetryable() {
+        HttpMorClient client = client();
+        server.stop(0);
+        assertThrows(MorUnavailableException.class, () -> client.submit(List.of(entry(UUID.randomUUID()))));
+    }
+}
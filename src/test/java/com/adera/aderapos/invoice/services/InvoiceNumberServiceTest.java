@@ -0,0 +1,95 @@
+package com.adera.aderapos.invoice.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InvoiceNumberServiceTest {
+
+    private static final String ZONE = "Africa/Addis_Ababa";
+
+    /** Stands in for the invoice_sequence upsert: one atomic counter per shop and day. */
+    static class InMemoryAllocator implements InvoiceSequenceAllocator {
+        private final Map<String, AtomicLong> rows = new ConcurrentHashMap<>();
+
+        @Override
+        public long reserveBlock(UUID shopId, LocalDate day, int blockSize) {
+            return rows.computeIfAbsent(shopId + "/" + day, k -> new AtomicLong(1)).getAndAdd(blockSize);
+        }
+    }
+
+    @Test
+    void noDuplicatesAcrossThreadsAndNodes() throws Exception {
+        InMemoryAllocator database = new InMemoryAllocator();
+        // Two nodes sharing one database, small blocks to force frequent refills and races
+        InvoiceNumberService[] nodes = {
+                new InvoiceNumberService(database, 37, ZONE),
+                new InvoiceNumberService(database, 37, ZONE)
+        };
+        UUID[] shops = {UUID.randomUUID(), UUID.randomUUID()};
+        LocalDate day = LocalDate.of(2026, 1, 15);
+
+        int threads = 16;
+        int perThread = 20_000;
+        Set<String> issued = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                InvoiceNumberService node = nodes[t % 2];
+                UUID shop = shops[(t / 2) % 2];
+                futures[t] = pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        issued.add(shop + "-" + node.nextValue(shop, day));
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(threads * perThread, issued.size());
+    }
+
+    @Test
+    void restartContinuesAfterReservedBlocks() {
+        InMemoryAllocator database = new InMemoryAllocator();
+        UUID shop = UUID.randomUUID();
+        LocalDate day = LocalDate.of(2026, 1, 15);
+
+        long first = new InvoiceNumberService(database, 100, ZONE).nextValue(shop, day);
+        long afterRestart = new InvoiceNumberService(database, 100, ZONE).nextValue(shop, day);
+
+        assertEquals(1, first);
+        assertEquals(101, afterRestart);
+    }
+
+    @Test
+    void newDayDropsOldBlocksAndKeepsServingBothDays() {
+        InMemoryAllocator database = new InMemoryAllocator();
+        InvoiceNumberService service = new InvoiceNumberService(database, 10, ZONE);
+        UUID shop = UUID.randomUUID();
+        LocalDate monday = LocalDate.of(2026, 1, 12);
+        LocalDate tuesday = monday.plusDays(1);
+
+        assertEquals(1, service.nextValue(shop, monday));
+        assertEquals(1, service.nextValue(shop, tuesday));
+        assertEquals(2, service.nextValue(shop, tuesday));
+        // Monday's block is gone, so a late Monday invoice takes a fresh block
+        assertEquals(11, service.nextValue(shop, monday));
+    }
+}
@@ -0,0 +1,137 @@
+package com.adera.aderapos.product.services;
+
+import com.adera.aderapos.audit.entities.enums.AuditAction;
+import com.adera.aderapos.audit.entities.enums.AuditEntityType;
+import com.adera.aderapos.audit.entities.enums.AuditSeverity;
+import com.adera.aderapos.audit.services.AuditService;
+import com.adera.aderapos.identity.repositories.ShopRepository;
+import com.adera.aderapos.product.cache.CatalogCache;
+import com.adera.aderapos.product.dtos.ProductImportReport;
+import com.adera.aderapos.product.imports.ImportFormat;
+import com.adera.aderapos.product.ledger.InventoryLedger;
+import com.adera.aderapos.product.repositories.InventoryRepository;
+import com.adera.aderapos.product.repositories.ProductBatchRepository.UpsertedProduct;
+import com.adera.aderapos.product.repositories.ProductRepository;
+import com.adera.aderapos.security.auth.JwtPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImportServiceImplTest {
+
+    private static final String UPLOAD = """
+            sku,name,unitPrice,quantity
+            A-1,Coffee,120.00,5
+            B-2,Tea,80.00,
+            C-3,Sugar,40.00,9
+            """;
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private InventoryRepository inventoryRepository;
+    @Mock
+    private ShopRepository shopRepository;
+    @Mock
+    private AuditService auditService;
+    @Mock
+    private InventoryLedger inventoryLedger;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final UUID shopId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+    private ProductImportServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProductImportServiceImpl(productRepository, inventoryRepository, shopRepository,
+                auditService, inventoryLedger, new CatalogCache(new SimpleMeterRegistry(), 16, 60_000),
+                new TransactionTemplate(transactionManager), 1000, 1000);
+        when(shopRepository.existsById(shopId)).thenReturn(true);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void chunkIsWrittenAndAuditedWithTheCallersRole() {
+        JwtPrincipal principal = new JwtPrincipal(userId, shopId, "MANAGER", Instant.now().plusSeconds(600));
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_MANAGER"))));
+        UUID existing = stubUpsert();
+
+        ProductImportReport report = service.importProducts(shopId, upload(), ImportFormat.CSV);
+
+        assertEquals(2, report.getCreated());
+        assertEquals(1, report.getUpdated());
+        assertEquals(0, report.getFailed());
+        assertEquals(1, report.getChunks());
+        verify(inventoryRepository).upsertQuantities(
+                argThat((Map<UUID, Integer> q) -> q.size() == 3 && q.get(existing) == 5), eq(userId.toString()));
+        verify(auditService).log(eq(AuditAction.CREATE), eq(AuditEntityType.PRODUCT), eq(shopId), eq(userId),
+                eq("MANAGER"), eq(AuditSeverity.LOW), contains("2 created, 1 updated (lines 2-4)"));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void chunkWithoutAuthenticatedCallerIsAuditedAsSystem() {
+        stubUpsert();
+
+        ProductImportReport report = service.importProducts(shopId, upload(), ImportFormat.CSV);
+
+        assertEquals(0, report.getFailed());
+        verify(auditService).log(any(), any(), eq(shopId), isNull(), eq(AuditService.SYSTEM_ROLE), any(), anyString());
+    }
+
+    @Test
+    void rowsReplacedWithinAChunkAreSupersededNotFailed() {
+        stubUpsert();
+        String upload = UPLOAD + "A-1,Coffee,125.00,6\n";
+
+        ProductImportReport report = service.importProducts(shopId,
+                new ByteArrayInputStream(upload.getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV);
+
+        assertEquals(1, report.getSuperseded());
+        assertEquals(0, report.getFailed());
+        assertTrue(report.getErrors().isEmpty());
+        verify(productRepository).upsertProducts(eq(shopId),
+                argThat(rows -> rows.size() == 3 && rows.stream().anyMatch(r -> r.line() == 5)), any());
+    }
+
+    private UUID stubUpsert() {
+        UUID existing = UUID.randomUUID();
+        when(productRepository.upsertProducts(eq(shopId), anyList(), any())).thenReturn(List.of(
+                new UpsertedProduct(existing, "A-1", false),
+                new UpsertedProduct(UUID.randomUUID(), "B-2", true),
+                new UpsertedProduct(UUID.randomUUID(), "C-3", true)));
+        return existing;
+    }
+
+    private static ByteArrayInputStream upload() {
+        return new ByteArrayInputStream(UPLOAD.getBytes(StandardCharsets.UTF_8));
+    }
+}
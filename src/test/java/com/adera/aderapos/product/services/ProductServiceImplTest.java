@@ -0,0 +1,143 @@
+package com.adera.aderapos.product.services;
+
+import com.adera.aderapos.audit.services.AuditService;
+import com.adera.aderapos.common.paging.Cursor;
+import com.adera.aderapos.common.paging.CursorPage;
+import com.adera.aderapos.identity.repositories.ShopRepository;
+import com.adera.aderapos.product.dtos.ProductDTO;
+import com.adera.aderapos.product.dtos.ProductStockView;
+import com.adera.aderapos.product.cache.CatalogCache;
+import com.adera.aderapos.product.ledger.InventoryLedger;
+import com.adera.aderapos.product.mapper.ProductMapper;
+import com.adera.aderapos.product.repositories.InventoryRepository;
+import com.adera.aderapos.product.repositories.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductServiceImplTest {
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private InventoryRepository inventoryRepository;
+    @Mock
+    private ShopRepository shopRepository;
+    @Mock
+    private AuditService auditService;
+    @Mock
+    private InventoryLedger inventoryLedger;
+    @Mock
+    private EntityManager entityManager;
+
+    private ProductServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProductServiceImpl(productRepository, inventoryRepository, shopRepository,
+                Mappers.getMapper(ProductMapper.class), auditService, inventoryLedger, entityManager,
+                new CatalogCache(new SimpleMeterRegistry(), 16, 60_000));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 3000})
+    void catalogLoadIssuesOneQueryWhateverItsSize(int catalogSize) {
+        UUID shopId = UUID.randomUUID();
+        when(shopRepository.existsById(shopId)).thenReturn(true);
+        when(productRepository.findStockByShop(shopId)).thenReturn(catalog(shopId, catalogSize));
+
+        CursorPage<ProductDTO> page = service.getProductsByShop(shopId, null, CursorPage.MAX_LIMIT);
+
+        verify(productRepository, times(1)).findStockByShop(shopId);
+        verifyNoMoreInteractions(productRepository);
+        verifyNoInteractions(inventoryRepository);
+        int expected = Math.min(catalogSize, CursorPage.MAX_LIMIT);
+        assertEquals(skus(0, expected), page.items().stream().map(ProductDTO::getSku).toList());
+        assertEquals(7, page.items().get(0).getQuantity());
+        assertEquals(2, page.items().get(0).getReserved());
+        if (catalogSize <= CursorPage.MAX_LIMIT) {
+            assertNull(page.nextCursor());
+        } else {
+            assertEquals(page.items().get(expected - 1).getId(), Cursor.decode(page.nextCursor()).id());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 3000})
+    void cachedCatalogIsPagedWithoutFurtherQueries(int catalogSize) {
+        UUID shopId = UUID.randomUUID();
+        when(shopRepository.existsById(shopId)).thenReturn(true);
+        when(productRepository.findStockByShop(shopId)).thenReturn(catalog(shopId, catalogSize));
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<ProductDTO> page = service.getProductsByShop(shopId, cursor, 100);
+            assertTrue(page.items().size() <= 100);
+            page.items().forEach(p -> seen.add(p.getSku()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        // Every product exactly once, newest first
+        assertEquals(skus(0, catalogSize), seen);
+        verify(productRepository, times(1)).findStockByShop(shopId);
+    }
+
+    @Test
+    void allProductsPageIsCappedAtTheLimit() {
+        List<ProductStockView> rows = catalog(UUID.randomUUID(), CursorPage.DEFAULT_LIMIT + 1);
+        when(productRepository.findStockPage(any(), any(), eq(Limit.of(CursorPage.DEFAULT_LIMIT + 1)))).thenReturn(rows);
+
+        CursorPage<ProductDTO> page = service.getAllProducts(null, CursorPage.DEFAULT_LIMIT);
+
+        assertEquals(skus(0, CursorPage.DEFAULT_LIMIT), page.items().stream().map(ProductDTO::getSku).toList());
+        Cursor next = Cursor.decode(page.nextCursor());
+        assertEquals(rows.get(CursorPage.DEFAULT_LIMIT - 1).id(), next.id());
+        assertEquals(rows.get(CursorPage.DEFAULT_LIMIT - 1).createdAt(), next.at());
+    }
+
+    @Test
+    void lastPageOfAllProductsHasNoCursor() {
+        List<ProductStockView> rows = catalog(UUID.randomUUID(), 3);
+        Cursor after = new Cursor(Instant.now(), UUID.randomUUID());
+        when(productRepository.findStockPage(after.at(), after.id(), Limit.of(11))).thenReturn(rows);
+
+        CursorPage<ProductDTO> page = service.getAllProducts(after.encode(), 10);
+
+        assertEquals(skus(0, 3), page.items().stream().map(ProductDTO::getSku).toList());
+        assertNull(page.nextCursor());
+    }
+
+    private static List<String> skus(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "SKU-" + i).toList();
+    }
+
+    private static List<ProductStockView> catalog(UUID shopId, int size) {
+        List<ProductStockView> rows = new ArrayList<>(size);
+        Instant now = Instant.now();
+        for (int i = 0; i < size; i++) {
+            rows.add(new ProductStockView(UUID.randomUUID(), shopId, "Product " + i, "SKU-" + i, null,
+                    BigDecimal.TEN, true, 7, 2, now.minusSeconds(i), now, "test", "test", null, null));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,124 @@
+package com.adera.aderapos.sales.services;
+
+import com.adera.aderapos.common.exception.ApiException;
+import com.adera.aderapos.sales.dtos.SaleDTO;
+import com.adera.aderapos.sales.dtos.SaleItemDTO;
+import com.adera.aderapos.sales.entities.enums.PaymentMethod;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SaleIdempotencyGuardTest {
+
+    private static final UUID COFFEE = UUID.randomUUID();
+
+    @Test
+    void concurrentDuplicatesRunOnce() throws Exception {
+        SaleIdempotencyGuard guard = new SaleIdempotencyGuard(100);
+        UUID shopId = UUID.randomUUID();
+        SaleDTO request = sale("till-1:42", 2);
+        AtomicInteger executions = new AtomicInteger();
+
+        int threads = 8;
+        // The first submission holds its sale open until every submission has reached the guard
+        CountDownLatch submitted = new CountDownLatch(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<SaleDTO>> results = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(pool.submit(() -> {
+                submitted.countDown();
+                return guard.execute(shopId, "till-1:42", request, Optional::empty, () -> {
+                    executions.incrementAndGet();
+                    try {
+                        submitted.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return stored(request);
+                });
+            }));
+        }
+        SaleDTO first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<SaleDTO> result : results) {
+            assertSame(first, result.get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        assertEquals(1, executions.get());
+
+        // A later replay is answered from memory
+        assertSame(first, guard.execute(shopId, "till-1:42", sale("till-1:42", 2), Optional::empty, () -> {
+            throw new AssertionError("replay must not execute");
+        }));
+    }
+
+    @Test
+    void lostInsertRaceReturnsStoredSale() {
+        SaleIdempotencyGuard guard = new SaleIdempotencyGuard(100);
+        SaleDTO request = sale("k", 1);
+        SaleDTO stored = stored(request);
+        AtomicReference<SaleDTO> database = new AtomicReference<>();
+
+        SaleDTO result = guard.execute(UUID.randomUUID(), "k", request, () -> Optional.ofNullable(database.get()), () -> {
+            // Another node commits the key between our lookup and insert
+            database.set(stored);
+            throw new DataIntegrityViolationException("uk_sales_shop_idempotency_key");
+        });
+        assertSame(stored, result);
+    }
+
+    @Test
+    void replayWithADifferentSaleIsRejected() {
+        SaleIdempotencyGuard guard = new SaleIdempotencyGuard(100);
+        UUID shopId = UUID.randomUUID();
+        SaleDTO stored = guard.execute(shopId, "till-1:43", sale("till-1:43", 2), Optional::empty,
+                () -> stored(sale("till-1:43", 2)));
+
+        // Answered from memory
+        assertThrows(ApiException.class, () -> guard.execute(shopId, "till-1:43", sale("till-1:43", 3),
+                Optional::empty, () -> {
+                    throw new AssertionError("reused key must not execute");
+                }));
+
+        // Answered from the database on another node
+        SaleIdempotencyGuard other = new SaleIdempotencyGuard(100);
+        SaleDTO telebirr = sale("till-1:43", 2);
+        telebirr.setPaymentMethod(PaymentMethod.TELEBIRR);
+        assertThrows(ApiException.class, () -> other.execute(shopId, "till-1:43", telebirr,
+                () -> Optional.of(stored), () -> {
+                    throw new AssertionError("reused key must not execute");
+                }));
+    }
+
+    private static SaleDTO sale(String idempotencyKey, int quantity) {
+        return SaleDTO.builder()
+                .idempotencyKey(idempotencyKey)
+                .paymentMethod(PaymentMethod.CASH)
+                .saleItems(List.of(SaleItemDTO.builder()
+                        .productId(COFFEE).quantity(quantity).unitPrice(new BigDecimal("120.00")).build()))
+                .build();
+    }
+
+    /** The request as read back after it was stored. */
+    private static SaleDTO stored(SaleDTO request) {
+        return SaleDTO.builder()
+                .id(UUID.randomUUID())
+                .idempotencyKey(request.getIdempotencyKey())
+                .paymentMethod(request.getPaymentMethod())
+                .saleItems(request.getSaleItems().stream()
+                        .map(item -> SaleItemDTO.builder().id(UUID.randomUUID()).productId(item.getProductId())
+                                .quantity(item.getQuantity()).unitPrice(item.getUnitPrice().setScale(4)).build())
+                        .toList())
+                .build();
+    }
+}